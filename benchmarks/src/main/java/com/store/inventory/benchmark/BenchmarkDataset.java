@@ -0,0 +1,245 @@
+package com.store.inventory.benchmark;
+
+import com.store.inventory.domain.Item;
+import com.store.inventory.domain.Manufacturer;
+import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.domain.Shelf;
+import com.store.inventory.domain.Warehouse;
+import com.store.inventory.repository.ManufacturerDao;
+import com.store.inventory.repository.NomenclatureDao;
+import com.store.inventory.repository.ShelfDao;
+import com.store.inventory.repository.UnitOfWork;
+import com.store.inventory.repository.WarehouseDao;
+import com.store.inventory.service.MovementService;
+import com.store.inventory.service.ReceiptService;
+import com.store.inventory.util.HibernateUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Набор данных для бенчмарков
+ *
+ * <p>Перед серией измерений заполняет базу через DAO и {@link ReceiptService}:
+ * производители, склады с полками, номенклатура и партии, поступившие документами
+ * поступления, а для выборки партий — история перемещений заданной глубины.
+ * Размеры задаются параметрами JMH ({@code -p nomenclatureCount=5000}).
+ * Содержимое определяется только параметрами, поэтому результаты разных версий
+ * приложения сравнимы.</p>
+ *
+ * <p>Если профиль базы не задан ({@code -Dinventory.db.profile}), используется
+ * профиль memory: измеряются запросы и проведение, а не скорость диска. Бенчмарки
+ * создают DAO и сервисы в своих методах {@code @Setup}, принимающих этот набор,
+ * то есть уже после выбора профиля.</p>
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    /** Количество партий в одном документе поступления при заполнении */
+    private static final int RECEIPT_CHUNK_SIZE = 500;
+
+    /** Количество партий с историей перемещений */
+    private static final int HISTORY_SAMPLE_SIZE = 100;
+
+    /** Количество в партии: реализация по одной единице не исчерпывает её за прогон */
+    private static final BigDecimal LOT_QUANTITY = new BigDecimal("100000");
+
+    /** Цены партий; сумма документа поступления из RECEIPT_CHUNK_SIZE партий укладывается в NUMERIC(12, 2) */
+    static final BigDecimal PURCHASE_PRICE = new BigDecimal("1.00");
+    static final BigDecimal SELLING_PRICE = new BigDecimal("1.50");
+
+    /** Каждая такая по счёту номенклатура получает минимальный остаток выше наличия */
+    private static final int LOW_STOCK_EVERY = 25;
+
+    /** Категории в наименованиях номенклатуры; поиск по категории находит 1/20 справочника */
+    static final String[] CATEGORIES = {
+            "Смартфон", "Планшет", "Ноутбук", "Монитор", "Клавиатура",
+            "Мышь", "Наушники", "Колонка", "Чехол", "Стекло",
+            "Кабель", "Зарядное устройство", "Аккумулятор", "Карта памяти", "Накопитель",
+            "Роутер", "Камера", "Часы", "Браслет", "Принтер"
+    };
+
+    /** Начальное значение генератора и дата поступления: набор не зависит от дня запуска */
+    private static final long SEED = 20240501L;
+    static final LocalDate BASE_DATE = LocalDate.of(2024, 5, 1);
+
+    @Param({"1000"})
+    public int nomenclatureCount;
+
+    @Param({"10"})
+    public int lotsPerNomenclature;
+
+    @Param({"2"})
+    public int warehouseCount;
+
+    @Param({"20"})
+    public int shelvesPerWarehouse;
+
+    @Param({"20"})
+    public int historyDepth;
+
+    /** Склады в порядке создания */
+    List<Warehouse> warehouses;
+
+    /** Полки по складам: {@code shelves.get(склад).get(полка)} */
+    List<List<Shelf>> shelves;
+
+    /** Номенклатура в порядке создания */
+    List<Nomenclature> nomenclatures;
+
+    /** Партии по складам */
+    List<List<Item>> lotsByWarehouse;
+
+    /** Номер полки партии в своём складе; меняется бенчмарком перемещения */
+    int[][] shelfOfLot;
+
+    /** Партии с историей перемещений */
+    List<Item> historySample;
+
+    private final AtomicLong documentCounter = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void seed() {
+        if (System.getProperty("inventory.db.profile") == null) {
+            System.setProperty("inventory.db.profile", "memory");
+        }
+        HibernateUtil.getSessionFactory();
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        UnitOfWork.run(session -> seedReferenceData());
+        seedLots(random);
+        seedHistory();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        HibernateUtil.shutdown();
+    }
+
+    /**
+     * Возвращает уникальный номер нового документа
+     *
+     * @param prefix префикс вида документа
+     * @return номер документа
+     */
+    String nextDocumentNumber(String prefix) {
+        return prefix + "-BENCH-" + documentCounter.incrementAndGet();
+    }
+
+    private void seedReferenceData() {
+        ManufacturerDao manufacturerDao = new ManufacturerDao();
+        WarehouseDao warehouseDao = new WarehouseDao();
+        ShelfDao shelfDao = new ShelfDao();
+        NomenclatureDao nomenclatureDao = new NomenclatureDao();
+
+        List<Manufacturer> manufacturers = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            manufacturers.add(manufacturerDao.save(new Manufacturer("Производитель " + i, "Россия", null)));
+        }
+
+        warehouses = new ArrayList<>();
+        shelves = new ArrayList<>();
+        for (int w = 1; w <= warehouseCount; w++) {
+            Warehouse warehouse = warehouseDao.save(new Warehouse("Склад " + w, "Адрес " + w, true));
+            List<Shelf> warehouseShelves = new ArrayList<>();
+            for (int s = 1; s <= shelvesPerWarehouse; s++) {
+                warehouseShelves.add(new Shelf(warehouse, String.format("S-%03d", s), null, 1000, true));
+            }
+            shelfDao.persistAll(warehouseShelves);
+            warehouses.add(warehouse);
+            shelves.add(warehouseShelves);
+        }
+
+        nomenclatures = new ArrayList<>();
+        for (int n = 0; n < nomenclatureCount; n++) {
+            String category = CATEGORIES[n % CATEGORIES.length];
+            // Минимальный остаток выше количества в партиях делает номенклатуру дефицитной
+            int minStockLevel = n % LOW_STOCK_EVERY == 0 ? Integer.MAX_VALUE : 1;
+            nomenclatures.add(new Nomenclature(String.format("ART-%06d", n),
+                    category + " модель " + String.format("%06d", n), null, "шт",
+                    manufacturers.get(n % manufacturers.size()), minStockLevel));
+        }
+        nomenclatureDao.persistAll(nomenclatures);
+    }
+
+    private void seedLots(SplittableRandom random) {
+        ReceiptService receiptService = new ReceiptService();
+        List<List<ReceiptService.ReceiptItemData>> receipts = new ArrayList<>();
+        List<List<Integer>> shelfIndexes = new ArrayList<>();
+        for (int w = 0; w < warehouseCount; w++) {
+            receipts.add(new ArrayList<>());
+            shelfIndexes.add(new ArrayList<>());
+        }
+
+        for (int n = 0; n < nomenclatureCount; n++) {
+            for (int lot = 0; lot < lotsPerNomenclature; lot++) {
+                int w = random.nextInt(warehouseCount);
+                int s = random.nextInt(shelvesPerWarehouse);
+                LocalDate manufactured = BASE_DATE.minusDays(random.nextInt(365));
+                receipts.get(w).add(new ReceiptService.ReceiptItemData(
+                        nomenclatures.get(n), LOT_QUANTITY,
+                        PURCHASE_PRICE, SELLING_PRICE,
+                        shelves.get(w).get(s), "LOT-" + n + "-" + lot,
+                        manufactured, manufactured.plusDays(730)));
+                shelfIndexes.get(w).add(s);
+            }
+        }
+
+        lotsByWarehouse = new ArrayList<>();
+        shelfOfLot = new int[warehouseCount][];
+        for (int w = 0; w < warehouseCount; w++) {
+            List<ReceiptService.ReceiptItemData> lines = receipts.get(w);
+            for (int from = 0; from < lines.size(); from += RECEIPT_CHUNK_SIZE) {
+                receiptService.createAndConfirmReceiptDocument(nextDocumentNumber("ПТ"), BASE_DATE,
+                        warehouses.get(w), "Поставщик", lines.subList(from, Math.min(from + RECEIPT_CHUNK_SIZE, lines.size())),
+                        "benchmark");
+            }
+            Long warehouseId = warehouses.get(w).getId();
+            lotsByWarehouse.add(UnitOfWork.executeReadOnly(session -> session.createQuery(
+                            "FROM Item i WHERE i.currentShelf.warehouse.id = :warehouseId ORDER BY i.id", Item.class)
+                    .setParameter("warehouseId", warehouseId)
+                    .list()));
+            shelfOfLot[w] = shelfIndexes.get(w).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Перемещает выборку партий первого склада по полкам, создавая историю глубины historyDepth
+     */
+    private void seedHistory() {
+        MovementService movementService = new MovementService();
+        List<Item> lots = lotsByWarehouse.get(0);
+        historySample = lots.subList(0, Math.min(HISTORY_SAMPLE_SIZE, lots.size()));
+        for (int round = 0; round < historyDepth; round++) {
+            List<MovementService.MovementItemData> lines = new ArrayList<>();
+            for (int i = 0; i < historySample.size(); i++) {
+                lines.add(new MovementService.MovementItemData(historySample.get(i), nextShelf(0, i)));
+            }
+            movementService.createAndConfirmMovementDocument(nextDocumentNumber("ПМ"), BASE_DATE,
+                    warehouses.get(0), lines, "benchmark");
+        }
+    }
+
+    /**
+     * Выбирает для партии следующую полку её склада и запоминает её
+     *
+     * @param warehouse номер склада
+     * @param lot номер партии в складе
+     * @return полка, отличная от текущей
+     */
+    Shelf nextShelf(int warehouse, int lot) {
+        int next = (shelfOfLot[warehouse][lot] + 1) % shelvesPerWarehouse;
+        shelfOfLot[warehouse][lot] = next;
+        return shelves.get(warehouse).get(next);
+    }
+}
@@ -0,0 +1,81 @@
+package com.store.inventory.benchmark;
+
+import com.store.inventory.domain.Item;
+import com.store.inventory.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк сброса сессии (flush)
+ *
+ * <p>На каждую итерацию открывается сессия, в неё загружаются {@code managedEntities}
+ * партий вместе с номенклатурой, как в транзакции проведения. Каждый вызов изменяет
+ * {@code dirtyEntities} партий и сбрасывает сессию; транзакция откатывается в конце
+ * итерации. Без улучшения байт-кода Hibernate при каждом сбросе сравнивает со снимком
+ * все поля всех управляемых сущностей, с отслеживанием изменений в сущностях проверяются
+ * только изменённые. Для сравнения бенчмарк запускается на сборках приложения
+ * с улучшением и без него ({@code mvn install -Dhibernate.enhance.skip}).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn",
+        "-Dorg.slf4j.simpleLogger.log.com.store.inventory=warn"})
+public class FlushBenchmark {
+
+    @Param({"1000", "5000"})
+    public int managedEntities;
+
+    @Param({"0", "10"})
+    public int dirtyEntities;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private Session session;
+    private Transaction transaction;
+    private List<Item> items;
+
+    @Setup(Level.Iteration)
+    public void loadEntities(BenchmarkDataset dataset) {
+        session = HibernateUtil.getSessionFactory().openSession();
+        transaction = session.beginTransaction();
+        items = session.createQuery(
+                        "SELECT i FROM Item i JOIN FETCH i.nomenclature ORDER BY i.id", Item.class)
+                .setMaxResults(managedEntities)
+                .list();
+    }
+
+    @Benchmark
+    public void flush() {
+        for (int i = 0; i < dirtyEntities; i++) {
+            Item item = items.get(random.nextInt(items.size()));
+            item.setSerialNumber("SN-" + random.nextInt(1_000_000));
+        }
+        session.flush();
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        transaction.rollback();
+        session.close();
+    }
+}
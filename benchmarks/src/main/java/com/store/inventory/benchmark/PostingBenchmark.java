@@ -0,0 +1,104 @@
+package com.store.inventory.benchmark;
+
+import com.store.inventory.domain.Document;
+import com.store.inventory.domain.Item;
+import com.store.inventory.service.MovementService;
+import com.store.inventory.service.ReceiptService;
+import com.store.inventory.service.SaleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки проведения документов
+ *
+ * <p>Каждый вызов создаёт и проводит один документ из {@code linesPerDocument} строк.
+ * Реализация списывает по одной единице из партий набора данных, перемещение переносит
+ * партии на следующую полку склада. База растёт в течение прогона, как и в работе
+ * магазина. Бенчмарки однопоточные: полки партий отслеживаются без синхронизации.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn",
+        "-Dorg.slf4j.simpleLogger.log.com.store.inventory=warn"})
+public class PostingBenchmark {
+
+    private static final BigDecimal RECEIPT_QUANTITY = new BigDecimal("100");
+
+    @Param({"10"})
+    public int linesPerDocument;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ReceiptService receiptService;
+    private SaleService saleService;
+    private MovementService movementService;
+
+    @Setup(Level.Trial)
+    public void createServices(BenchmarkDataset dataset) {
+        receiptService = new ReceiptService();
+        saleService = new SaleService();
+        movementService = new MovementService();
+    }
+
+    @Benchmark
+    public Document receipt(BenchmarkDataset dataset) {
+        int warehouse = random.nextInt(dataset.warehouses.size());
+        List<ReceiptService.ReceiptItemData> lines = new ArrayList<>(linesPerDocument);
+        for (int i = 0; i < linesPerDocument; i++) {
+            lines.add(new ReceiptService.ReceiptItemData(
+                    dataset.nomenclatures.get(random.nextInt(dataset.nomenclatures.size())),
+                    RECEIPT_QUANTITY, BenchmarkDataset.PURCHASE_PRICE, BenchmarkDataset.SELLING_PRICE,
+                    dataset.shelves.get(warehouse).get(random.nextInt(dataset.shelvesPerWarehouse)),
+                    "BENCH", BenchmarkDataset.BASE_DATE, BenchmarkDataset.BASE_DATE.plusDays(730)));
+        }
+        return receiptService.createAndConfirmReceiptDocument(dataset.nextDocumentNumber("ПТ"),
+                BenchmarkDataset.BASE_DATE, dataset.warehouses.get(warehouse), "Поставщик", lines, "benchmark");
+    }
+
+    @Benchmark
+    public Document sale(BenchmarkDataset dataset) {
+        int warehouse = random.nextInt(dataset.warehouses.size());
+        List<Item> lots = dataset.lotsByWarehouse.get(warehouse);
+        int first = random.nextInt(lots.size());
+        List<SaleService.SaleItemData> lines = new ArrayList<>(linesPerDocument);
+        for (int i = 0; i < Math.min(linesPerDocument, lots.size()); i++) {
+            lines.add(new SaleService.SaleItemData(lots.get((first + i) % lots.size()), BigDecimal.ONE,
+                    BenchmarkDataset.SELLING_PRICE));
+        }
+        return saleService.createAndConfirmSaleDocument(dataset.nextDocumentNumber("РН"),
+                BenchmarkDataset.BASE_DATE, dataset.warehouses.get(warehouse), "Покупатель", lines, "benchmark");
+    }
+
+    @Benchmark
+    public Document movement(BenchmarkDataset dataset) {
+        int warehouse = random.nextInt(dataset.warehouses.size());
+        List<Item> lots = dataset.lotsByWarehouse.get(warehouse);
+        int first = random.nextInt(lots.size());
+        List<MovementService.MovementItemData> lines = new ArrayList<>(linesPerDocument);
+        for (int i = 0; i < Math.min(linesPerDocument, lots.size()); i++) {
+            int lot = (first + i) % lots.size();
+            lines.add(new MovementService.MovementItemData(lots.get(lot), dataset.nextShelf(warehouse, lot)));
+        }
+        return movementService.createAndConfirmMovementDocument(dataset.nextDocumentNumber("ПМ"),
+                BenchmarkDataset.BASE_DATE, dataset.warehouses.get(warehouse), lines, "benchmark");
+    }
+}
@@ -0,0 +1,187 @@
+package com.store.inventory.benchmark;
+
+import com.store.inventory.domain.Document;
+import com.store.inventory.domain.DocumentStatus;
+import com.store.inventory.domain.DocumentType;
+import com.store.inventory.domain.Item;
+import com.store.inventory.domain.ItemStatus;
+import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.domain.Shelf;
+import com.store.inventory.domain.Warehouse;
+import com.store.inventory.dto.LowStockRow;
+import com.store.inventory.repository.DocumentDao;
+import com.store.inventory.repository.ItemDao;
+import com.store.inventory.repository.StockLedger;
+import com.store.inventory.service.LowStockWatcher;
+import com.store.inventory.service.ReceiptService;
+import com.store.inventory.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки отчётов
+ *
+ * <p>К набору данных добавляется архив: {@code archiveSize} проданных позиций на полках
+ * первого склада и столько же документов. Половина документов — проведённые реализации
+ * и поступления, датированные годами раньше отчётного периода; другая половина датирована
+ * периодом, но не входит в отчёты — перемещения и черновики реализации. Отчёты за период
+ * и сводка по складу архив не включают, поэтому их время не должно зависеть
+ * от {@code archiveSize}. В отчёты попадают {@code RECENT_DOCUMENTS} документов каждого вида.</p>
+ *
+ * <p>Отчёт о низком запасе читает множество {@link LowStockWatcher}: {@code lowStockReport}
+ * загружает его номенклатуру из базы, {@code lowStockRows} строит строки из журнала остатков.
+ * Запрос, который сравнивает с минимумом остаток каждой номенклатуры, измеряет
+ * {@code RepositoryBenchmark.lowStockItems}.</p>
+ *
+ * <p>Срок годности {@code EXPIRING_LOTS} партий истекает в ближайшие {@code EXPIRY_DAYS} дней
+ * от дня запуска (партии набора данных к этому дню уже просрочены). {@code expiringReport}
+ * выбирает их индексом сроков годности журнала, {@code expiringItemsQuery} — запросом
+ * по всем товарным позициям, включая архив.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn",
+        "-Dorg.slf4j.simpleLogger.log.com.store.inventory=warn"})
+public class ReportBenchmark {
+
+    /** Длина отчётного периода, заканчивающегося датой набора данных */
+    private static final int PERIOD_DAYS = 30;
+
+    /** Документы каждого вида в отчётном периоде */
+    private static final int RECENT_DOCUMENTS = 100;
+
+    /** Архивные документы датированы в пределах стольких дней до начала периода */
+    private static final int ARCHIVE_DAYS = 5 * 365;
+
+    private static final BigDecimal DOCUMENT_AMOUNT = new BigDecimal("150.00");
+
+    /** Партии, срок годности которых истекает в пределах отчёта */
+    private static final int EXPIRING_LOTS = 100;
+
+    /** Период отчёта об истекающем сроке годности, дней */
+    private static final int EXPIRY_DAYS = 30;
+
+    @Param({"0", "20000", "100000"})
+    public int archiveSize;
+
+    private ReportService reportService;
+    private ItemDao itemDao;
+    private Warehouse warehouse;
+    private LocalDate periodStart;
+
+    @Setup(Level.Trial)
+    public void seedArchive(BenchmarkDataset dataset) {
+        reportService = new ReportService();
+        itemDao = new ItemDao();
+        warehouse = dataset.warehouses.get(0);
+        periodStart = BenchmarkDataset.BASE_DATE.minusDays(PERIOD_DAYS);
+
+        SplittableRandom random = new SplittableRandom(archiveSize);
+        List<Shelf> shelves = dataset.shelves.get(0);
+        List<Item> soldItems = new ArrayList<>(archiveSize);
+        for (int i = 0; i < archiveSize; i++) {
+            soldItems.add(new Item(dataset.nomenclatures.get(random.nextInt(dataset.nomenclatures.size())),
+                    "ARCHIVE-" + i, BigDecimal.ONE, BenchmarkDataset.PURCHASE_PRICE, BenchmarkDataset.SELLING_PRICE,
+                    shelves.get(random.nextInt(shelves.size())), ItemStatus.SOLD));
+        }
+        new ItemDao().persistAll(soldItems);
+
+        List<Document> documents = new ArrayList<>(archiveSize + 2 * RECENT_DOCUMENTS);
+        for (int i = 0; i < archiveSize; i++) {
+            LocalDate archived = periodStart.minusDays(1 + random.nextInt(ARCHIVE_DAYS));
+            LocalDate recent = periodStart.plusDays(random.nextInt(PERIOD_DAYS + 1));
+            documents.add(switch (i % 4) {
+                case 0 -> document(dataset, DocumentType.SALE, DocumentStatus.CONFIRMED, archived);
+                case 1 -> document(dataset, DocumentType.RECEIPT, DocumentStatus.CONFIRMED, archived);
+                case 2 -> document(dataset, DocumentType.MOVEMENT, DocumentStatus.CONFIRMED, recent);
+                default -> document(dataset, DocumentType.SALE, DocumentStatus.DRAFT, recent);
+            });
+        }
+        for (int i = 0; i < RECENT_DOCUMENTS; i++) {
+            LocalDate date = periodStart.plusDays(random.nextInt(PERIOD_DAYS + 1));
+            documents.add(document(dataset, DocumentType.SALE, DocumentStatus.CONFIRMED, date));
+            documents.add(document(dataset, DocumentType.RECEIPT, DocumentStatus.CONFIRMED, date));
+        }
+        new DocumentDao().persistAll(documents);
+
+        // Поступление датировано до периода и в отчёт о поступлениях не входит
+        LocalDate today = LocalDate.now();
+        List<ReceiptService.ReceiptItemData> expiring = new ArrayList<>(EXPIRING_LOTS);
+        for (int i = 0; i < EXPIRING_LOTS; i++) {
+            expiring.add(new ReceiptService.ReceiptItemData(
+                    dataset.nomenclatures.get(random.nextInt(dataset.nomenclatures.size())), BigDecimal.TEN,
+                    BenchmarkDataset.PURCHASE_PRICE, BenchmarkDataset.SELLING_PRICE,
+                    shelves.get(random.nextInt(shelves.size())), "EXPIRING-" + i,
+                    null, today.plusDays(1 + i % EXPIRY_DAYS)));
+        }
+        new ReceiptService().createAndConfirmReceiptDocument(dataset.nextDocumentNumber("ПТ"),
+                periodStart.minusDays(1), warehouse, "Поставщик", expiring, "benchmark");
+
+        StockLedger.getInstance().load();
+        LowStockWatcher.getInstance().start();
+    }
+
+    @Benchmark
+    public Map<String, Object> salesReport() {
+        return reportService.getSalesReport(periodStart, BenchmarkDataset.BASE_DATE);
+    }
+
+    @Benchmark
+    public Map<String, Object> receiptReport() {
+        return reportService.getReceiptReport(periodStart, BenchmarkDataset.BASE_DATE);
+    }
+
+    @Benchmark
+    public Map<String, Object> warehouseSummary() {
+        return reportService.getWarehouseSummary(warehouse);
+    }
+
+    @Benchmark
+    public List<Nomenclature> lowStockReport() {
+        return reportService.getLowStockReport();
+    }
+
+    @Benchmark
+    public List<LowStockRow> lowStockRows() {
+        return reportService.getLowStockRows();
+    }
+
+    @Benchmark
+    public List<Item> expiringReport() {
+        return reportService.getExpiringItemsReport(EXPIRY_DAYS);
+    }
+
+    @Benchmark
+    public List<Item> expiringItemsQuery() {
+        return itemDao.findExpiringItems(EXPIRY_DAYS);
+    }
+
+    private Document document(BenchmarkDataset dataset, DocumentType type, DocumentStatus status, LocalDate date) {
+        Document document = new Document(type, dataset.nextDocumentNumber(type.name()),
+                date, warehouse, "Контрагент", status, "benchmark");
+        document.setTotalAmount(DOCUMENT_AMOUNT);
+        return document;
+    }
+}
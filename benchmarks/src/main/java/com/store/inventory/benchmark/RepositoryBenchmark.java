@@ -0,0 +1,83 @@
+package com.store.inventory.benchmark;
+
+import com.store.inventory.domain.History;
+import com.store.inventory.domain.Item;
+import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.repository.HistoryDao;
+import com.store.inventory.repository.ItemDao;
+import com.store.inventory.repository.NomenclatureDao;
+import com.store.inventory.repository.StockBalanceDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки запросов DAO
+ *
+ * <p>Аргументы запросов выбираются генератором с фиксированным начальным значением,
+ * поэтому последовательность запросов одинакова во всех прогонах.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn",
+        "-Dorg.slf4j.simpleLogger.log.com.store.inventory=warn"})
+public class RepositoryBenchmark {
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ItemDao itemDao;
+    private NomenclatureDao nomenclatureDao;
+    private HistoryDao historyDao;
+    private StockBalanceDao stockBalanceDao;
+
+    @Setup(Level.Trial)
+    public void createDaos(BenchmarkDataset dataset) {
+        itemDao = new ItemDao();
+        nomenclatureDao = new NomenclatureDao();
+        historyDao = new HistoryDao();
+        stockBalanceDao = new StockBalanceDao();
+    }
+
+    @Benchmark
+    public List<Object[]> stockByWarehouse() {
+        return stockBalanceDao.findStockByWarehouse();
+    }
+
+    @Benchmark
+    public List<Item> availableByNomenclatureAndWarehouse(BenchmarkDataset dataset) {
+        Nomenclature nomenclature = dataset.nomenclatures.get(random.nextInt(dataset.nomenclatures.size()));
+        return itemDao.findAvailableByNomenclatureAndWarehouse(nomenclature,
+                dataset.warehouses.get(random.nextInt(dataset.warehouses.size())));
+    }
+
+    @Benchmark
+    public List<Nomenclature> searchByName() {
+        return nomenclatureDao.searchByName(
+                BenchmarkDataset.CATEGORIES[random.nextInt(BenchmarkDataset.CATEGORIES.length)]);
+    }
+
+    @Benchmark
+    public List<Nomenclature> lowStockItems() {
+        return nomenclatureDao.findLowStockItems();
+    }
+
+    @Benchmark
+    public List<History> historyByItem(BenchmarkDataset dataset) {
+        return historyDao.findByItem(dataset.historySample.get(random.nextInt(dataset.historySample.size())));
+    }
+}
@@ -1,58 +1,103 @@
 package com.store.inventory;
 
+import com.store.inventory.controller.MainWindowController;
+import com.store.inventory.domain.Warehouse;
+import com.store.inventory.repository.ManufacturerDao;
+import com.store.inventory.repository.NomenclatureDao;
+import com.store.inventory.repository.ShelfDao;
+import com.store.inventory.repository.StockLedger;
+import com.store.inventory.repository.WarehouseDao;
+import com.store.inventory.service.ExpiryService;
+import com.store.inventory.service.LowStockWatcher;
 import com.store.inventory.util.DataSeeder;
 import com.store.inventory.util.HibernateUtil;
+import com.store.inventory.util.StripedLockManager;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
 /**
  * Главный класс JavaFX приложения
+ *
+ * <p>Запуск выполняется по этапам. Заставка показывается сразу, затем в двух фоновых
+ * потоках параллельно выполняются инициализация базы данных (миграции и SessionFactory,
+ * начальные данные, прогрев кэша справочников, журнал остатков) и загрузка FXML главного окна.
+ * Когда оба потока завершены, главное окно заполняется данными и показывается.
+ * Длительность этапов и время до готовности к работе выводятся в журнал.</p>
  */
 public class App extends Application {
 
     private static final Logger logger = LoggerFactory.getLogger(App.class);
 
-    @Override
-    public void start(Stage primaryStage) {
-        try {
-            logger.info("Запуск приложения...");
-
-            // Инициализация Hibernate
-            HibernateUtil.getSessionFactory();
-            logger.info("База данных инициализирована");
+    /** Момент загрузки класса приложения: отсчёт времени до готовности к работе */
+    private static final long LAUNCHED_AT = System.nanoTime();
 
-            // Заполнение тестовыми данными
-            DataSeeder seeder = new DataSeeder();
-            seeder.seed();
+    /** База данных, начальные данные, кэш справочников, журнал остатков, главное окно, данные окна */
+    private static final int BOOTSTRAP_STAGES = 6;
 
-            // Загрузка главного окна
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainWindow.fxml"));
-            Parent root = loader.load();
+    @Override
+    public void start(Stage primaryStage) {
+        logger.info("Запуск приложения...");
 
-            Scene scene = new Scene(root, 1200, 800);
-            scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
+        SplashScreen splash = new SplashScreen(BOOTSTRAP_STAGES);
+        splash.show();
+        logger.info("Заставка показана через {} мс", millisSince(LAUNCHED_AT));
 
-            primaryStage.setTitle("Учёт товаров в магазине");
-            primaryStage.setScene(scene);
-            primaryStage.setMaximized(true);
-            primaryStage.show();
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-            logger.info("Приложение успешно запущено");
+        CompletableFuture<Void> database = CompletableFuture.runAsync(() -> {
+            runStage(splash, "Подключение к базе данных...", HibernateUtil::getSessionFactory);
+            runStage(splash, "Подготовка данных...", () -> new DataSeeder().seed());
+            runStage(splash, "Загрузка справочников...", App::warmUpReferenceCaches);
+            runStage(splash, "Загрузка остатков...", () -> {
+                StockLedger stockLedger = StockLedger.getInstance();
+                stockLedger.load();
+                stockLedger.startReconciliation(StockLedger.reconciliationPeriod());
+                LowStockWatcher.getInstance().start();
+                ExpiryService.getInstance().start(ExpiryService.checkPeriod());
+            });
+        }, executor);
+        CompletableFuture<FXMLLoader> mainWindow = CompletableFuture.supplyAsync(
+                () -> runStage(splash, "Загрузка интерфейса...", this::loadMainWindow), executor);
 
-        } catch (Exception e) {
-            logger.error("Ошибка при запуске приложения", e);
-            e.printStackTrace();
-        }
+        database.thenCombine(mainWindow, (ignored, loader) -> loader)
+                .whenComplete((loader, error) -> Platform.runLater(() -> {
+                    executor.shutdown();
+                    if (error != null) {
+                        handleStartupError(splash, error instanceof CompletionException ? error.getCause() : error);
+                    } else {
+                        showMainWindow(primaryStage, splash, loader);
+                    }
+                }));
     }
 
     @Override
     public void stop() {
         logger.info("Завершение работы приложения...");
+        StripedLockManager.forPostings().getStatistics().stream()
+                .filter(stats -> stats.getContended() > 0)
+                .forEach(stats -> logger.info("Блокировки проведения, {}", stats));
+        ExpiryService.getInstance().stop();
+        LowStockWatcher.getInstance().stop();
+        StockLedger.getInstance().stopReconciliation();
         HibernateUtil.shutdown();
         logger.info("Приложение закрыто");
     }
@@ -60,5 +105,93 @@ public class App extends Application {
     public static void main(String[] args) {
         launch(args);
     }
-}
 
+    /**
+     * Загружает главное окно
+     *
+     * <p>Выполняется в фоновом потоке: узлы ещё не присоединены к показанному окну,
+     * а контроллер при инициализации к базе не обращается.</p>
+     */
+    private FXMLLoader loadMainWindow() {
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainWindow.fxml"));
+        try {
+            loader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return loader;
+    }
+
+    /**
+     * Заполняет данными и показывает главное окно, закрывает заставку
+     */
+    private void showMainWindow(Stage primaryStage, SplashScreen splash, FXMLLoader loader) {
+        runStage(splash, "Загрузка данных...", () -> {
+            MainWindowController controller = loader.getController();
+            controller.loadInitialData();
+        });
+
+        Scene scene = new Scene(loader.<Parent>getRoot(), 1200, 800);
+        scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
+
+        primaryStage.setTitle("Учёт товаров в магазине");
+        primaryStage.setScene(scene);
+        primaryStage.setMaximized(true);
+        primaryStage.show();
+        splash.close();
+
+        // Следующий импульс JavaFX наступает после отрисовки окна
+        Platform.runLater(() -> logger.info("Приложение успешно запущено, время до готовности к работе {} мс",
+                millisSince(LAUNCHED_AT)));
+    }
+
+    /**
+     * Сообщает об ошибке запуска и завершает приложение
+     */
+    private void handleStartupError(SplashScreen splash, Throwable error) {
+        logger.error("Ошибка при запуске приложения", error);
+        splash.close();
+
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Ошибка запуска");
+        alert.setHeaderText("Не удалось запустить приложение");
+        alert.setContentText(error.getMessage());
+        alert.showAndWait();
+        Platform.exit();
+    }
+
+    /**
+     * Загружает справочники, которые открывают диалоги документов
+     *
+     * <p>Склады и полки попадают в кэш запросов, номенклатура и производители —
+     * в кэш второго уровня; заодно компилируются запросы и прогреваются страницы H2.</p>
+     */
+    private static void warmUpReferenceCaches() {
+        ShelfDao shelfDao = new ShelfDao();
+        for (Warehouse warehouse : new WarehouseDao().findAllActive()) {
+            shelfDao.findActiveByWarehouse(warehouse);
+        }
+        new NomenclatureDao().findAll();
+        new ManufacturerDao().findAll();
+    }
+
+    private static void runStage(SplashScreen splash, String message, Runnable stage) {
+        runStage(splash, message, () -> {
+            stage.run();
+            return null;
+        });
+    }
+
+    private static <T> T runStage(SplashScreen splash, String message, Supplier<T> stage) {
+        splash.stageStarted(message);
+        long started = System.nanoTime();
+        T result = stage.get();
+        logger.info("Этап запуска «{}» выполнен за {} мс", message, millisSince(started));
+        splash.stageCompleted();
+        return result;
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+}
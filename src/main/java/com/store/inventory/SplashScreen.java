@@ -0,0 +1,77 @@
+package com.store.inventory;
+
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+/**
+ * Заставка, отображаемая во время запуска приложения
+ *
+ * <p>Показывает текущий этап запуска и долю завершённых этапов. Методы
+ * {@link #stageStarted(String)} и {@link #stageCompleted()} можно вызывать
+ * из любого потока: изменения передаются в поток JavaFX.</p>
+ */
+public class SplashScreen {
+
+    private final Stage stage = new Stage(StageStyle.UNDECORATED);
+    private final Label statusLabel = new Label("Запуск...");
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final int stageCount;
+    private int completedStages;
+
+    /**
+     * @param stageCount количество этапов запуска
+     */
+    public SplashScreen(int stageCount) {
+        this.stageCount = stageCount;
+
+        Label title = new Label("Учёт товаров в магазине");
+        title.getStyleClass().add("header-label");
+        progressBar.setPrefWidth(360);
+
+        VBox root = new VBox(16, title, progressBar, statusLabel);
+        root.setAlignment(Pos.CENTER);
+        root.getStyleClass().add("splash");
+
+        Scene scene = new Scene(root, 440, 180);
+        scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
+        stage.setScene(scene);
+        stage.setTitle("Учёт товаров в магазине");
+    }
+
+    /**
+     * Показать заставку
+     */
+    public void show() {
+        stage.centerOnScreen();
+        stage.show();
+    }
+
+    /**
+     * Отобразить начало этапа
+     *
+     * @param message описание этапа
+     */
+    public void stageStarted(String message) {
+        Platform.runLater(() -> statusLabel.setText(message));
+    }
+
+    /**
+     * Отметить завершение этапа
+     */
+    public void stageCompleted() {
+        Platform.runLater(() -> progressBar.setProgress((double) ++completedStages / stageCount));
+    }
+
+    /**
+     * Закрыть заставку
+     */
+    public void close() {
+        stage.close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.store.inventory;
+
+import com.store.inventory.dto.StockBalanceDiscrepancy;
+import com.store.inventory.repository.StockBalanceDao;
+import com.store.inventory.util.HibernateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Команда обслуживания таблицы остатков
+ *
+ * <p>{@code verify} сравнивает таблицу {@code stock_balance} с товарными позициями
+ * и выводит расхождения; {@code rebuild} пересчитывает таблицу по позициям.
+ * Код завершения 1 — найдены расхождения, 2 — неверные аргументы.
+ * База выбирается так же, как при запуске приложения (параметры {@code inventory.db.*}).</p>
+ *
+ * <pre>{@code
+ * mvn -q compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/classes:$(cat target/classpath.txt) com.store.inventory.StockBalanceCommand verify
+ * }</pre>
+ */
+public class StockBalanceCommand {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockBalanceCommand.class);
+
+    /** Количество расхождений, выводимых в журнал подробно */
+    private static final int REPORTED_DISCREPANCIES = 50;
+
+    public static void main(String[] args) {
+        if (args.length != 1 || !(args[0].equals("verify") || args[0].equals("rebuild"))) {
+            System.err.println("Использование: StockBalanceCommand verify|rebuild");
+            System.exit(2);
+        }
+
+        int status;
+        try {
+            StockBalanceDao stockBalanceDao = new StockBalanceDao();
+            if (args[0].equals("rebuild")) {
+                stockBalanceDao.rebuild();
+            }
+            status = report(stockBalanceDao.verify()) ? 0 : 1;
+        } finally {
+            HibernateUtil.shutdown();
+        }
+        System.exit(status);
+    }
+
+    /**
+     * Выводит результат проверки
+     *
+     * @return true, если расхождений нет
+     */
+    private static boolean report(List<StockBalanceDiscrepancy> discrepancies) {
+        if (discrepancies.isEmpty()) {
+            logger.info("Остатки совпадают с товарными позициями");
+            return true;
+        }
+        logger.warn("Расхождений остатков с товарными позициями: {}", discrepancies.size());
+        discrepancies.stream()
+                .limit(REPORTED_DISCREPANCIES)
+                .forEach(d -> logger.warn("Номенклатура #{}, склад #{}, полка #{}: по позициям {}, в остатках {}",
+                        d.nomenclatureId(), d.warehouseId(), d.shelfId(), d.expected(), d.recorded()));
+        return false;
+    }
+}
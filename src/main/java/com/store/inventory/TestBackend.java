@@ -1,9 +1,9 @@
 package com.store.inventory;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.StockBalanceDiscrepancy;
 import com.store.inventory.repository.*;
 import com.store.inventory.service.*;
-import com.store.inventory.util.DatabaseInitializer;
 import com.store.inventory.util.HibernateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,19 +24,17 @@ public class TestBackend {
         logger.info("=== Запуск тестового приложения ===");
 
         try {
-            // Инициализация базы данных
+            // Инициализация базы данных (схема создаётся миграциями при первом обращении)
             HibernateUtil.getSessionFactory();
             logger.info("Hibernate SessionFactory инициализирована");
 
-            // Инициализация тестовых данных (если нужно)
-            // DatabaseInitializer.initializeDatabase();
-
             // Создание экземпляров DAO
             ManufacturerDao manufacturerDao = new ManufacturerDao();
             NomenclatureDao nomenclatureDao = new NomenclatureDao();
             WarehouseDao warehouseDao = new WarehouseDao();
             ShelfDao shelfDao = new ShelfDao();
             ItemDao itemDao = new ItemDao();
+            StockBalanceDao stockBalanceDao = new StockBalanceDao();
 
             // Создание экземпляров сервисов
             ReceiptService receiptService = new ReceiptService();
@@ -105,6 +103,29 @@ public class TestBackend {
                     receiptItem.getQuantity(),
                     receiptItem.getTotal());
 
+            // Вторая строка того же черновика: версия документа обновлена первой строкой
+            DocumentItem secondReceiptItem = receiptService.addReceiptItem(
+                    receiptDoc,
+                    nomenclature,
+                    new BigDecimal("20"),
+                    new BigDecimal("150.00"),
+                    new BigDecimal("200.00"),
+                    shelf1,
+                    "BATCH-002",
+                    LocalDate.now(),
+                    LocalDate.now().plusMonths(9)
+            );
+            logger.info("Добавлена строка: {} × {} = {}",
+                    nomenclature.getName(),
+                    secondReceiptItem.getQuantity(),
+                    secondReceiptItem.getTotal());
+            BigDecimal expectedReceiptTotal = receiptItem.getTotal().add(secondReceiptItem.getTotal());
+            if (receiptDoc.getTotalAmount().compareTo(expectedReceiptTotal) != 0) {
+                throw new IllegalStateException("Сумма документа " + receiptDoc.getTotalAmount()
+                        + " не равна сумме строк " + expectedReceiptTotal);
+            }
+            logger.info("Сумма документа поступления: {} руб.", receiptDoc.getTotalAmount());
+
             // Проводим документ
             receiptService.confirmReceiptDocument(receiptDoc, "Иванов И.И.");
             logger.info("Документ поступления {} проведён", receiptDoc.getDocumentNumber());
@@ -130,8 +151,12 @@ public class TestBackend {
 
             // ===== ТЕСТ 7: Создание документа продажи =====
             logger.info("\n=== ТЕСТ 7: Создание документа продажи ===");
-            if (!availableItems.isEmpty()) {
-                Item itemToSell = availableItems.get(0);
+            BigDecimal saleQuantity = new BigDecimal("30");
+            Item itemToSell = availableItems.stream()
+                    .filter(item -> item.getQuantity().compareTo(saleQuantity) >= 0)
+                    .findFirst()
+                    .orElse(null);
+            if (itemToSell != null) {
 
                 Document saleDoc = saleService.createSaleDocument(
                         "РЛ-00001",
@@ -146,7 +171,7 @@ public class TestBackend {
                 DocumentItem saleItem = saleService.addSaleItem(
                         saleDoc,
                         itemToSell,
-                        new BigDecimal("30"),
+                        saleQuantity,
                         itemToSell.getSellingPrice()
                 );
                 logger.info("Добавлена строка: {} × {} = {}",
@@ -210,6 +235,42 @@ public class TestBackend {
                 logger.info("\nНет товаров с низким запасом");
             }
 
+            // ===== ТЕСТ 11: Удаление справочников с остатками =====
+            logger.info("\n=== ТЕСТ 11: Удаление справочников с остатками ===");
+            Warehouse tempWarehouse = warehouseDao.save(new Warehouse("Временный склад", "г. Тест, ул. Временная, 1", true));
+            Shelf tempShelf1 = shelfDao.save(new Shelf(tempWarehouse, "T-1", "Временная полка 1", 100, true));
+            Shelf tempShelf2 = shelfDao.save(new Shelf(tempWarehouse, "T-2", "Временная полка 2", 100, true));
+            Nomenclature soldOut = nomenclatureDao.save(
+                    new Nomenclature("TEST-DEL-1", "Распроданный товар", null, "шт", manufacturer, 0));
+            Nomenclature stocked = nomenclatureDao.save(
+                    new Nomenclature("TEST-DEL-2", "Товар в наличии", null, "шт", manufacturer, 0));
+            Item soldItem = itemDao.save(new Item(soldOut, "DEL-1", BigDecimal.TEN,
+                    new BigDecimal("100"), new BigDecimal("150"), tempShelf1, ItemStatus.IN_STOCK));
+            itemDao.save(new Item(stocked, "DEL-2", BigDecimal.TEN,
+                    new BigDecimal("100"), new BigDecimal("150"), tempShelf1, ItemStatus.IN_STOCK));
+            itemDao.save(new Item(stocked, "DEL-3", BigDecimal.TEN,
+                    new BigDecimal("100"), new BigDecimal("150"), tempShelf2, ItemStatus.IN_STOCK));
+            // Строка остатка распроданной номенклатуры остаётся с нулевым количеством
+            itemDao.updateStatus(List.of(soldItem.getId()), ItemStatus.SOLD);
+
+            nomenclatureDao.deleteById(soldOut.getId());
+            logger.info("Удалена номенклатура с нулевым остатком: {}", soldOut.getArticle());
+            shelfDao.deleteById(tempShelf2.getId());
+            logger.info("Удалена полка с остатком: {}", tempShelf2.getCode());
+            warehouseDao.deleteById(tempWarehouse.getId());
+            logger.info("Удалён склад с остатком: {}", tempWarehouse.getName());
+            nomenclatureDao.deleteById(stocked.getId());
+            logger.info("Удалена номенклатура: {}", stocked.getArticle());
+
+            if (nomenclatureDao.existsById(soldOut.getId()) || warehouseDao.existsById(tempWarehouse.getId())) {
+                throw new IllegalStateException("Справочники с остатками не удалены");
+            }
+            List<StockBalanceDiscrepancy> discrepancies = stockBalanceDao.verify();
+            if (!discrepancies.isEmpty()) {
+                throw new IllegalStateException("Расхождения остатков после удаления: " + discrepancies);
+            }
+            logger.info("Остатки согласованы с товарными позициями");
+
             logger.info("\n=== Все тесты успешно выполнены! ===");
 
         } catch (Exception e) {
@@ -1,7 +1,7 @@
 package com.store.inventory.controller;
 
 import com.store.inventory.domain.Document;
-import com.store.inventory.domain.DocumentItem;
+import com.store.inventory.dto.DocumentLineRow;
 import com.store.inventory.repository.DocumentItemDao;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -29,14 +29,14 @@ public class DocumentViewDialogController {
     @FXML private TextField counterpartyField;
     @FXML private TextField statusField;
     @FXML private TextField totalAmountField;
-    @FXML private TableView<DocumentItem> itemsTable;
-    @FXML private TableColumn<DocumentItem, String> itemArticleCol;
-    @FXML private TableColumn<DocumentItem, String> itemNameCol;
-    @FXML private TableColumn<DocumentItem, BigDecimal> itemQuantityCol;
-    @FXML private TableColumn<DocumentItem, String> itemUnitCol;
-    @FXML private TableColumn<DocumentItem, BigDecimal> itemPriceCol;
-    @FXML private TableColumn<DocumentItem, BigDecimal> itemTotalCol;
-    @FXML private TableColumn<DocumentItem, String> itemShelfCol;
+    @FXML private TableView<DocumentLineRow> itemsTable;
+    @FXML private TableColumn<DocumentLineRow, String> itemArticleCol;
+    @FXML private TableColumn<DocumentLineRow, String> itemNameCol;
+    @FXML private TableColumn<DocumentLineRow, BigDecimal> itemQuantityCol;
+    @FXML private TableColumn<DocumentLineRow, String> itemUnitCol;
+    @FXML private TableColumn<DocumentLineRow, BigDecimal> itemPriceCol;
+    @FXML private TableColumn<DocumentLineRow, BigDecimal> itemTotalCol;
+    @FXML private TableColumn<DocumentLineRow, String> itemShelfCol;
     @FXML private TextArea notesArea;
 
     private Document document;
@@ -57,15 +57,15 @@ public class DocumentViewDialogController {
     private void setupItemsTable() {
         itemArticleCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleStringProperty(
-                cellData.getValue().getNomenclature().getArticle()));
+                cellData.getValue().article()));
         
         itemNameCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleStringProperty(
-                cellData.getValue().getNomenclature().getName()));
+                cellData.getValue().name()));
         
         itemQuantityCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleObjectProperty<>(
-                cellData.getValue().getQuantity()));
+                cellData.getValue().quantity()));
         itemQuantityCol.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(BigDecimal item, boolean empty) {
@@ -80,11 +80,11 @@ public class DocumentViewDialogController {
         
         itemUnitCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleStringProperty(
-                cellData.getValue().getNomenclature().getUnit()));
+                cellData.getValue().unit()));
         
         itemPriceCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleObjectProperty<>(
-                cellData.getValue().getPrice()));
+                cellData.getValue().price()));
         itemPriceCol.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(BigDecimal item, boolean empty) {
@@ -99,7 +99,7 @@ public class DocumentViewDialogController {
         
         itemTotalCol.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleObjectProperty<>(
-                cellData.getValue().getTotal()));
+                cellData.getValue().total()));
         itemTotalCol.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(BigDecimal item, boolean empty) {
@@ -113,9 +113,9 @@ public class DocumentViewDialogController {
         });
         
         itemShelfCol.setCellValueFactory(cellData -> {
-            var shelf = cellData.getValue().getShelf();
+            String shelf = cellData.getValue().shelf();
             return new javafx.beans.property.SimpleStringProperty(
-                shelf != null ? shelf.getCode() : "-");
+                shelf != null ? shelf : "-");
         });
     }
 
@@ -158,8 +158,8 @@ public class DocumentViewDialogController {
      */
     private void loadDocumentItems() {
         try {
-            List<DocumentItem> items = documentItemDao.findByDocument(document);
-            ObservableList<DocumentItem> observableItems = FXCollections.observableArrayList(items);
+            List<DocumentLineRow> items = documentItemDao.findLineRowsByDocument(document.getId());
+            ObservableList<DocumentLineRow> observableItems = FXCollections.observableArrayList(items);
             itemsTable.setItems(observableItems);
         } catch (Exception e) {
             showError("Ошибка при загрузке позиций документа: " + e.getMessage());
@@ -1,18 +1,19 @@
 package com.store.inventory.controller;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.HistoryRow;
 import com.store.inventory.repository.*;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
@@ -45,13 +46,19 @@ public class ItemHistoryController {
     @FXML
     public void initialize() {
         // Настройка колонок таблицы
-        dateTimeCol.setCellValueFactory(new PropertyValueFactory<>("dateTime"));
-        operationTypeCol.setCellValueFactory(new PropertyValueFactory<>("operationType"));
-        documentNumberCol.setCellValueFactory(new PropertyValueFactory<>("documentNumber"));
-        quantityChangeCol.setCellValueFactory(new PropertyValueFactory<>("quantityChange"));
-        balanceCol.setCellValueFactory(new PropertyValueFactory<>("balance"));
-        shelfCol.setCellValueFactory(new PropertyValueFactory<>("shelf"));
-        performerCol.setCellValueFactory(new PropertyValueFactory<>("performer"));
+        dateTimeCol.setCellValueFactory(cellData ->
+                new SimpleStringProperty(cellData.getValue().operationDate().format(DATE_TIME_FORMATTER)));
+        operationTypeCol.setCellValueFactory(cellData ->
+                new SimpleStringProperty(translateOperationType(cellData.getValue().operationType())));
+        documentNumberCol.setCellValueFactory(cellData -> {
+            String documentNumber = cellData.getValue().documentNumber();
+            return new SimpleStringProperty(documentNumber != null ? documentNumber : "-");
+        });
+        quantityChangeCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().quantityChange()));
+        // TODO: Рассчитать баланс, если требуется
+        balanceCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(BigDecimal.ZERO));
+        shelfCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().shelfRoute()));
+        performerCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().createdBy()));
 
         historyTable.setItems(historyData);
 
@@ -129,12 +136,7 @@ public class ItemHistoryController {
     private void loadHistory() {
         Item item = itemCombo.getValue();
         if (item != null) {
-            List<History> history = historyDao.findByItem(item);
-            
-            historyData.clear();
-            for (History h : history) {
-                historyData.add(new HistoryRow(h));
-            }
+            historyData.setAll(historyDao.findRowsByItem(item.getId()));
         } else {
             historyData.clear();
         }
@@ -147,58 +149,19 @@ public class ItemHistoryController {
     }
 
     /**
-     * Вспомогательный класс для отображения истории
+     * Перевод типа операции
      */
-    public static class HistoryRow {
-        private final String dateTime;
-        private final String operationType;
-        private final String documentNumber;
-        private final BigDecimal quantityChange;
-        private final BigDecimal balance;
-        private final String shelf;
-        private final String performer;
-
-        public HistoryRow(History history) {
-            this.dateTime = history.getOperationDate().format(DATE_TIME_FORMATTER);
-            this.operationType = translateOperationType(history.getOperationType());
-            this.documentNumber = history.getDocument() != null ? history.getDocument().getDocumentNumber() : "-";
-            this.quantityChange = history.getQuantityChange();
-            // TODO: Рассчитать баланс, если требуется
-            this.balance = BigDecimal.ZERO;
-            // Для операций перемещения показываем обе полки
-            if (history.getFromShelf() != null && history.getToShelf() != null) {
-                this.shelf = history.getFromShelf().getCode() + " → " + history.getToShelf().getCode();
-            } else if (history.getToShelf() != null) {
-                this.shelf = history.getToShelf().getCode();
-            } else if (history.getFromShelf() != null) {
-                this.shelf = history.getFromShelf().getCode();
-            } else {
-                this.shelf = "-";
-            }
-            this.performer = history.getCreatedBy();
+    private static String translateOperationType(OperationType type) {
+        if (type == null) {
+            return "Неизвестно";
         }
-
-        private String translateOperationType(OperationType type) {
-            if (type == null) {
-                return "Неизвестно";
-            }
-            return switch (type) {
-                case RECEIPT -> "Поступление";
-                case SALE -> "Реализация";
-                case MOVEMENT -> "Перемещение";
-                case WRITE_OFF -> "Списание";
-                default -> "Другое";
-            };
-        }
-
-        // Геттеры для PropertyValueFactory
-        public String getDateTime() { return dateTime; }
-        public String getOperationType() { return operationType; }
-        public String getDocumentNumber() { return documentNumber; }
-        public BigDecimal getQuantityChange() { return quantityChange; }
-        public BigDecimal getBalance() { return balance; }
-        public String getShelf() { return shelf; }
-        public String getPerformer() { return performer; }
+        return switch (type) {
+            case RECEIPT -> "Поступление";
+            case SALE -> "Реализация";
+            case MOVEMENT -> "Перемещение";
+            case WRITE_OFF -> "Списание";
+            default -> "Другое";
+        };
     }
 }
 
@@ -1,15 +1,22 @@
 package com.store.inventory.controller;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.DocumentRow;
+import com.store.inventory.dto.LowStockAlert;
+import com.store.inventory.dto.NomenclatureRow;
+import com.store.inventory.dto.StockRow;
+import com.store.inventory.dto.WarehouseRow;
 import com.store.inventory.repository.*;
 import com.store.inventory.service.*;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -27,6 +34,9 @@ public class MainWindowController {
 
     private static final Logger logger = LoggerFactory.getLogger(MainWindowController.class);
 
+    /** Количество документов, загружаемых в таблицу за один раз */
+    private static final int DOCUMENT_PAGE_SIZE = 200;
+
     // DAO
     private final ManufacturerDao manufacturerDao = new ManufacturerDao();
     private final NomenclatureDao nomenclatureDao = new NomenclatureDao();
@@ -37,22 +47,23 @@ public class MainWindowController {
 
     // Services
     private final ReportService reportService = new ReportService();
+    private final LowStockWatcher lowStockWatcher = LowStockWatcher.getInstance();
 
     // FXML элементы - Вкладка "Остатки"
     @FXML
-    private TableView<StockReportItem> stockTable;
+    private TableView<StockRow> stockTable;
     @FXML
-    private TableColumn<StockReportItem, String> stockArticleCol;
+    private TableColumn<StockRow, String> stockArticleCol;
     @FXML
-    private TableColumn<StockReportItem, String> stockNameCol;
+    private TableColumn<StockRow, String> stockNameCol;
     @FXML
-    private TableColumn<StockReportItem, String> stockManufacturerCol;
+    private TableColumn<StockRow, String> stockManufacturerCol;
     @FXML
-    private TableColumn<StockReportItem, String> stockWarehouseCol;
+    private TableColumn<StockRow, String> stockWarehouseCol;
     @FXML
-    private TableColumn<StockReportItem, BigDecimal> stockQuantityCol;
+    private TableColumn<StockRow, BigDecimal> stockQuantityCol;
     @FXML
-    private TableColumn<StockReportItem, String> stockUnitCol;
+    private TableColumn<StockRow, String> stockUnitCol;
     
     // Фильтры для остатков
     @FXML
@@ -63,65 +74,87 @@ public class MainWindowController {
     private TextField filterNameField;
     
     // Данные для фильтрации
-    private ObservableList<StockReportItem> allStockData = FXCollections.observableArrayList();
+    private ObservableList<StockRow> allStockData = FXCollections.observableArrayList();
 
     // FXML элементы - Вкладка "Номенклатура"
     @FXML
-    private TableView<Nomenclature> nomenclatureTable;
+    private TableView<NomenclatureRow> nomenclatureTable;
     @FXML
-    private TableColumn<Nomenclature, String> nomArticleCol;
+    private TableColumn<NomenclatureRow, String> nomArticleCol;
     @FXML
-    private TableColumn<Nomenclature, String> nomNameCol;
+    private TableColumn<NomenclatureRow, String> nomNameCol;
     @FXML
-    private TableColumn<Nomenclature, String> nomManufacturerCol;
+    private TableColumn<NomenclatureRow, String> nomManufacturerCol;
     @FXML
-    private TableColumn<Nomenclature, String> nomUnitCol;
+    private TableColumn<NomenclatureRow, String> nomUnitCol;
 
     // FXML элементы - Вкладка "Документы"
     @FXML
-    private TableView<Document> documentTable;
+    private TableView<DocumentRow> documentTable;
+    @FXML
+    private TableColumn<DocumentRow, String> docNumberCol;
     @FXML
-    private TableColumn<Document, String> docNumberCol;
+    private TableColumn<DocumentRow, String> docTypeCol;
     @FXML
-    private TableColumn<Document, String> docTypeCol;
+    private TableColumn<DocumentRow, String> docDateCol;
     @FXML
-    private TableColumn<Document, String> docDateCol;
+    private TableColumn<DocumentRow, String> docStatusCol;
     @FXML
-    private TableColumn<Document, String> docStatusCol;
+    private TableColumn<DocumentRow, BigDecimal> docAmountCol;
     @FXML
-    private TableColumn<Document, BigDecimal> docAmountCol;
+    private Button loadMoreDocumentsButton;
 
     // FXML элементы - Вкладка "Склады"
     @FXML
-    private TableView<Warehouse> warehouseTable;
+    private TableView<WarehouseRow> warehouseTable;
     @FXML
-    private TableColumn<Warehouse, String> warehouseNameCol;
+    private TableColumn<WarehouseRow, String> warehouseNameCol;
     @FXML
-    private TableColumn<Warehouse, String> warehouseAddressCol;
+    private TableColumn<WarehouseRow, String> warehouseAddressCol;
     @FXML
-    private TableColumn<Warehouse, Boolean> warehouseActiveCol;
+    private TableColumn<WarehouseRow, Boolean> warehouseActiveCol;
 
     @FXML
     private Label statusLabel;
+    @FXML
+    private Label lowStockLabel;
 
     /**
      * Инициализация контроллера
+     *
+     * <p>Настраивает таблицы и фильтры без обращения к базе данных: окно загружается
+     * в фоновом потоке параллельно с инициализацией базы. Данные загружает
+     * {@link #loadInitialData()}.</p>
      */
     @FXML
     public void initialize() {
         logger.info("Инициализация главного окна...");
 
+        initializeStockTable();
+        initializeNomenclatureTable();
+        initializeDocumentTable();
+        initializeWarehouseTable();
+        initializeStockFilters();
+
+        logger.info("Главное окно инициализировано");
+    }
+
+    /**
+     * Загрузка данных главного окна после инициализации базы данных
+     */
+    public void loadInitialData() {
         try {
-            initializeStockTable();
-            initializeNomenclatureTable();
-            initializeDocumentTable();
-            initializeWarehouseTable();
-            initializeStockFilters();
+            // Загружаем склады для фильтра
+            List<Warehouse> warehouses = warehouseDao.findAllActive();
+            filterWarehouseCombo.setItems(FXCollections.observableArrayList(warehouses));
 
             loadAllData();
 
             statusLabel.setText("Готово");
-            logger.info("Главное окно инициализировано");
+
+            // Уведомления приходят из потока, зафиксировавшего проведение
+            lowStockWatcher.addListener(alert -> Platform.runLater(() -> showLowStockAlert(alert)));
+            updateLowStockLabel();
 
         } catch (Exception e) {
             logger.error("Ошибка при инициализации главного окна", e);
@@ -133,10 +166,6 @@ public class MainWindowController {
      * Инициализация фильтров остатков
      */
     private void initializeStockFilters() {
-        // Загружаем склады для фильтра
-        List<Warehouse> warehouses = warehouseDao.findAllActive();
-        filterWarehouseCombo.setItems(FXCollections.observableArrayList(warehouses));
-        
         filterWarehouseCombo.setCellFactory(lv -> new ListCell<>() {
             @Override
             protected void updateItem(Warehouse item, boolean empty) {
@@ -158,52 +187,51 @@ public class MainWindowController {
      * Инициализация таблицы остатков
      */
     private void initializeStockTable() {
-        stockArticleCol.setCellValueFactory(new PropertyValueFactory<>("article"));
-        stockNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        stockManufacturerCol.setCellValueFactory(new PropertyValueFactory<>("manufacturer"));
-        stockWarehouseCol.setCellValueFactory(new PropertyValueFactory<>("warehouse"));
-        stockQuantityCol.setCellValueFactory(new PropertyValueFactory<>("quantity"));
-        stockUnitCol.setCellValueFactory(new PropertyValueFactory<>("unit"));
+        stockArticleCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().article()));
+        stockNameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().name()));
+        stockManufacturerCol.setCellValueFactory(cellData -> {
+            String manufacturer = cellData.getValue().manufacturer();
+            return new SimpleStringProperty(manufacturer != null ? manufacturer : "");
+        });
+        stockWarehouseCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().warehouse()));
+        stockQuantityCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().quantity()));
+        stockUnitCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().unit()));
     }
 
     /**
      * Инициализация таблицы номенклатуры
      */
     private void initializeNomenclatureTable() {
-        nomArticleCol.setCellValueFactory(new PropertyValueFactory<>("article"));
-        nomNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        nomArticleCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().article()));
+        nomNameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().name()));
         nomManufacturerCol.setCellValueFactory(cellData -> {
-            Nomenclature nom = cellData.getValue();
-            String manufacturerName = nom.getManufacturer() != null ? nom.getManufacturer().getName() : "";
-            return new javafx.beans.property.SimpleStringProperty(manufacturerName);
+            String manufacturer = cellData.getValue().manufacturer();
+            return new SimpleStringProperty(manufacturer != null ? manufacturer : "");
         });
-        nomUnitCol.setCellValueFactory(new PropertyValueFactory<>("unit"));
+        nomUnitCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().unit()));
     }
 
     /**
      * Инициализация таблицы документов
      */
     private void initializeDocumentTable() {
-        docNumberCol.setCellValueFactory(new PropertyValueFactory<>("documentNumber"));
-        docTypeCol.setCellValueFactory(cellData -> {
-            String type = cellData.getValue().getDocumentType().getDisplayName();
-            return new javafx.beans.property.SimpleStringProperty(type);
-        });
-        docDateCol.setCellValueFactory(new PropertyValueFactory<>("documentDate"));
-        docStatusCol.setCellValueFactory(cellData -> {
-            String status = cellData.getValue().getStatus().getDisplayName();
-            return new javafx.beans.property.SimpleStringProperty(status);
-        });
-        docAmountCol.setCellValueFactory(new PropertyValueFactory<>("totalAmount"));
+        docNumberCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().documentNumber()));
+        docTypeCol.setCellValueFactory(cellData ->
+                new SimpleStringProperty(cellData.getValue().documentType().getDisplayName()));
+        docDateCol.setCellValueFactory(cellData ->
+                new SimpleStringProperty(String.valueOf(cellData.getValue().documentDate())));
+        docStatusCol.setCellValueFactory(cellData ->
+                new SimpleStringProperty(cellData.getValue().status().getDisplayName()));
+        docAmountCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().totalAmount()));
     }
 
     /**
      * Инициализация таблицы складов
      */
     private void initializeWarehouseTable() {
-        warehouseNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        warehouseAddressCol.setCellValueFactory(new PropertyValueFactory<>("address"));
-        warehouseActiveCol.setCellValueFactory(new PropertyValueFactory<>("isActive"));
+        warehouseNameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().name()));
+        warehouseAddressCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().address()));
+        warehouseActiveCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().active()));
     }
 
     /**
@@ -222,26 +250,7 @@ public class MainWindowController {
     @FXML
     public void loadStockData() {
         try {
-            List<Object[]> stockReport = reportService.getStockReportByWarehouse();
-            allStockData.clear();
-
-            for (Object[] row : stockReport) {
-                Nomenclature nom = (Nomenclature) row[0];
-                Warehouse warehouse = (Warehouse) row[1];
-                BigDecimal qty = (BigDecimal) row[2];
-                
-                String manufacturerName = nom.getManufacturer() != null ? nom.getManufacturer().getName() : "";
-                String warehouseName = warehouse != null ? warehouse.getName() : "";
-                
-                allStockData.add(new StockReportItem(
-                        nom.getArticle(),
-                        nom.getName(),
-                        manufacturerName,
-                        warehouseName,
-                        qty,
-                        nom.getUnit()
-                ));
-            }
+            allStockData.setAll(reportService.getStockRows());
 
             applyStockFilter();
             logger.info("Загружено остатков: {}", allStockData.size());
@@ -267,26 +276,26 @@ public class MainWindowController {
                 filterNameField.getText().toLowerCase().trim() : "";
         Warehouse warehouseFilter = filterWarehouseCombo != null ? filterWarehouseCombo.getValue() : null;
         
-        ObservableList<StockReportItem> filteredData = FXCollections.observableArrayList();
+        ObservableList<StockRow> filteredData = FXCollections.observableArrayList();
         
-        for (StockReportItem stock : allStockData) {
+        for (StockRow stock : allStockData) {
             boolean matches = true;
             
             // Фильтр по артикулу
             if (!articleFilter.isEmpty() && 
-                (stock.getArticle() == null || !stock.getArticle().toLowerCase().contains(articleFilter))) {
+                (stock.article() == null || !stock.article().toLowerCase().contains(articleFilter))) {
                 matches = false;
             }
             
             // Фильтр по названию
             if (!nameFilter.isEmpty() && 
-                (stock.getName() == null || !stock.getName().toLowerCase().contains(nameFilter))) {
+                (stock.name() == null || !stock.name().toLowerCase().contains(nameFilter))) {
                 matches = false;
             }
             
             // Фильтр по складу
             if (warehouseFilter != null && 
-                (stock.getWarehouse() == null || !stock.getWarehouse().equals(warehouseFilter.getName()))) {
+                (stock.warehouse() == null || !stock.warehouse().equals(warehouseFilter.getName()))) {
                 matches = false;
             }
             
@@ -317,9 +326,8 @@ public class MainWindowController {
     @FXML
     public void loadNomenclatureData() {
         try {
-            List<Nomenclature> nomenclatures = nomenclatureDao.findAll();
-            ObservableList<Nomenclature> nomenclatureList = FXCollections.observableArrayList(nomenclatures);
-            nomenclatureTable.setItems(nomenclatureList);
+            List<NomenclatureRow> nomenclatures = nomenclatureDao.findRows();
+            nomenclatureTable.setItems(FXCollections.observableArrayList(nomenclatures));
             logger.info("Загружено номенклатуры: {}", nomenclatures.size());
 
         } catch (Exception e) {
@@ -334,9 +342,9 @@ public class MainWindowController {
     @FXML
     public void loadDocumentData() {
         try {
-            List<Document> documents = documentDao.findAll();
-            ObservableList<Document> documentList = FXCollections.observableArrayList(documents);
-            documentTable.setItems(documentList);
+            List<DocumentRow> documents = documentDao.findRowPageNewestFirst(null, DOCUMENT_PAGE_SIZE);
+            documentTable.setItems(FXCollections.observableArrayList(documents));
+            loadMoreDocumentsButton.setDisable(documents.size() < DOCUMENT_PAGE_SIZE);
             logger.info("Загружено документов: {}", documents.size());
 
         } catch (Exception e) {
@@ -345,15 +353,33 @@ public class MainWindowController {
         }
     }
 
+    /**
+     * Догрузка следующей страницы документов
+     */
+    @FXML
+    public void handleLoadMoreDocuments() {
+        try {
+            ObservableList<DocumentRow> loaded = documentTable.getItems();
+            DocumentRow last = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+            List<DocumentRow> page = documentDao.findRowPageNewestFirst(last, DOCUMENT_PAGE_SIZE);
+            loaded.addAll(page);
+            loadMoreDocumentsButton.setDisable(page.size() < DOCUMENT_PAGE_SIZE);
+            logger.info("Догружено документов: {}, всего в таблице: {}", page.size(), loaded.size());
+
+        } catch (Exception e) {
+            logger.error("Ошибка при догрузке документов", e);
+            showError("Ошибка загрузки", e.getMessage());
+        }
+    }
+
     /**
      * Загрузка складов
      */
     @FXML
     public void loadWarehouseData() {
         try {
-            List<Warehouse> warehouses = warehouseDao.findAll();
-            ObservableList<Warehouse> warehouseList = FXCollections.observableArrayList(warehouses);
-            warehouseTable.setItems(warehouseList);
+            List<WarehouseRow> warehouses = warehouseDao.findRows();
+            warehouseTable.setItems(FXCollections.observableArrayList(warehouses));
             logger.info("Загружено складов: {}", warehouses.size());
 
         } catch (Exception e) {
@@ -362,6 +388,38 @@ public class MainWindowController {
         }
     }
 
+    /**
+     * Показывает уведомление о пересечении минимального уровня запаса в строке состояния
+     */
+    private void showLowStockAlert(LowStockAlert alert) {
+        statusLabel.setText(alert.belowMinimum()
+                ? String.format("Запас ниже минимума: %s «%s» — остаток %s при минимуме %d",
+                        alert.article(), alert.name(), alert.available().stripTrailingZeros().toPlainString(),
+                        alert.minStockLevel())
+                : String.format("Запас восстановлен: %s «%s» — остаток %s",
+                        alert.article(), alert.name(), alert.available().stripTrailingZeros().toPlainString()));
+        updateLowStockLabel();
+    }
+
+    /**
+     * Обновляет счётчик номенклатуры с низким запасом в строке состояния
+     */
+    private void updateLowStockLabel() {
+        if (!lowStockWatcher.isStarted()) {
+            lowStockLabel.setText("");
+            return;
+        }
+        int count = lowStockWatcher.getLowStockCount();
+        lowStockLabel.setText("Ниже минимума: " + count);
+        if (count > 0) {
+            if (!lowStockLabel.getStyleClass().contains("low-stock")) {
+                lowStockLabel.getStyleClass().add("low-stock");
+            }
+        } else {
+            lowStockLabel.getStyleClass().remove("low-stock");
+        }
+    }
+
     /**
      * Обработчик кнопки "Обновить"
      */
@@ -426,20 +484,27 @@ public class MainWindowController {
      */
     @FXML
     public void handleEditNomenclature() {
-        Nomenclature selected = nomenclatureTable.getSelectionModel().getSelectedItem();
+        NomenclatureRow selected = nomenclatureTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите номенклатуру", "Пожалуйста, выберите номенклатуру для редактирования");
             return;
         }
 
         try {
+            Nomenclature nomenclature = nomenclatureDao.findById(selected.id()).orElse(null);
+            if (nomenclature == null) {
+                showWarning("Номенклатура не найдена", "Номенклатура была удалена, список будет обновлён");
+                loadNomenclatureData();
+                return;
+            }
+
             javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(
                 getClass().getResource("/view/NomenclatureDialog.fxml")
             );
             javafx.scene.Parent root = loader.load();
 
             NomenclatureDialogController controller = loader.getController();
-            controller.setNomenclature(selected);
+            controller.setNomenclature(nomenclature);
 
             javafx.stage.Stage stage = new javafx.stage.Stage();
             stage.setTitle("Редактирование номенклатуры");
@@ -463,7 +528,7 @@ public class MainWindowController {
      */
     @FXML
     public void handleDeleteNomenclature() {
-        Nomenclature selected = nomenclatureTable.getSelectionModel().getSelectedItem();
+        NomenclatureRow selected = nomenclatureTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите номенклатуру", "Пожалуйста, выберите номенклатуру для удаления");
             return;
@@ -472,11 +537,13 @@ public class MainWindowController {
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Подтверждение удаления");
         confirm.setHeaderText("Удалить номенклатуру?");
-        confirm.setContentText("Вы уверены, что хотите удалить \"" + selected.getName() + "\"?");
+        confirm.setContentText("Вы уверены, что хотите удалить \"" + selected.name() + "\"?");
 
         if (confirm.showAndWait().orElse(null) == javafx.scene.control.ButtonType.OK) {
             try {
-                nomenclatureDao.delete(selected);
+                nomenclatureDao.deleteById(selected.id());
+                lowStockWatcher.nomenclatureDeleted(selected.id());
+                updateLowStockLabel();
                 loadNomenclatureData();
                 statusLabel.setText("Номенклатура удалена");
             } catch (Exception e) {
@@ -511,13 +578,19 @@ public class MainWindowController {
      */
     @FXML
     public void handleEditWarehouse() {
-        Warehouse selected = warehouseTable.getSelectionModel().getSelectedItem();
+        WarehouseRow selected = warehouseTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите склад", "Пожалуйста, выберите склад для редактирования");
             return;
         }
+        Warehouse warehouse = warehouseDao.findById(selected.id()).orElse(null);
+        if (warehouse == null) {
+            showWarning("Склад не найден", "Склад был удалён, список будет обновлён");
+            loadWarehouseData();
+            return;
+        }
         openDialogWithData("/view/WarehouseDialog.fxml", "Редактирование склада", 
-                          selected, this::loadWarehouseData, "Склад обновлён");
+                          warehouse, this::loadWarehouseData, "Склад обновлён");
     }
 
     /**
@@ -525,15 +598,15 @@ public class MainWindowController {
      */
     @FXML
     public void handleDeleteWarehouse() {
-        Warehouse selected = warehouseTable.getSelectionModel().getSelectedItem();
+        WarehouseRow selected = warehouseTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите склад", "Пожалуйста, выберите склад для удаления");
             return;
         }
 
-        if (confirmDelete("склад", selected.getName())) {
+        if (confirmDelete("склад", selected.name())) {
             try {
-                warehouseDao.delete(selected);
+                warehouseDao.deleteById(selected.id());
                 loadWarehouseData();
                 statusLabel.setText("Склад удалён");
             } catch (Exception e) {
@@ -614,19 +687,26 @@ public class MainWindowController {
      */
     @FXML
     public void handleOpenDocument() {
-        Document selected = documentTable.getSelectionModel().getSelectedItem();
+        DocumentRow selected = documentTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите документ", "Пожалуйста, выберите документ для открытия");
             return;
         }
 
         try {
+            Document document = documentDao.findById(selected.id()).orElse(null);
+            if (document == null) {
+                showWarning("Документ не найден", "Документ был удалён, список будет обновлён");
+                loadDocumentData();
+                return;
+            }
+
             FXMLLoader loader = new FXMLLoader();
             loader.setLocation(getClass().getResource("/view/DocumentViewDialog.fxml"));
             VBox dialogContent = loader.load();
 
             DocumentViewDialogController controller = loader.getController();
-            controller.setDocument(selected);
+            controller.setDocument(document);
 
             Stage dialogStage = new Stage();
             dialogStage.setTitle("Просмотр документа");
@@ -651,20 +731,20 @@ public class MainWindowController {
      */
     @FXML
     public void handleDeleteDocument() {
-        Document selected = documentTable.getSelectionModel().getSelectedItem();
+        DocumentRow selected = documentTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showWarning("Выберите документ", "Пожалуйста, выберите документ для удаления");
             return;
         }
 
-        if (selected.getStatus() == DocumentStatus.CONFIRMED) {
+        if (selected.status() == DocumentStatus.CONFIRMED) {
             showWarning("Невозможно удалить", "Нельзя удалить проведенный документ. Сначала отмените проведение.");
             return;
         }
 
-        if (confirmDelete("документ", selected.getDocumentNumber())) {
+        if (confirmDelete("документ", selected.documentNumber())) {
             try {
-                documentDao.delete(selected);
+                documentDao.deleteById(selected.id());
                 loadDocumentData();
                 statusLabel.setText("Документ удалён");
             } catch (Exception e) {
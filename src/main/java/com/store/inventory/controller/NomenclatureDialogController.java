@@ -4,6 +4,7 @@ import com.store.inventory.domain.Manufacturer;
 import com.store.inventory.domain.Nomenclature;
 import com.store.inventory.repository.ManufacturerDao;
 import com.store.inventory.repository.NomenclatureDao;
+import com.store.inventory.service.LowStockWatcher;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -33,6 +34,7 @@ public class NomenclatureDialogController {
 
     private final ManufacturerDao manufacturerDao = new ManufacturerDao();
     private final NomenclatureDao nomenclatureDao = new NomenclatureDao();
+    private final LowStockWatcher lowStockWatcher = LowStockWatcher.getInstance();
 
     private Nomenclature nomenclature;
     private boolean saved = false;
@@ -124,7 +126,7 @@ public class NomenclatureDialogController {
             nomenclature.setMinStockLevel(minStockSpinner.getValue());
 
             // Сохраняем в БД
-            nomenclatureDao.save(nomenclature);
+            lowStockWatcher.nomenclatureSaved(nomenclatureDao.save(nomenclature));
 
             saved = true;
             closeDialog();
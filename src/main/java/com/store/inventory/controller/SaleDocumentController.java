@@ -136,9 +136,12 @@ public class SaleDocumentController {
         Warehouse warehouse = warehouseCombo.getValue();
         
         if (nomenclature != null && warehouse != null) {
-            List<Item> availableItems = itemDao.findAvailableByNomenclatureAndWarehouse(
-                nomenclature, warehouse
-            );
+            // Партии запрашиваются, только если на складе есть остаток; просроченные не предлагаются
+            List<Item> availableItems = saleService.getAvailableQuantity(nomenclature, warehouse).signum() > 0
+                ? itemDao.findAvailableByNomenclatureAndWarehouse(nomenclature, warehouse).stream()
+                    .filter(item -> !saleService.isExpired(item))
+                    .toList()
+                : List.of();
             
             itemCombo.setItems(FXCollections.observableArrayList(availableItems));
             
@@ -173,6 +176,8 @@ public class SaleDocumentController {
             if (!availableItems.isEmpty()) {
                 itemCombo.setValue(availableItems.get(0));
                 updateAvailableQuantity();
+            } else {
+                availableQuantityLabel.setText("Доступно: 0");
             }
         } else {
             itemCombo.setItems(FXCollections.observableArrayList());
@@ -183,7 +188,7 @@ public class SaleDocumentController {
     private void updateAvailableQuantity() {
         Item item = itemCombo.getValue();
         if (item != null) {
-            availableQuantityLabel.setText(String.format("Доступно: %.2f", item.getQuantity()));
+            availableQuantityLabel.setText(String.format("Доступно: %.2f", getRemainingQuantity(item)));
             salePriceField.setText(item.getSellingPrice().toString());
         } else {
             availableQuantityLabel.setText("Доступно: 0");
@@ -202,9 +207,15 @@ public class SaleDocumentController {
             BigDecimal quantity = new BigDecimal(quantityField.getText().trim());
             BigDecimal salePrice = new BigDecimal(salePriceField.getText().trim());
 
-            // Проверка количества
-            if (quantity.compareTo(item.getQuantity()) > 0) {
-                showError("Ошибка", "Недостаточно товара на остатке. Доступно: " + item.getQuantity());
+            if (saleService.isExpired(item)) {
+                showError("Ошибка", "Срок годности партии истёк");
+                return;
+            }
+
+            // Проверка количества с учётом уже добавленных строк этой партии
+            BigDecimal available = getRemainingQuantity(item);
+            if (quantity.compareTo(available) > 0) {
+                showError("Ошибка", "Недостаточно товара на остатке. Доступно: " + available);
                 return;
             }
 
@@ -311,6 +322,17 @@ public class SaleDocumentController {
         return true;
     }
 
+    /**
+     * Остаток партии за вычетом строк документа, уже добавленных по ней
+     */
+    private BigDecimal getRemainingQuantity(Item item) {
+        BigDecimal added = saleLines.stream()
+            .filter(line -> line.getItem().getId().equals(item.getId()))
+            .map(SaleLine::getQuantity)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return saleService.getAvailableQuantity(item).subtract(added);
+    }
+
     private void updateTotal() {
         BigDecimal total = saleLines.stream()
             .map(SaleLine::getTotal)
@@ -0,0 +1,41 @@
+package com.store.inventory.domain;
+
+/**
+ * Перечисление правил распределения реализации по партиям
+ *
+ * <p>Определяет, в каком порядке количество реализации списывается
+ * с партий номенклатуры на складе.</p>
+ */
+public enum AllocationPolicy {
+    /** FEFO - сначала партии с ближайшим сроком годности, партии без срока последними */
+    FEFO("По сроку годности"),
+
+    /** FIFO - сначала партии, поступившие раньше */
+    FIFO("По дате поступления");
+
+    /** Отображаемое наименование правила */
+    private final String displayName;
+
+    /**
+     * Создает правило распределения с указанным отображаемым наименованием
+     *
+     * @param displayName отображаемое наименование
+     */
+    AllocationPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Возвращает отображаемое наименование правила
+     *
+     * @return отображаемое наименование
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
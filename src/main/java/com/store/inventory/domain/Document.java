@@ -2,6 +2,7 @@ package com.store.inventory.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,18 +18,23 @@ import java.util.List;
  * перемещение и списание. Каждый документ содержит строки (позиции) и имеет статус.</p>
  */
 @Entity
-@Table(name = "document")
+@Table(name = "document", indexes = @Index(name = "idx_document_date_id", columnList = "document_date DESC, id DESC"))
+@NamedEntityGraph(name = Document.GRAPH_HEADER, attributeNodes = @NamedAttributeNode("warehouse"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"warehouse", "documentItems"})
+@ToString(exclude = {"warehouse", "documentItems", "notes"})
 @EqualsAndHashCode(of = "id")
 public class Document {
 
+    /** План загрузки «заголовок документа»: склад */
+    public static final String GRAPH_HEADER = "Document.header";
+
     /** Уникальный идентификатор документа */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_seq")
+    @SequenceGenerator(name = "document_seq", sequenceName = "document_seq", allocationSize = 50)
     private Long id;
 
     /** Тип документа (поступление, реализация, перемещение, списание) */
@@ -45,7 +51,7 @@ public class Document {
     private LocalDate documentDate;
 
     /** Склад, с которым связан документ */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "warehouse_id")
     private Warehouse warehouse;
 
@@ -63,6 +69,7 @@ public class Document {
     private DocumentStatus status;
 
     /** Примечания к документу */
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
 
@@ -78,6 +85,16 @@ public class Document {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Версия документа для оптимистической блокировки: если один черновик
+     * проводят или отменяют одновременно с двух терминалов, второй получает
+     * конфликт при фиксации
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /** Строки документа (товарные позиции) */
     @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<DocumentItem> documentItems = new ArrayList<>();
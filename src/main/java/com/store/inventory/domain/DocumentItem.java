@@ -15,6 +15,11 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "document_items")
+@NamedEntityGraph(name = DocumentItem.GRAPH_LINE, attributeNodes = {
+        @NamedAttributeNode("nomenclature"),
+        @NamedAttributeNode("shelf"),
+        @NamedAttributeNode("item")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,23 +28,27 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(of = "id")
 public class DocumentItem {
 
+    /** План загрузки «строка документа»: номенклатура, полка и товарная позиция */
+    public static final String GRAPH_LINE = "DocumentItem.line";
+
     /** Уникальный идентификатор строки документа */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_items_seq")
+    @SequenceGenerator(name = "document_items_seq", sequenceName = "document_items_seq", allocationSize = 50)
     private Long id;
 
     /** Документ, к которому относится строка */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "document_id", nullable = false)
     private Document document;
 
     /** Номенклатура товара */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "nomenclature_id", nullable = false)
     private Nomenclature nomenclature;
 
     /** Ссылка на конкретную товарную позицию (может быть NULL для новых поступлений) */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private Item item;
 
@@ -56,7 +65,7 @@ public class DocumentItem {
     private BigDecimal total;
 
     /** Полка для размещения или списания товара */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shelf_id")
     private Shelf shelf;
 
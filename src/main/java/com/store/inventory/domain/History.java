@@ -14,27 +14,36 @@ import java.time.LocalDateTime;
  * перемещения между полками, а также связь с документом-основанием.</p>
  */
 @Entity
-@Table(name = "history")
+@Table(name = "history", indexes = @Index(name = "idx_history_operation_date_id", columnList = "operation_date DESC, id DESC"))
+@NamedEntityGraph(name = History.GRAPH_LIST_ROW, attributeNodes = {
+        @NamedAttributeNode("document"),
+        @NamedAttributeNode("fromShelf"),
+        @NamedAttributeNode("toShelf")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"item", "document", "fromShelf", "toShelf"})
+@ToString(exclude = {"item", "document", "fromShelf", "toShelf", "notes"})
 @EqualsAndHashCode(of = "id")
 public class History {
 
+    /** План загрузки «строка журнала операций»: документ и полки перемещения */
+    public static final String GRAPH_LIST_ROW = "History.listRow";
+
     /** Уникальный идентификатор записи истории */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "history_seq")
+    @SequenceGenerator(name = "history_seq", sequenceName = "history_seq", allocationSize = 50)
     private Long id;
 
     /** Товарная позиция, с которой произведена операция */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id", nullable = false)
     private Item item;
 
     /** Документ-основание операции (может быть NULL для ручных операций) */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "document_id")
     private Document document;
 
@@ -52,12 +61,12 @@ public class History {
     private BigDecimal price;
 
     /** Полка, откуда перемещен товар (для операций перемещения) */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "from_shelf_id")
     private Shelf fromShelf;
 
     /** Полка, куда перемещен товар (для операций перемещения и поступления) */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "to_shelf_id")
     private Shelf toShelf;
 
@@ -76,6 +85,7 @@ public class History {
     private LocalDateTime operationDate;
 
     /** Примечания к операции */
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
 
@@ -2,6 +2,7 @@ package com.store.inventory.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -18,7 +19,18 @@ import java.util.List;
  * 
  */
 @Entity
-@Table(name = "items")
+@Table(name = "items", indexes = {
+        @Index(name = "idx_items_status_id", columnList = "status, id"),
+        @Index(name = "idx_items_nomenclature_status", columnList = "nomenclature_id, status")
+})
+@NamedEntityGraph(name = Item.GRAPH_STOCK_ROW, attributeNodes = {
+        @NamedAttributeNode("nomenclature"),
+        @NamedAttributeNode(value = "currentShelf", subgraph = "shelf")
+}, subgraphs = @NamedSubgraph(name = "shelf", attributeNodes = @NamedAttributeNode("warehouse")))
+@NamedEntityGraph(name = Item.GRAPH_SALE_LINE, attributeNodes = {
+        @NamedAttributeNode("nomenclature"),
+        @NamedAttributeNode("currentShelf")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,13 +39,20 @@ import java.util.List;
 @EqualsAndHashCode(of = "id")
 public class Item {
 
+    /** План загрузки «строка остатков»: номенклатура и полка со складом */
+    public static final String GRAPH_STOCK_ROW = "Item.stockRow";
+
+    /** План загрузки «строка продажи»: номенклатура и полка без склада */
+    public static final String GRAPH_SALE_LINE = "Item.saleLine";
+
     /** Уникальный идентификатор товарной позиции */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
 
     /** Номенклатура товара */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "nomenclature_id", nullable = false)
     private Nomenclature nomenclature;
 
@@ -58,7 +77,7 @@ public class Item {
     private BigDecimal sellingPrice;
 
     /** Текущее местоположение товара (полка на складе) */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "current_shelf_id")
     private Shelf currentShelf;
 
@@ -83,6 +102,18 @@ public class Item {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Версия записи для оптимистической блокировки
+     * 
+     * <p>Увеличивается при каждом обновлении; UPDATE выполняется с условием
+     * на прочитанную версию, поэтому параллельное изменение той же записи
+     * другим терминалом завершается OptimisticLockException, а не потерей обновления.</p>
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /** История операций с данной товарной позицией */
     @OneToMany(mappedBy = "item", cascade = CascadeType.ALL)
     private List<History> historyRecords = new ArrayList<>();
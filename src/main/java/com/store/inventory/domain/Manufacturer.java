@@ -2,6 +2,8 @@ package com.store.inventory.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,18 +18,21 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "manufacturer")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = "nomenclatures")
+@ToString(exclude = {"nomenclatures", "contactInfo"})
 @EqualsAndHashCode(of = "id")
 public class Manufacturer {
 
     /** Уникальный идентификатор производителя */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "manufacturer_seq")
+    @SequenceGenerator(name = "manufacturer_seq", sequenceName = "manufacturer_seq", allocationSize = 50)
     private Long id;
 
     /** Наименование производителя (уникальное) */
@@ -39,6 +44,7 @@ public class Manufacturer {
     private String country;
 
     /** Контактная информация (телефон, email, адрес) */
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "contact_info", columnDefinition = "TEXT")
     private String contactInfo;
 
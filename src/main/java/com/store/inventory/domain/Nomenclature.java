@@ -2,6 +2,8 @@ package com.store.inventory.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,18 +18,25 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "nomenclature")
+@NamedEntityGraph(name = Nomenclature.GRAPH_WITH_MANUFACTURER, attributeNodes = @NamedAttributeNode("manufacturer"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"items", "manufacturer"})
+@ToString(exclude = {"items", "manufacturer", "description"})
 @EqualsAndHashCode(of = "id")
 public class Nomenclature {
 
+    /** План загрузки «номенклатура с производителем»: таблица номенклатуры и списки выбора */
+    public static final String GRAPH_WITH_MANUFACTURER = "Nomenclature.withManufacturer";
+
     /** Уникальный идентификатор номенклатуры */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "nomenclature_seq")
+    @SequenceGenerator(name = "nomenclature_seq", sequenceName = "nomenclature_seq", allocationSize = 50)
     private Long id;
 
     /** Артикул товара (уникальный) */
@@ -39,6 +48,7 @@ public class Nomenclature {
     private String name;
 
     /** Подробное описание товара */
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
@@ -47,7 +57,7 @@ public class Nomenclature {
     private String unit;
 
     /** Производитель товара */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "manufacturer_id")
     private Manufacturer manufacturer;
 
@@ -2,6 +2,8 @@ package com.store.inventory.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,9 +18,12 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "shelf", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"warehouse_id", "code"})
 })
+@NamedEntityGraph(name = Shelf.GRAPH_WITH_WAREHOUSE, attributeNodes = @NamedAttributeNode("warehouse"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,13 +32,17 @@ import java.util.List;
 @EqualsAndHashCode(of = "id")
 public class Shelf {
 
+    /** План загрузки «полка со складом»: списки полок с названием склада */
+    public static final String GRAPH_WITH_WAREHOUSE = "Shelf.withWarehouse";
+
     /** Уникальный идентификатор полки */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shelf_seq")
+    @SequenceGenerator(name = "shelf_seq", sequenceName = "shelf_seq", allocationSize = 50)
     private Long id;
 
     /** Склад, к которому относится полка */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "warehouse_id", nullable = false)
     private Warehouse warehouse;
 
@@ -0,0 +1,51 @@
+package com.store.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+
+/**
+ * Сущность "Остаток на полке"
+ *
+ * <p>Материализованный остаток номенклатуры на полке склада: сумма количества
+ * товарных позиций в статусе IN_STOCK. Строки изменяются не через сущность,
+ * а {@link com.store.inventory.repository.StockBalanceDao} в транзакции проведения,
+ * поэтому сущность доступна только для чтения и служит для запросов отчётов.</p>
+ */
+@Entity
+@Immutable
+@Table(name = "stock_balance")
+@Getter
+@NoArgsConstructor
+@ToString(exclude = {"nomenclature", "warehouse", "shelf"})
+@EqualsAndHashCode(of = "id")
+public class StockBalance {
+
+    /** Составной ключ: номенклатура, склад, полка */
+    @EmbeddedId
+    private StockBalanceId id;
+
+    /** Номенклатура */
+    @MapsId("nomenclatureId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "nomenclature_id")
+    private Nomenclature nomenclature;
+
+    /** Склад, к которому относится полка */
+    @MapsId("warehouseId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id")
+    private Warehouse warehouse;
+
+    /** Полка */
+    @MapsId("shelfId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shelf_id")
+    private Shelf shelf;
+
+    /** Количество в наличии */
+    @Column(name = "quantity", nullable = false, precision = 15, scale = 3)
+    private BigDecimal quantity;
+}
@@ -0,0 +1,31 @@
+package com.store.inventory.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Ключ строки остатков: номенклатура, склад и полка
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class StockBalanceId implements Serializable {
+
+    /** Идентификатор номенклатуры */
+    @Column(name = "nomenclature_id")
+    private Long nomenclatureId;
+
+    /** Идентификатор склада полки */
+    @Column(name = "warehouse_id")
+    private Long warehouseId;
+
+    /** Идентификатор полки */
+    @Column(name = "shelf_id")
+    private Long shelfId;
+}
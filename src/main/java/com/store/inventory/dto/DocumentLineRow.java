@@ -0,0 +1,20 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка таблицы позиций документа
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.</p>
+ *
+ * @param article артикул номенклатуры
+ * @param name название номенклатуры
+ * @param quantity количество
+ * @param unit единица измерения
+ * @param price цена за единицу
+ * @param total сумма строки
+ * @param shelf код полки или null
+ */
+public record DocumentLineRow(String article, String name, BigDecimal quantity, String unit,
+                              BigDecimal price, BigDecimal total, String shelf) {
+}
@@ -0,0 +1,25 @@
+package com.store.inventory.dto;
+
+import com.store.inventory.domain.DocumentStatus;
+import com.store.inventory.domain.DocumentType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Строка таблицы документов
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.
+ * Пара ({@link #documentDate()}, {@link #id()}) служит ключом keyset-пагинации;
+ * для просмотра документ загружается по {@link #id()}.</p>
+ *
+ * @param id идентификатор документа
+ * @param documentNumber номер документа
+ * @param documentType тип документа
+ * @param documentDate дата документа
+ * @param status статус документа
+ * @param totalAmount общая сумма документа
+ */
+public record DocumentRow(Long id, String documentNumber, DocumentType documentType,
+                          LocalDate documentDate, DocumentStatus status, BigDecimal totalAmount) {
+}
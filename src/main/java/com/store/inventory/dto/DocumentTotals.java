@@ -0,0 +1,14 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги документов за период
+ *
+ * <p>Считается одним агрегирующим запросом ({@code select new}) без загрузки документов.</p>
+ *
+ * @param documentCount количество документов
+ * @param totalAmount общая сумма документов
+ */
+public record DocumentTotals(Long documentCount, BigDecimal totalAmount) {
+}
@@ -0,0 +1,40 @@
+package com.store.inventory.dto;
+
+import com.store.inventory.domain.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Строка таблицы истории операций с товарной позицией
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.</p>
+ *
+ * @param operationDate дата и время операции
+ * @param operationType тип операции
+ * @param documentNumber номер документа или null
+ * @param quantityChange изменение количества
+ * @param fromShelf код полки-источника или null
+ * @param toShelf код полки-приёмника или null
+ * @param createdBy пользователь, выполнивший операцию
+ */
+public record HistoryRow(LocalDateTime operationDate, OperationType operationType, String documentNumber,
+                         BigDecimal quantityChange, String fromShelf, String toShelf, String createdBy) {
+
+    /**
+     * Возвращает место операции для отображения
+     *
+     * <p>Для перемещения показываются обе полки.</p>
+     *
+     * @return "источник → приёмник", одна из полок или "-"
+     */
+    public String shelfRoute() {
+        if (fromShelf != null && toShelf != null) {
+            return fromShelf + " → " + toShelf;
+        }
+        if (toShelf != null) {
+            return toShelf;
+        }
+        return fromShelf != null ? fromShelf : "-";
+    }
+}
@@ -0,0 +1,17 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Строка плана распределения реализации: количество, списываемое с одной партии
+ *
+ * @param itemId идентификатор товарной позиции (партии)
+ * @param batchNumber номер партии или null
+ * @param expiryDate срок годности партии или null
+ * @param available количество партии в наличии до списания
+ * @param quantity списываемое количество
+ */
+public record LotAllocation(Long itemId, String batchNumber, LocalDate expiryDate,
+                            BigDecimal available, BigDecimal quantity) {
+}
@@ -0,0 +1,17 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Уведомление о пересечении минимального уровня запаса
+ *
+ * @param nomenclatureId идентификатор номенклатуры
+ * @param article артикул
+ * @param name название
+ * @param available остаток на всех складах
+ * @param minStockLevel минимальный уровень запаса
+ * @param belowMinimum true — остаток опустился ниже минимума, false — восстановился
+ */
+public record LowStockAlert(Long nomenclatureId, String article, String name, BigDecimal available,
+                            Integer minStockLevel, boolean belowMinimum) {
+}
@@ -0,0 +1,18 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка отчёта о низком запасе: номенклатура с остатком ниже минимального уровня
+ *
+ * <p>Строится из минимальных уровней и журнала остатков без обращения к базе.</p>
+ *
+ * @param nomenclatureId идентификатор номенклатуры
+ * @param article артикул
+ * @param name название
+ * @param available остаток на всех складах
+ * @param minStockLevel минимальный уровень запаса
+ */
+public record LowStockRow(Long nomenclatureId, String article, String name, BigDecimal available,
+                          Integer minStockLevel) {
+}
@@ -0,0 +1,16 @@
+package com.store.inventory.dto;
+
+/**
+ * Строка таблицы номенклатуры
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.
+ * Для редактирования номенклатура загружается по {@link #id()}.</p>
+ *
+ * @param id идентификатор номенклатуры
+ * @param article артикул
+ * @param name название
+ * @param manufacturer название производителя или null
+ * @param unit единица измерения
+ */
+public record NomenclatureRow(Long id, String article, String name, String manufacturer, String unit) {
+}
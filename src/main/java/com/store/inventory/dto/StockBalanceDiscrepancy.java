@@ -0,0 +1,16 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Расхождение материализованного остатка с товарными позициями
+ *
+ * @param nomenclatureId идентификатор номенклатуры
+ * @param warehouseId идентификатор склада
+ * @param shelfId идентификатор полки
+ * @param expected остаток по товарным позициям
+ * @param recorded остаток в таблице stock_balance (0, если строки нет)
+ */
+public record StockBalanceDiscrepancy(long nomenclatureId, long warehouseId, long shelfId,
+                                      BigDecimal expected, BigDecimal recorded) {
+}
@@ -0,0 +1,19 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка таблицы остатков: номенклатура на складе
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.</p>
+ *
+ * @param article артикул номенклатуры
+ * @param name название номенклатуры
+ * @param manufacturer название производителя или null
+ * @param warehouse название склада
+ * @param quantity суммарное количество в наличии
+ * @param unit единица измерения
+ */
+public record StockRow(String article, String name, String manufacturer,
+                       String warehouse, BigDecimal quantity, String unit) {
+}
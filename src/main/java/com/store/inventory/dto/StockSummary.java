@@ -0,0 +1,15 @@
+package com.store.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Сводка по товарным позициям в наличии
+ *
+ * <p>Считается одним агрегирующим запросом ({@code select new}) без загрузки позиций.</p>
+ *
+ * @param itemCount количество товарных позиций
+ * @param totalQuantity общее количество
+ * @param totalValue общая стоимость по цене продажи
+ */
+public record StockSummary(Long itemCount, BigDecimal totalQuantity, BigDecimal totalValue) {
+}
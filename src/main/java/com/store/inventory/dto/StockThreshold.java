@@ -0,0 +1,14 @@
+package com.store.inventory.dto;
+
+/**
+ * Минимальный уровень запаса номенклатуры
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.</p>
+ *
+ * @param nomenclatureId идентификатор номенклатуры
+ * @param article артикул
+ * @param name название
+ * @param minStockLevel минимальный уровень запаса или null, если не задан
+ */
+public record StockThreshold(Long nomenclatureId, String article, String name, Integer minStockLevel) {
+}
@@ -0,0 +1,15 @@
+package com.store.inventory.dto;
+
+/**
+ * Строка таблицы складов
+ *
+ * <p>Строится запросом-проекцией ({@code select new}) без загрузки сущностей.
+ * Для редактирования склад загружается по {@link #id()}.</p>
+ *
+ * @param id идентификатор склада
+ * @param name название склада
+ * @param address адрес склада
+ * @param active признак активности
+ */
+public record WarehouseRow(Long id, String name, String address, Boolean active) {
+}
@@ -1,15 +1,22 @@
 package com.store.inventory.repository;
 
 import com.store.inventory.domain.Document;
+import com.store.inventory.domain.DocumentItem;
 import com.store.inventory.domain.DocumentStatus;
 import com.store.inventory.domain.DocumentType;
 import com.store.inventory.domain.Warehouse;
+import com.store.inventory.dto.DocumentRow;
+import com.store.inventory.dto.DocumentTotals;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import jakarta.persistence.LockModeType;
+
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * DAO для работы с документами движения товаров
@@ -24,7 +31,53 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * Создает экземпляр DAO для работы с документами
      */
     public DocumentDao() {
-        super(Document.class);
+        super(Document.class, Document.GRAPH_HEADER);
+    }
+
+    /**
+     * Добавляет строку в черновик документа и пересчитывает сумму документа
+     * 
+     * <p>Строка сохраняется, а сумма документа пересчитывается запросом по его строкам
+     * в одной транзакции; документ на это время блокируется, поэтому строки,
+     * добавляемые одновременно с двух терминалов, не теряются в сумме. Новые сумма
+     * и версия документа переносятся в переданный экземпляр, и следующее изменение
+     * того же черновика не завершается конфликтом версий.</p>
+     * 
+     * @param document черновик документа
+     * @param line новая строка документа
+     * @return сохранённая строка (тот же экземпляр с идентификатором)
+     * @throws IllegalStateException если документ удалён или уже не черновик
+     * @throws RuntimeException если произошла ошибка при сохранении
+     */
+    public DocumentItem addLine(Document document, DocumentItem line) {
+        try {
+            return executeInTransaction(session -> {
+                Document current = session.find(Document.class, document.getId(), LockModeType.PESSIMISTIC_WRITE);
+                if (current == null) {
+                    throw new IllegalStateException("Документ " + document.getDocumentNumber() + " удалён");
+                }
+                if (current.getStatus() != DocumentStatus.DRAFT) {
+                    throw new IllegalStateException("Можно добавлять строки только в черновик документа");
+                }
+                session.persist(line);
+                session.flush();
+                BigDecimal total = session.createQuery(
+                                "SELECT COALESCE(SUM(i.total), 0) FROM DocumentItem i WHERE i.document.id = :documentId",
+                                BigDecimal.class)
+                        .setParameter("documentId", current.getId())
+                        .getSingleResult();
+                current.setTotalAmount(total);
+                session.flush();
+                document.setTotalAmount(total);
+                document.setVersion(current.getVersion());
+                return line;
+            });
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Ошибка при добавлении строки в документ: {}", document.getDocumentNumber(), e);
+            throw new RuntimeException("Ошибка при добавлении строки: " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -35,11 +88,11 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<Document> findByDocumentNumber(String documentNumber) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE documentNumber = :documentNumber";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("documentNumber", documentNumber);
-            return query.uniqueResultOptional();
+            return withFetchGraph(session, query, Document.GRAPH_HEADER).uniqueResultOptional();
         } catch (Exception e) {
             logger.error("Ошибка при поиске документа по номеру: {}", documentNumber, e);
             throw new RuntimeException("Ошибка при поиске документа: " + e.getMessage(), e);
@@ -56,11 +109,11 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Document> findByType(DocumentType documentType) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE documentType = :type ORDER BY documentDate DESC, documentNumber DESC";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("type", documentType);
-            return query.list();
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске документов по типу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -77,11 +130,11 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Document> findByStatus(DocumentStatus status) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE status = :status ORDER BY documentDate DESC";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("status", status);
-            return query.list();
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске документов по статусу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -100,18 +153,84 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Document> findByDateRange(LocalDate startDate, LocalDate endDate) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE documentDate BETWEEN :startDate AND :endDate ORDER BY documentDate DESC";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("startDate", startDate);
             query.setParameter("endDate", endDate);
-            return query.list();
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске документов за период", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Возвращает страницу документов, начиная с самых новых (keyset-пагинация)
+     * 
+     * <p>Документы упорядочены по дате и идентификатору в обратном порядке;
+     * следующая страница начинается сразу после документа {@code after}.
+     * Отдельное условие {@code documentDate <= :afterDate} позволяет H2 начать
+     * чтение индекса (document_date DESC, id DESC) прямо с ключа и остановиться
+     * после limit строк, поэтому стоимость не зависит от глубины страницы.</p>
+     * 
+     * @param after последний документ предыдущей страницы или null для первой
+     * @param limit максимальное количество документов на странице
+     * @return документы страницы; страница короче limit — последняя
+     * @throws IllegalArgumentException если limit не положителен
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<Document> findPageNewestFirst(Document after, int limit) {
+        requirePositiveLimit(limit);
+        try (Session session = getReadOnlySession()) {
+            String hql = after == null
+                    ? "FROM Document d ORDER BY d.documentDate DESC, d.id DESC"
+                    : """
+                      FROM Document d
+                      WHERE d.documentDate <= :afterDate
+                      AND (d.documentDate < :afterDate OR d.id < :afterId)
+                      ORDER BY d.documentDate DESC, d.id DESC
+                      """;
+            Query<Document> query = session.createQuery(hql, Document.class);
+            if (after != null) {
+                query.setParameter("afterDate", after.getDocumentDate());
+                query.setParameter("afterId", after.getId());
+            }
+            query.setMaxResults(limit);
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
+        } catch (Exception e) {
+            logger.error("Ошибка при получении страницы документов", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает поток документов за указанный период
+     * 
+     * <p>Включает документы с датой от startDate до endDate включительно
+     * в обратном порядке даты и идентификатора (порядок индекса, без сортировки
+     * всей выборки). Поток необходимо закрыть: вместе с ним закрывается сессия.</p>
+     * 
+     * @param startDate начальная дата периода
+     * @param endDate конечная дата периода
+     * @return поток документов за период
+     * @throws RuntimeException если произошла ошибка при открытии потока
+     */
+    public Stream<Document> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        Session session = getReadOnlySession();
+        try {
+            String hql = "FROM Document d WHERE d.documentDate BETWEEN :startDate AND :endDate ORDER BY d.documentDate DESC, d.id DESC";
+            Query<Document> query = session.createQuery(hql, Document.class);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return streamWithFetchGraph(session, query, Document.GRAPH_HEADER);
+        } catch (Exception e) {
+            session.close();
+            logger.error("Ошибка при открытии потока документов за период", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Возвращает список документов, связанных с указанным складом
      * 
@@ -122,11 +241,11 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Document> findByWarehouse(Warehouse warehouse) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE warehouse = :warehouse ORDER BY documentDate DESC";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("warehouse", warehouse);
-            return query.list();
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске документов по складу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -144,15 +263,122 @@ public class DocumentDao extends GenericDao<Document, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Document> findByTypeAndStatus(DocumentType type, DocumentStatus status) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Document WHERE documentType = :type AND status = :status ORDER BY documentDate DESC";
             Query<Document> query = session.createQuery(hql, Document.class);
             query.setParameter("type", type);
             query.setParameter("status", status);
-            return query.list();
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске документов по типу и статусу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Возвращает документы указанного типа и статуса за период
+     * 
+     * <p>Все условия выполняются в запросе; результаты сортируются
+     * по дате документа в обратном порядке.</p>
+     * 
+     * @param type тип документа
+     * @param status статус документа
+     * @param startDate начальная дата периода (включительно)
+     * @param endDate конечная дата периода (включительно)
+     * @return список документов
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<Document> findByTypeStatusAndDateRange(DocumentType type, DocumentStatus status,
+                                                       LocalDate startDate, LocalDate endDate) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                FROM Document
+                WHERE documentType = :type AND status = :status
+                AND documentDate BETWEEN :startDate AND :endDate
+                ORDER BY documentDate DESC
+                """;
+            Query<Document> query = session.createQuery(hql, Document.class);
+            query.setParameter("type", type);
+            query.setParameter("status", status);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return listWithFetchGraph(session, query, Document.GRAPH_HEADER);
+        } catch (Exception e) {
+            logger.error("Ошибка при поиске документов по типу и статусу за период", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает количество и общую сумму документов указанного типа и статуса за период
+     * 
+     * <p>Один агрегирующий запрос; документы не загружаются. Период выбирается
+     * по индексу даты документа, поэтому стоимость зависит от количества
+     * документов в периоде, а не от размера таблицы.</p>
+     * 
+     * @param type тип документа
+     * @param status статус документа
+     * @param startDate начальная дата периода (включительно)
+     * @param endDate конечная дата периода (включительно)
+     * @return итоги; при отсутствии документов — 0 и сумма 0
+     * @throws RuntimeException если произошла ошибка при выполнении запроса
+     */
+    public DocumentTotals summarizeByTypeStatusAndDateRange(DocumentType type, DocumentStatus status,
+                                                            LocalDate startDate, LocalDate endDate) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.DocumentTotals(COUNT(d), COALESCE(SUM(d.totalAmount), 0))
+                FROM Document d
+                WHERE d.documentType = :type AND d.status = :status
+                AND d.documentDate BETWEEN :startDate AND :endDate
+                """;
+            return session.createQuery(hql, DocumentTotals.class)
+                    .setParameter("type", type)
+                    .setParameter("status", status)
+                    .setParameter("startDate", startDate)
+                    .setParameter("endDate", endDate)
+                    .getSingleResult();
+        } catch (Exception e) {
+            logger.error("Ошибка при подсчёте итогов документов за период", e);
+            throw new RuntimeException("Ошибка при подсчёте итогов: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает страницу строк таблицы документов, начиная с самых новых
+     * 
+     * <p>Проекция ({@code select new}) на {@link DocumentRow} с тем же порядком
+     * и keyset-условием, что и {@link #findPageNewestFirst(Document, int)};
+     * сущности не создаются.</p>
+     * 
+     * @param after последняя строка предыдущей страницы или null для первой
+     * @param limit максимальное количество строк на странице
+     * @return строки страницы; страница короче limit — последняя
+     * @throws IllegalArgumentException если limit не положителен
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<DocumentRow> findRowPageNewestFirst(DocumentRow after, int limit) {
+        requirePositiveLimit(limit);
+        try (Session session = getReadOnlySession()) {
+            String keyset = after == null ? "" : """
+                WHERE d.documentDate <= :afterDate
+                AND (d.documentDate < :afterDate OR d.id < :afterId)
+                """;
+            String hql = """
+                SELECT new com.store.inventory.dto.DocumentRow(
+                    d.id, d.documentNumber, d.documentType, d.documentDate, d.status, d.totalAmount)
+                FROM Document d
+                """ + keyset + " ORDER BY d.documentDate DESC, d.id DESC";
+            Query<DocumentRow> query = session.createQuery(hql, DocumentRow.class);
+            if (after != null) {
+                query.setParameter("afterDate", after.documentDate());
+                query.setParameter("afterId", after.id());
+            }
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении страницы строк документов", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.store.inventory.repository;
 import com.store.inventory.domain.Document;
 import com.store.inventory.domain.DocumentItem;
 import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.dto.DocumentLineRow;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
@@ -21,7 +22,7 @@ public class DocumentItemDao extends GenericDao<DocumentItem, Long> {
      * Создает экземпляр DAO для работы со строками документов
      */
     public DocumentItemDao() {
-        super(DocumentItem.class);
+        super(DocumentItem.class, DocumentItem.GRAPH_LINE);
     }
 
     /**
@@ -34,11 +35,11 @@ public class DocumentItemDao extends GenericDao<DocumentItem, Long> {
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<DocumentItem> findByDocument(Document document) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM DocumentItem WHERE document = :document ORDER BY id";
             Query<DocumentItem> query = session.createQuery(hql, DocumentItem.class);
             query.setParameter("document", document);
-            return query.list();
+            return listWithFetchGraph(session, query, DocumentItem.GRAPH_LINE);
         } catch (Exception e) {
             logger.error("Ошибка при получении строк документа", e);
             throw new RuntimeException("Ошибка при получении строк: " + e.getMessage(), e);
@@ -56,14 +57,72 @@ public class DocumentItemDao extends GenericDao<DocumentItem, Long> {
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<DocumentItem> findByNomenclature(Nomenclature nomenclature) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM DocumentItem WHERE nomenclature = :nomenclature ORDER BY createdAt DESC";
             Query<DocumentItem> query = session.createQuery(hql, DocumentItem.class);
             query.setParameter("nomenclature", nomenclature);
-            return query.list();
+            return listWithFetchGraph(session, query, DocumentItem.GRAPH_LINE);
         } catch (Exception e) {
             logger.error("Ошибка при получении строк по номенклатуре", e);
             throw new RuntimeException("Ошибка при получении строк: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Возвращает строки таблицы позиций документа
+     * 
+     * <p>Проекция ({@code select new}) на {@link DocumentLineRow} с артикулом,
+     * названием и единицей измерения номенклатуры и кодом полки; сущности
+     * не создаются. Результаты сортируются по идентификатору строки.</p>
+     * 
+     * @param documentId идентификатор документа
+     * @return строки позиций документа
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    public List<DocumentLineRow> findLineRowsByDocument(Long documentId) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.DocumentLineRow(
+                    n.article, n.name, di.quantity, n.unit, di.price, di.total, s.code)
+                FROM DocumentItem di
+                JOIN di.nomenclature n
+                LEFT JOIN di.shelf s
+                WHERE di.document.id = :documentId
+                ORDER BY di.id
+                """;
+            Query<DocumentLineRow> query = session.createQuery(hql, DocumentLineRow.class);
+            query.setParameter("documentId", documentId);
+            return query.list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении строк позиций документа", e);
+            throw new RuntimeException("Ошибка при получении строк: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает идентификаторы товарных позиций, указанных в строках документа
+     * 
+     * <p>Используется для захвата блокировок партий до проведения документа;
+     * строки без товарной позиции пропускаются.</p>
+     * 
+     * @param documentId идентификатор документа
+     * @return идентификаторы позиций без повторов, по возрастанию
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    public List<Long> findItemIdsByDocument(Long documentId) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT DISTINCT di.item.id
+                FROM DocumentItem di
+                WHERE di.document.id = :documentId AND di.item IS NOT NULL
+                ORDER BY di.item.id
+                """;
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("documentId", documentId);
+            return query.list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении позиций документа", e);
+            throw new RuntimeException("Ошибка при получении позиций: " + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package com.store.inventory.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Индекс сроков годности партий в наличии
+ *
+ * <p>Колесо с ячейкой на день: партии журнала остатков, у которых указан срок годности,
+ * раскладываются по дню его истечения. Курсор колеса — текущий день; когда он
+ * продвигается, ячейки прошедших дней переносятся в множество просроченных партий.
+ * Поэтому просроченные партии читаются без перебора, партии, срок которых истекает
+ * в ближайшие N дней, — просмотром N ячеек, а проверка одной партии — поиском по ключу.</p>
+ *
+ * <p>Индекс ведёт {@link StockLedger}: после каждого изменения партии (загрузка,
+ * поступление, реализация, перемещение, смена статуса, сверка) он передаёт её состояние,
+ * и партия переносится в ячейку нового срока или удаляется, если больше не в наличии.
+ * Просроченной считается партия, срок годности которой раньше даты запроса,
+ * как в {@link com.store.inventory.domain.Item#isExpired()}. Курсор назад
+ * не возвращается: запрос на дату раньше курсора (после запроса на более позднюю)
+ * отбирает партии из просроченных перебором.</p>
+ */
+public final class ExpiryIndex {
+
+    /** Партии по дню истечения срока годности, начиная с текущего дня */
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+
+    /** Партии, срок годности которых истёк до текущего дня */
+    private final Set<Long> expired = new HashSet<>();
+
+    /** День истечения срока годности каждой партии индекса */
+    private final Map<Long, Long> expiryDays = new HashMap<>();
+
+    private long currentDay = LocalDate.now().toEpochDay();
+
+    ExpiryIndex() {
+    }
+
+    /**
+     * Возвращает просроченные партии
+     *
+     * @param today дата запроса
+     * @return идентификаторы товарных позиций, срок годности которых раньше даты запроса
+     */
+    public synchronized Set<Long> findExpired(LocalDate today) {
+        long day = today.toEpochDay();
+        advance(day);
+        if (day == currentDay) {
+            return Set.copyOf(expired);
+        }
+        Set<Long> result = new HashSet<>();
+        for (Long itemId : expired) {
+            if (expiryDays.get(itemId) < day) {
+                result.add(itemId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает партии, срок годности которых скоро истекает
+     *
+     * @param today дата запроса
+     * @param days количество дней после даты запроса
+     * @return идентификаторы товарных позиций со сроком в пределах (today, today + days],
+     *         по возрастанию срока
+     */
+    public synchronized List<Long> findExpiring(LocalDate today, int days) {
+        long day = today.toEpochDay();
+        advance(day);
+        List<Long> result = new ArrayList<>();
+        if (day + 1 < currentDay) {
+            // Ячейки до курсора уже перенесены в просроченные
+            long last = Math.min(day + days, currentDay - 1);
+            for (Long itemId : expired) {
+                long expiryDay = expiryDays.get(itemId);
+                if (expiryDay > day && expiryDay <= last) {
+                    result.add(itemId);
+                }
+            }
+            result.sort(Comparator.comparing(expiryDays::get));
+        }
+        for (long expiryDay = Math.max(day + 1, currentDay); expiryDay <= day + days; expiryDay++) {
+            Set<Long> bucket = buckets.get(expiryDay);
+            if (bucket != null) {
+                result.addAll(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, истёк ли срок годности партии
+     *
+     * @param itemId идентификатор товарной позиции
+     * @param today дата проверки
+     * @return true, если партия в наличии и её срок годности раньше даты проверки
+     */
+    public synchronized boolean isExpired(long itemId, LocalDate today) {
+        Long expiryDay = expiryDays.get(itemId);
+        return expiryDay != null && expiryDay < today.toEpochDay();
+    }
+
+    /**
+     * @return количество партий в наличии с указанным сроком годности
+     */
+    public synchronized int size() {
+        return expiryDays.size();
+    }
+
+    /**
+     * Переносит партию в ячейку её текущего срока годности
+     *
+     * <p>Состояние читается под блокировкой индекса, поэтому при параллельных
+     * изменениях одной партии последним применяется её последнее состояние.</p>
+     *
+     * @param itemId идентификатор товарной позиции
+     * @param lot состояние партии в журнале
+     */
+    synchronized void update(long itemId, AtomicReference<StockLedger.LotState> lot) {
+        StockLedger.LotState state = lot.get();
+        long expiryDay = state.quantity() == 0 ? StockLedger.LotState.NO_EXPIRY : state.expiryDay();
+        Long previous = expiryDay == StockLedger.LotState.NO_EXPIRY
+                ? expiryDays.remove(itemId)
+                : expiryDays.put(itemId, expiryDay);
+        if (previous != null) {
+            if (previous == expiryDay) {
+                return;
+            }
+            unlink(itemId, previous);
+        }
+        if (expiryDay != StockLedger.LotState.NO_EXPIRY) {
+            link(itemId, expiryDay);
+        }
+    }
+
+    /**
+     * Продвигает курсор до указанного дня, перенося прошедшие ячейки в просроченные
+     */
+    private void advance(long day) {
+        while (currentDay < day) {
+            Set<Long> bucket = buckets.remove(currentDay);
+            if (bucket != null) {
+                expired.addAll(bucket);
+            }
+            currentDay++;
+        }
+    }
+
+    private void link(long itemId, long expiryDay) {
+        if (expiryDay < currentDay) {
+            expired.add(itemId);
+        } else {
+            buckets.computeIfAbsent(expiryDay, day -> new HashSet<>()).add(itemId);
+        }
+    }
+
+    private void unlink(long itemId, long expiryDay) {
+        if (expiryDay < currentDay) {
+            expired.remove(itemId);
+            return;
+        }
+        Set<Long> bucket = buckets.get(expiryDay);
+        if (bucket != null && bucket.remove(itemId) && bucket.isEmpty()) {
+            buckets.remove(expiryDay);
+        }
+    }
+}
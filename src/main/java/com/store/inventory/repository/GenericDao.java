@@ -1,14 +1,36 @@
 package com.store.inventory.repository;
 
 import com.store.inventory.util.HibernateUtil;
+import org.hibernate.Hibernate;
+import org.hibernate.MultiIdentifierLoadAccess;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.metamodel.mapping.internal.ToOneAttributeMapping;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.Subgraph;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Базовый DAO (Data Access Object) класс с общими CRUD операциями
@@ -22,57 +44,173 @@ import java.util.Optional;
  */
 public abstract class GenericDao<T, ID> {
 
+    /**
+     * Размер пакета массовых операций: после каждых BATCH_SIZE сущностей
+     * сессия сбрасывается в БД (совпадает с hibernate.jdbc.batch_size)
+     */
+    protected static final int BATCH_SIZE = 50;
+
+    /**
+     * Регион кэша запросов для частых выборок справочников
+     * 
+     * <p>Результат хранится по тексту запроса и параметрам и сбрасывается
+     * при любом изменении таблиц, участвующих в запросе (см. ehcache.xml).</p>
+     */
+    protected static final String REFERENCE_QUERY_REGION = "reference-queries";
+
+    /**
+     * Размер порции JDBC при потоковом чтении: столько строк драйвер получает
+     * за одно обращение, и после стольких сущностей очищается сессия потока
+     */
+    protected static final int STREAM_FETCH_SIZE = 500;
+
+    /** Имя атрибута-идентификатора, общее для всех сущностей */
+    private static final String ID_ATTRIBUTE = "id";
+
     /** Логгер для записи событий и ошибок */
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     
     /** Класс сущности для работы с Hibernate */
     protected final Class<T> entityClass;
 
+    /** План загрузки для findById и findAll (null — только собственные поля сущности) */
+    protected final String defaultFetchGraph;
+
     /**
      * Создает экземпляр DAO для указанного класса сущности
      * 
      * @param entityClass класс сущности
      */
     public GenericDao(Class<T> entityClass) {
+        this(entityClass, null);
+    }
+
+    /**
+     * Создает экземпляр DAO с планом загрузки по умолчанию
+     * 
+     * <p>Все связи сущностей ленивые: сущности, возвращаемые DAO, отсоединены
+     * от сессии, поэтому связи, которые отображает экран, должны быть загружены
+     * заранее именованным графом сущности ({@code @NamedEntityGraph}).</p>
+     * 
+     * @param entityClass класс сущности
+     * @param defaultFetchGraph имя графа для findById и findAll
+     */
+    protected GenericDao(Class<T> entityClass, String defaultFetchGraph) {
         this.entityClass = entityClass;
+        this.defaultFetchGraph = defaultFetchGraph;
     }
 
     /**
      * Сохраняет или обновляет сущность в базе данных
      * 
-     * <p>Операция выполняется в транзакции. При ошибке происходит откат.</p>
+     * <p>Операция выполняется в транзакции. При ошибке происходит откат.
+     * Возвращается сохранённый экземпляр: у новой сущности он содержит
+     * идентификатор, у версионируемой — новую версию, поэтому дальнейшие
+     * изменения следует вносить в него, а не в переданный объект.
+     * Связи плана загрузки по умолчанию инициализируются до закрытия сессии,
+     * как у сущностей, возвращаемых {@link #findById(Object)}.</p>
      * 
      * @param entity сущность для сохранения
      * @return сохраненная сущность
      * @throws RuntimeException если произошла ошибка при сохранении
+     *         (в том числе при конфликте версий — запись изменена другим пользователем)
      */
     public T save(T entity) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-            session.merge(entity);
-            transaction.commit();
-            logger.debug("Сущность сохранена: {}", entity);
-            return entity;
+        try {
+            T saved = executeInTransaction(session -> initializeDefaultFetchGraph(session, session.merge(entity)));
+            logger.debug("Сущность сохранена: {}", saved);
+            return saved;
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
             logger.error("Ошибка при сохранении сущности", e);
             throw new RuntimeException("Ошибка при сохранении: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Сохраняет новые сущности пакетами в одной транзакции
+     * 
+     * <p>Сущности передаются в {@code persist}, идентификаторы выделяются
+     * из последовательности без обращения к БД, а вставки отправляются пакетами
+     * JDBC. Каждые {@link #BATCH_SIZE} сущностей сессия сбрасывается и очищается,
+     * чтобы контекст персистентности не рос. Внутри {@link UnitOfWork} сессия
+     * только сбрасывается: её содержимое принадлежит вызывающему коду.</p>
+     * 
+     * @param entities новые сущности
+     * @return сгенерированные идентификаторы в порядке сущностей
+     * @throws RuntimeException если произошла ошибка при сохранении (транзакция откатывается)
+     */
+    public List<ID> persistAll(Collection<? extends T> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<ID> ids = executeInTransaction(session -> {
+                List<ID> generated = new ArrayList<>(entities.size());
+                for (T entity : entities) {
+                    session.persist(entity);
+                    generated.add(getIdentifier(session, entity));
+                    flushBatch(session, generated.size());
+                }
+                return generated;
+            });
+            logger.debug("Сохранено сущностей {}: {}", entityClass.getSimpleName(), ids.size());
+            return ids;
+        } catch (Exception e) {
+            logger.error("Ошибка при пакетном сохранении сущностей", e);
+            throw new RuntimeException("Ошибка при пакетном сохранении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сохраняет или обновляет сущности пакетами в одной транзакции
+     * 
+     * <p>В отличие от {@link #persistAll(Collection)} принимает как новые,
+     * так и отсоединённые сущности: каждая передаётся в {@code merge}.
+     * Сброс и очистка сессии выполняются так же, каждые {@link #BATCH_SIZE} сущностей.</p>
+     * 
+     * @param entities сущности для сохранения
+     * @return идентификаторы сохранённых сущностей в порядке сущностей
+     * @throws RuntimeException если произошла ошибка при сохранении (транзакция откатывается)
+     */
+    public List<ID> saveAll(Collection<? extends T> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<ID> ids = executeInTransaction(session -> {
+                List<ID> saved = new ArrayList<>(entities.size());
+                for (T entity : entities) {
+                    T merged = session.merge(entity);
+                    saved.add(getIdentifier(session, merged));
+                    flushBatch(session, saved.size());
+                }
+                return saved;
+            });
+            logger.debug("Сохранено сущностей {}: {}", entityClass.getSimpleName(), ids.size());
+            return ids;
+        } catch (Exception e) {
+            logger.error("Ошибка при пакетном сохранении сущностей", e);
+            throw new RuntimeException("Ошибка при пакетном сохранении: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Находит сущность по идентификатору
      * 
+     * <p>Сущность возвращается для просмотра и редактирования, поэтому вместе
+     * с ней загружаются ленивые поля ({@code @Basic(fetch = LAZY)}): после закрытия
+     * сессии прочитать их уже нельзя. Запросы списков эти поля не загружают.</p>
+     * 
      * @param id идентификатор сущности
      * @return Optional с найденной сущностью или пустой Optional
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<T> findById(ID id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            T entity = session.get(entityClass, id);
+        try (Session session = getReadOnlySession()) {
+            RootGraph<T> graph = getFindByIdGraph(session);
+            T entity = graph == null
+                    ? session.get(entityClass, id)
+                    : session.byId(entityClass).with(graph, GraphSemantic.LOAD).load(id);
             return Optional.ofNullable(entity);
         } catch (Exception e) {
             logger.error("Ошибка при поиске сущности по ID: {}", id, e);
@@ -83,20 +221,82 @@ public abstract class GenericDao<T, ID> {
     /**
      * Возвращает список всех сущностей из базы данных
      * 
+     * <p>Загружает таблицу целиком; для больших таблиц используйте
+     * {@link #findPage(Object, int)} или {@link #streamAll()}.</p>
+     * 
      * @return список всех сущностей
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<T> findAll() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM " + entityClass.getSimpleName();
             Query<T> query = session.createQuery(hql, entityClass);
-            return query.list();
+            return listWithFetchGraph(session, query, defaultFetchGraph);
         } catch (Exception e) {
             logger.error("Ошибка при получении всех сущностей", e);
             throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Возвращает страницу сущностей по ключу (keyset-пагинация)
+     * 
+     * <p>Сущности упорядочены по идентификатору; следующая страница начинается
+     * сразу после {@code afterId}. В отличие от OFFSET, стоимость запроса
+     * не зависит от номера страницы, а вставки между запросами не сдвигают строки.</p>
+     * 
+     * @param afterId идентификатор последней сущности предыдущей страницы или null для первой
+     * @param limit максимальное количество сущностей на странице
+     * @return сущности страницы; страница короче limit — последняя
+     * @throws IllegalArgumentException если limit не положителен
+     * @throws RuntimeException если произошла ошибка при получении страницы
+     */
+    public List<T> findPage(ID afterId, int limit) {
+        requirePositiveLimit(limit);
+        try (Session session = getReadOnlySession()) {
+            String entityName = entityClass.getSimpleName();
+            String hql = afterId == null
+                    ? "FROM " + entityName + " e ORDER BY e.id"
+                    : "FROM " + entityName + " e WHERE e.id > :afterId ORDER BY e.id";
+            Query<T> query = session.createQuery(hql, entityClass);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            query.setMaxResults(limit);
+            return listWithFetchGraph(session, query, defaultFetchGraph);
+        } catch (Exception e) {
+            logger.error("Ошибка при получении страницы сущностей после ID: {}", afterId, e);
+            throw new RuntimeException("Ошибка при получении страницы: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает поток всех сущностей, упорядоченных по идентификатору
+     * 
+     * <p>В отличие от {@link #findAll()} не загружает таблицу в память целиком.
+     * Поток необходимо закрыть (try-with-resources): вместе с ним закрывается сессия.</p>
+     * 
+     * <pre>{@code
+     * try (Stream<Item> items = itemDao.streamAll()) {
+     *     items.forEach(...);
+     * }
+     * }</pre>
+     * 
+     * @return поток сущностей
+     * @throws RuntimeException если произошла ошибка при открытии потока
+     */
+    public Stream<T> streamAll() {
+        Session session = getReadOnlySession();
+        try {
+            String hql = "FROM " + entityClass.getSimpleName() + " e ORDER BY e.id";
+            return streamWithFetchGraph(session, session.createQuery(hql, entityClass), defaultFetchGraph);
+        } catch (Exception e) {
+            session.close();
+            logger.error("Ошибка при открытии потока сущностей", e);
+            throw new RuntimeException("Ошибка при потоковом чтении: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Удаляет сущность из базы данных
      * 
@@ -106,16 +306,19 @@ public abstract class GenericDao<T, ID> {
      * @throws RuntimeException если произошла ошибка при удалении
      */
     public void delete(T entity) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-            session.remove(entity);
-            transaction.commit();
+        try {
+            executeInTransaction(session -> {
+                @SuppressWarnings("unchecked")
+                ID id = (ID) session.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+                if (id != null) {
+                    deleteDependentRows(session, List.of(id));
+                }
+                // Обработчик мог загрузить ту же сущность: удаляется экземпляр сессии
+                session.remove(session.contains(entity) ? entity : session.merge(entity));
+                return null;
+            });
             logger.debug("Сущность удалена: {}", entity);
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
             logger.error("Ошибка при удалении сущности", e);
             throw new RuntimeException("Ошибка при удалении: " + e.getMessage(), e);
         }
@@ -124,13 +327,137 @@ public abstract class GenericDao<T, ID> {
     /**
      * Удаляет сущность по идентификатору
      * 
-     * <p>Сначала находит сущность по ID, затем удаляет её, если она существует.</p>
+     * <p>Поиск и удаление выполняются в одной сессии и транзакции, поэтому
+     * каскадное удаление связанных сущностей сохраняется.</p>
      * 
      * @param id идентификатор сущности для удаления
+     * @throws RuntimeException если произошла ошибка при удалении
      */
     public void deleteById(ID id) {
-        Optional<T> entity = findById(id);
-        entity.ifPresent(this::delete);
+        try {
+            executeInTransaction(session -> {
+                T entity = session.find(entityClass, id);
+                if (entity != null) {
+                    deleteDependentRows(session, List.of(id));
+                    session.remove(entity);
+                }
+                return null;
+            });
+            logger.debug("Сущность {} удалена по ID: {}", entityClass.getSimpleName(), id);
+        } catch (Exception e) {
+            logger.error("Ошибка при удалении сущности по ID: {}", id, e);
+            throw new RuntimeException("Ошибка при удалении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Удаляет сущности по списку идентификаторов одним запросом
+     * 
+     * <p>Выполняется как {@code DELETE ... WHERE id IN (...)} в обход контекста
+     * персистентности: каскады и обратные вызовы жизненного цикла не срабатывают,
+     * поэтому метод подходит только для сущностей без зависимых строк.</p>
+     * 
+     * @param ids идентификаторы сущностей
+     * @return количество удалённых строк
+     * @throws RuntimeException если произошла ошибка при удалении (транзакция откатывается)
+     */
+    public int deleteAllById(Collection<ID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            String hql = "DELETE FROM " + entityClass.getSimpleName() + " WHERE " + ID_ATTRIBUTE + " IN (:ids)";
+            int deleted = executeInTransaction(session -> {
+                deleteDependentRows(session, ids);
+                return session.createMutationQuery(hql)
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+            });
+            logger.debug("Удалено сущностей {}: {}", entityClass.getSimpleName(), deleted);
+            return deleted;
+        } catch (Exception e) {
+            logger.error("Ошибка при массовом удалении сущностей", e);
+            throw new RuntimeException("Ошибка при массовом удалении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Удаляет строки, которые ссылаются на удаляемые сущности, но не являются их связями
+     * 
+     * <p>Вызывается методами удаления в их транзакции до удаления сущностей.
+     * По умолчанию ничего не делает; наследники удаляют производные строки
+     * (например, материализованные остатки), которые иначе помешали бы удалению
+     * внешним ключом.</p>
+     * 
+     * @param session сессия с открытой транзакцией
+     * @param ids идентификаторы удаляемых сущностей
+     */
+    protected void deleteDependentRows(Session session, Collection<ID> ids) {
+    }
+
+    /**
+     * Устанавливает значение атрибута у сущностей с указанными идентификаторами
+     * одним запросом UPDATE
+     * 
+     * <p>Имя атрибута и тип значения проверяются по метамодели сущности до
+     * выполнения запроса. Как и {@link #deleteAllById(Collection)}, обновление
+     * выполняется в обход контекста персистентности: уже загруженные экземпляры
+     * не меняются, обратные вызовы {@code @PreUpdate} не срабатывают.
+     * Версия версионируемых сущностей увеличивается, как при обычном обновлении.</p>
+     * 
+     * @param ids идентификаторы сущностей
+     * @param attribute имя атрибута сущности
+     * @param value новое значение (может быть null)
+     * @param <V> тип значения
+     * @return количество обновлённых строк
+     * @throws IllegalArgumentException если атрибут не существует или тип значения не подходит
+     * @throws RuntimeException если произошла ошибка при обновлении (транзакция откатывается)
+     */
+    public <V> int updateAllById(Collection<ID> ids, String attribute, V value) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            int updated = executeInTransaction(session -> executeUpdateAllById(session, ids, attribute, value));
+            logger.debug("Обновлено сущностей {} ({} = {}): {}", entityClass.getSimpleName(), attribute, value, updated);
+            return updated;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Ошибка при массовом обновлении сущностей", e);
+            throw new RuntimeException("Ошибка при массовом обновлении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Выполняет запрос UPDATE {@link #updateAllById(Collection, String, Object)} в сессии
+     * 
+     * @param session сессия с открытой транзакцией
+     * @param ids идентификаторы сущностей (не пустой список)
+     * @param attribute имя атрибута сущности
+     * @param value новое значение (может быть null)
+     * @param <V> тип значения
+     * @return количество обновлённых строк
+     * @throws IllegalArgumentException если атрибут не существует или тип значения не подходит
+     */
+    protected <V> int executeUpdateAllById(Session session, Collection<ID> ids, String attribute, V value) {
+        Attribute<? super T, ?> target = session.getMetamodel().entity(entityClass).getAttribute(attribute);
+        if (value != null && !target.getJavaType().isInstance(value)) {
+            throw new IllegalArgumentException("Тип значения " + value.getClass().getSimpleName()
+                    + " не соответствует атрибуту " + entityClass.getSimpleName() + "." + attribute);
+        }
+
+        CriteriaBuilder builder = session.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        update.set(root.<V>get(attribute), value);
+        EntityPersister persister = getMappingMetamodel(session).getEntityDescriptor(entityClass);
+        if (persister.isVersioned()) {
+            Path<Long> version = root.get(persister.getVersionMapping().getVersionAttribute().getAttributeName());
+            update.set(version, builder.sum(version, 1L));
+        }
+        update.where(root.get(ID_ATTRIBUTE).in(ids));
+        return session.createMutationQuery(update).executeUpdate();
     }
 
     /**
@@ -150,7 +477,7 @@ public abstract class GenericDao<T, ID> {
      * @throws RuntimeException если произошла ошибка при подсчёте
      */
     public long count() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "SELECT COUNT(*) FROM " + entityClass.getSimpleName();
             Query<Long> query = session.createQuery(hql, Long.class);
             return query.uniqueResult();
@@ -161,15 +488,390 @@ public abstract class GenericDao<T, ID> {
     }
 
     /**
-     * Возвращает новую Hibernate сессию для выполнения пользовательских запросов
+     * Возвращает Hibernate сессию для выполнения пользовательских запросов
      * 
      * <p>Используется в наследниках для специфичных операций с БД.
-     * Вызывающий код ответственен за закрытие сессии.</p>
+     * Вызывающий код ответственен за закрытие сессии. Внутри {@link UnitOfWork}
+     * возвращается общая сессия единицы работы, закрытие которой игнорируется.</p>
      * 
-     * @return новая Hibernate Session
+     * @return Hibernate Session
      */
     protected Session getSession() {
+        if (UnitOfWork.isActive()) {
+            return UnitOfWork.currentSession();
+        }
         return HibernateUtil.getSessionFactory().openSession();
     }
-}
 
+    /**
+     * Возвращает сессию только для чтения для методов поиска
+     * 
+     * <p>Сущности загружаются без снимков состояния, автоматический сброс
+     * отключён, запросы идут в транзакции на соединении read-only
+     * (см. {@link UnitOfWork#openReadOnlySession()}); возвращаемые сущности
+     * отсоединены, их изменения сохраняются через {@link #save(Object)}.
+     * Вызывающий код ответственен за закрытие сессии. Внутри {@link UnitOfWork}
+     * возвращается общая сессия единицы работы в её собственном режиме.</p>
+     * 
+     * @return Hibernate Session
+     */
+    protected Session getReadOnlySession() {
+        if (UnitOfWork.isActive()) {
+            return UnitOfWork.currentSession();
+        }
+        return UnitOfWork.openReadOnlySession();
+    }
+
+    /**
+     * Применяет к запросу именованный план загрузки
+     *
+     * <p>Связи, перечисленные в графе, загружаются тем же запросом (JOIN),
+     * остальные остаются ленивыми. Если имя графа null, запрос не меняется.
+     * Для списков предпочтителен {@link #listWithFetchGraph}.</p>
+     *
+     * @param session сессия, в которой создан запрос
+     * @param query запрос
+     * @param graphName имя графа сущности или null
+     * @return тот же запрос
+     */
+    protected Query<T> withFetchGraph(Session session, Query<T> query, String graphName) {
+        if (graphName != null) {
+            query.setEntityGraph(getFetchGraph(session, graphName), GraphSemantic.LOAD);
+        }
+        return query;
+    }
+
+    /**
+     * Выполняет запрос списка с именованным планом загрузки
+     * 
+     * <p>Если все связи графа ведут на сущности из кэша второго уровня, запрос
+     * выполняется без соединений, а связи разрешаются из кэша (промахи
+     * догружаются пакетами по {@code hibernate.default_batch_fetch_size}):
+     * JOIN обошёл бы кэш и повторил столбцы справочника в каждой строке.
+     * Иначе связи графа загружаются тем же запросом (JOIN). Остальные связи
+     * остаются ленивыми. Если имя графа null, запрос выполняется как есть.</p>
+     * 
+     * @param session сессия, в которой создан запрос
+     * @param query запрос
+     * @param graphName имя графа сущности или null
+     * @return результат запроса
+     */
+    protected List<T> listWithFetchGraph(Session session, Query<T> query, String graphName) {
+        List<AttributeNode<?>> deferred = applyFetchGraph(session, query, graphName);
+        List<T> entities = query.list();
+        if (!deferred.isEmpty()) {
+            MappingMetamodel metamodel = getMappingMetamodel(session);
+            for (T entity : entities) {
+                initializeAttributes(metamodel, entity, deferred);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Загружает сущности по идентификаторам с именованным планом загрузки
+     *
+     * <p>Сущности читаются {@code multiLoad} — по первичному ключу, без разбора
+     * запроса с параметром-списком при каждом вызове. Связи графа разрешаются так же,
+     * как в {@link #listWithFetchGraph}: из кэша второго уровня, если все они
+     * кэшируемые, иначе соединением. Отсутствующие идентификаторы пропускаются,
+     * порядок результата совпадает с порядком идентификаторов.</p>
+     *
+     * @param session сессия
+     * @param ids идентификаторы сущностей
+     * @param graphName имя графа сущности или null
+     * @return найденные сущности
+     */
+    protected List<T> multiLoadWithFetchGraph(Session session, List<ID> ids, String graphName) {
+        MultiIdentifierLoadAccess<T> access = session.byMultipleIds(entityClass);
+        List<AttributeNode<?>> deferred = List.of();
+        if (graphName != null) {
+            RootGraph<T> graph = getFetchGraph(session, graphName);
+            MappingMetamodel metamodel = getMappingMetamodel(session);
+            if (isCachedGraph(metamodel, metamodel.getEntityDescriptor(entityClass), graph.getAttributeNodes())) {
+                deferred = graph.getAttributeNodes();
+            } else {
+                access.with(graph, GraphSemantic.LOAD);
+            }
+        }
+        List<T> entities = new ArrayList<>(ids.size());
+        for (T entity : access.multiLoad(ids)) {
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        if (!deferred.isEmpty()) {
+            MappingMetamodel metamodel = getMappingMetamodel(session);
+            for (T entity : entities) {
+                initializeAttributes(metamodel, entity, deferred);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Инициализирует связи плана загрузки по умолчанию у сущности, связанной с сессией
+     *
+     * <p>Сущность, возвращаемая {@code merge}, ссылается на связанные сущности
+     * ленивыми ссылками; после закрытия сессии их уже не загрузить.
+     * Связи разрешаются из кэша второго уровня или запросом по первичному ключу.</p>
+     *
+     * @param session сессия, с которой связана сущность
+     * @param entity сущность
+     * @return та же сущность
+     */
+    protected T initializeDefaultFetchGraph(Session session, T entity) {
+        if (defaultFetchGraph != null && entity != null) {
+            initializeAttributes(getMappingMetamodel(session), entity,
+                    getFetchGraph(session, defaultFetchGraph).getAttributeNodes());
+        }
+        return entity;
+    }
+
+    /**
+     * Выполняет запрос потоково с именованным планом загрузки
+     * 
+     * <p>Строки читаются курсором ({@code ScrollableResults}) порциями по
+     * {@link #STREAM_FETCH_SIZE}; связи плана загружаются так же, как в
+     * {@link #listWithFetchGraph}. Вне {@link UnitOfWork} контекст персистентности
+     * очищается после каждой порции, поэтому память не растёт с размером выборки,
+     * а уже выданные сущности становятся отсоединёнными. Чтение идёт в собственной
+     * транзакции сессии (уже начатой, если сессия открыта {@link #getReadOnlySession()});
+     * закрытие потока завершает её и закрывает сессию.
+     * Если поток не удалось создать, сессию закрывает вызывающий код.</p>
+     * 
+     * @param session сессия, в которой создан запрос (переходит во владение потока)
+     * @param query запрос
+     * @param graphName имя графа сущности или null
+     * @return поток сущностей, который необходимо закрыть
+     */
+    protected Stream<T> streamWithFetchGraph(Session session, Query<T> query, String graphName) {
+        List<AttributeNode<?>> deferred = applyFetchGraph(session, query, graphName);
+        MappingMetamodel metamodel = getMappingMetamodel(session);
+        boolean ownSession = !UnitOfWork.isActive();
+        // Курсор живёт, пока открыта транзакция: без неё соединение освобождается
+        // после первого же дополнительного запроса (догрузки связи) и курсор закрывается
+        Transaction transaction = ownSession && !session.getTransaction().isActive()
+                ? session.beginTransaction()
+                : null;
+        AtomicInteger processed = new AtomicInteger();
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        return query.stream()
+                .map(entity -> {
+                    if (!deferred.isEmpty()) {
+                        initializeAttributes(metamodel, entity, deferred);
+                    }
+                    if (ownSession && processed.incrementAndGet() % STREAM_FETCH_SIZE == 0) {
+                        session.clear();
+                    }
+                    return entity;
+                })
+                .onClose(() -> {
+                    try {
+                        if (transaction != null && transaction.isActive()) {
+                            transaction.commit();
+                        }
+                    } finally {
+                        session.close();
+                    }
+                });
+    }
+
+    /**
+     * Применяет к запросу именованный план загрузки в зависимости от его связей
+     * 
+     * @param session сессия, в которой создан запрос
+     * @param query запрос
+     * @param graphName имя графа сущности или null
+     * @return узлы графа, которые нужно инициализировать после загрузки
+     *         (пусто, если граф применён соединением или не задан)
+     */
+    private List<AttributeNode<?>> applyFetchGraph(Session session, Query<T> query, String graphName) {
+        if (graphName == null) {
+            return List.of();
+        }
+        RootGraph<T> graph = getFetchGraph(session, graphName);
+        MappingMetamodel metamodel = getMappingMetamodel(session);
+        if (isCachedGraph(metamodel, metamodel.getEntityDescriptor(entityClass), graph.getAttributeNodes())) {
+            return graph.getAttributeNodes();
+        }
+        query.setEntityGraph(graph, GraphSemantic.LOAD);
+        return List.of();
+    }
+
+    /**
+     * Проверяет, что все связи графа ведут на кэшируемые сущности
+     * 
+     * @param metamodel метамодель сущностей
+     * @param owner описание сущности-владельца узлов
+     * @param nodes узлы графа
+     * @return true, если каждая связь графа читается из кэша второго уровня
+     */
+    private static boolean isCachedGraph(MappingMetamodel metamodel, EntityPersister owner,
+                                         List<AttributeNode<?>> nodes) {
+        for (AttributeNode<?> node : nodes) {
+            if (!(owner.findAttributeMapping(node.getAttributeName()) instanceof ToOneAttributeMapping toOne)) {
+                return false;
+            }
+            EntityPersister target = metamodel.getEntityDescriptor(
+                    toOne.getAssociatedEntityMappingType().getEntityName());
+            if (!target.canReadFromCache()) {
+                return false;
+            }
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                if (!isCachedGraph(metamodel, target, subgraph.getAttributeNodes())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Рекурсивно инициализирует перечисленные в графе связи сущности
+     * 
+     * @param metamodel метамодель сущностей
+     * @param entity сущность или прокси
+     * @param nodes узлы графа
+     */
+    private static void initializeAttributes(MappingMetamodel metamodel, Object entity,
+                                             List<AttributeNode<?>> nodes) {
+        Object target = Hibernate.unproxy(entity);
+        if (target == null) {
+            return;
+        }
+        EntityPersister persister = metamodel.getEntityDescriptor(target.getClass());
+        for (AttributeNode<?> node : nodes) {
+            Object value = persister.getPropertyValue(target, node.getAttributeName());
+            if (value == null) {
+                continue;
+            }
+            Hibernate.initialize(value);
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                initializeAttributes(metamodel, value, subgraph.getAttributeNodes());
+            }
+        }
+    }
+
+    /**
+     * Возвращает метамодель сущностей фабрики сессий
+     * 
+     * @param session сессия
+     * @return метамодель сущностей
+     */
+    private static MappingMetamodel getMappingMetamodel(Session session) {
+        return session.getSessionFactory().unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+    }
+
+    /**
+     * Проверяет размер страницы keyset-пагинации
+     * 
+     * @param limit максимальное количество сущностей на странице
+     * @throws IllegalArgumentException если limit не положителен
+     */
+    protected static void requirePositiveLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+    }
+
+    /**
+     * Возвращает именованный граф сущности
+     * 
+     * @param session сессия
+     * @param graphName имя графа
+     * @return корневой граф сущности
+     */
+    @SuppressWarnings("unchecked")
+    private RootGraph<T> getFetchGraph(Session session, String graphName) {
+        return (RootGraph<T>) session.getEntityGraph(graphName);
+    }
+
+    /**
+     * Возвращает план загрузки findById: план по умолчанию и ленивые поля сущности
+     * 
+     * <p>Ленивые поля существуют только в сборке с улучшением байт-кода
+     * (профиль Maven {@code bytecode-enhancement}); без него возвращается план по умолчанию.</p>
+     * 
+     * @param session сессия
+     * @return план загрузки или null, если загружаются только собственные поля сущности
+     */
+    @SuppressWarnings("unchecked")
+    private RootGraph<T> getFindByIdGraph(Session session) {
+        Set<String> lazyAttributes = getMappingMetamodel(session).getEntityDescriptor(entityClass)
+                .getBytecodeEnhancementMetadata().getLazyAttributesMetadata().getLazyAttributeNames();
+        if (lazyAttributes.isEmpty()) {
+            return defaultFetchGraph == null ? null : getFetchGraph(session, defaultFetchGraph);
+        }
+        RootGraph<T> graph = defaultFetchGraph == null
+                ? session.createEntityGraph(entityClass)
+                : (RootGraph<T>) session.createEntityGraph(defaultFetchGraph);
+        lazyAttributes.forEach(graph::addAttributeNodes);
+        return graph;
+    }
+
+    /**
+     * Сбрасывает сессию после каждого полного пакета
+     * 
+     * <p>Вне единицы работы сессия также очищается, чтобы сохранённые
+     * сущности не накапливались в контексте персистентности.</p>
+     * 
+     * @param session сессия
+     * @param processed количество обработанных сущностей
+     */
+    protected void flushBatch(Session session, int processed) {
+        if (processed % BATCH_SIZE == 0) {
+            session.flush();
+            if (!UnitOfWork.isActive()) {
+                session.clear();
+            }
+        }
+    }
+
+    /**
+     * Возвращает идентификатор управляемой сущности
+     * 
+     * @param session сессия
+     * @param entity сущность, связанная с сессией
+     * @return идентификатор
+     */
+    @SuppressWarnings("unchecked")
+    private ID getIdentifier(Session session, T entity) {
+        return (ID) session.getIdentifier(entity);
+    }
+
+    /**
+     * Выполняет работу в транзакции
+     * 
+     * <p>Вне единицы работы открывает новую сессию и транзакцию, фиксирует
+     * её по завершении и откатывает при ошибке. Внутри {@link UnitOfWork}
+     * выполняет работу в общей сессии, не управляя транзакцией.</p>
+     * 
+     * @param work работа с сессией
+     * @param <R> тип результата
+     * @return результат работы
+     * @throws IllegalStateException если единица работы открыта только для чтения
+     */
+    protected <R> R executeInTransaction(Function<Session, R> work) {
+        if (UnitOfWork.isReadOnly()) {
+            throw new IllegalStateException("Изменение данных внутри единицы работы только для чтения");
+        }
+        if (UnitOfWork.isActive()) {
+            return work.apply(UnitOfWork.currentSession());
+        }
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                R result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
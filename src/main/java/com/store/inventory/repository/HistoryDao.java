@@ -1,11 +1,13 @@
 package com.store.inventory.repository;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.HistoryRow;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * DAO для работы с историей операций с товарами
@@ -20,7 +22,7 @@ public class HistoryDao extends GenericDao<History, Long> {
      * Создает экземпляр DAO для работы с историей операций
      */
     public HistoryDao() {
-        super(History.class);
+        super(History.class, History.GRAPH_LIST_ROW);
     }
 
     /**
@@ -33,11 +35,11 @@ public class HistoryDao extends GenericDao<History, Long> {
      * @throws RuntimeException если произошла ошибка при получении истории
      */
     public List<History> findByItem(Item item) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM History WHERE item = :item ORDER BY operationDate DESC";
             Query<History> query = session.createQuery(hql, History.class);
             query.setParameter("item", item);
-            return query.list();
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории товарной позиции", e);
             throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
@@ -54,11 +56,11 @@ public class HistoryDao extends GenericDao<History, Long> {
      * @throws RuntimeException если произошла ошибка при получении истории
      */
     public List<History> findByDocument(Document document) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM History WHERE document = :document ORDER BY operationDate";
             Query<History> query = session.createQuery(hql, History.class);
             query.setParameter("document", document);
-            return query.list();
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории документа", e);
             throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
@@ -75,11 +77,11 @@ public class HistoryDao extends GenericDao<History, Long> {
      * @throws RuntimeException если произошла ошибка при получении истории
      */
     public List<History> findByOperationType(OperationType operationType) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM History WHERE operationType = :type ORDER BY operationDate DESC";
             Query<History> query = session.createQuery(hql, History.class);
             query.setParameter("type", operationType);
-            return query.list();
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории по типу операции", e);
             throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
@@ -98,18 +100,94 @@ public class HistoryDao extends GenericDao<History, Long> {
      * @throws RuntimeException если произошла ошибка при получении истории
      */
     public List<History> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM History WHERE operationDate BETWEEN :startDate AND :endDate ORDER BY operationDate DESC";
             Query<History> query = session.createQuery(hql, History.class);
             query.setParameter("startDate", startDate);
             query.setParameter("endDate", endDate);
-            return query.list();
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории за период", e);
             throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Возвращает страницу истории за период, начиная с последних операций (keyset-пагинация)
+     * 
+     * <p>Записи упорядочены по дате операции и идентификатору в обратном порядке;
+     * следующая страница начинается сразу после записи {@code after}, которая
+     * заменяет верхнюю границу периода: так H2 начинает чтение индекса
+     * (operation_date DESC, id DESC) прямо с ключа и останавливается после
+     * limit строк.</p>
+     * 
+     * @param startDate начальная дата и время периода
+     * @param endDate конечная дата и время периода
+     * @param after последняя запись предыдущей страницы или null для первой
+     * @param limit максимальное количество записей на странице
+     * @return записи страницы; страница короче limit — последняя
+     * @throws IllegalArgumentException если limit не положителен
+     * @throws RuntimeException если произошла ошибка при получении истории
+     */
+    public List<History> findPageByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                             History after, int limit) {
+        requirePositiveLimit(limit);
+        try (Session session = getReadOnlySession()) {
+            String hql = after == null
+                    ? """
+                      FROM History h
+                      WHERE h.operationDate BETWEEN :startDate AND :endDate
+                      ORDER BY h.operationDate DESC, h.id DESC
+                      """
+                    : """
+                      FROM History h
+                      WHERE h.operationDate BETWEEN :startDate AND :afterDate
+                      AND (h.operationDate < :afterDate OR h.id < :afterId)
+                      ORDER BY h.operationDate DESC, h.id DESC
+                      """;
+            Query<History> query = session.createQuery(hql, History.class);
+            query.setParameter("startDate", startDate);
+            if (after == null) {
+                query.setParameter("endDate", endDate);
+            } else {
+                query.setParameter("afterDate", after.getOperationDate());
+                query.setParameter("afterId", after.getId());
+            }
+            query.setMaxResults(limit);
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
+        } catch (Exception e) {
+            logger.error("Ошибка при получении страницы истории за период", e);
+            throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает поток истории операций за указанный период
+     * 
+     * <p>Записи упорядочены по дате операции и идентификатору в обратном порядке
+     * (порядок индекса, без сортировки всей выборки) и читаются курсором.
+     * Поток необходимо закрыть: вместе с ним закрывается сессия.</p>
+     * 
+     * @param startDate начальная дата и время периода
+     * @param endDate конечная дата и время периода
+     * @return поток записей истории за период
+     * @throws RuntimeException если произошла ошибка при открытии потока
+     */
+    public Stream<History> streamByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        Session session = getReadOnlySession();
+        try {
+            String hql = "FROM History h WHERE h.operationDate BETWEEN :startDate AND :endDate ORDER BY h.operationDate DESC, h.id DESC";
+            Query<History> query = session.createQuery(hql, History.class);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return streamWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
+        } catch (Exception e) {
+            session.close();
+            logger.error("Ошибка при открытии потока истории за период", e);
+            throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Возвращает историю операций, связанных с указанной полкой
      * 
@@ -121,14 +199,47 @@ public class HistoryDao extends GenericDao<History, Long> {
      * @throws RuntimeException если произошла ошибка при получении истории
      */
     public List<History> findByShelf(Shelf shelf) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM History WHERE fromShelf = :shelf OR toShelf = :shelf ORDER BY operationDate DESC";
             Query<History> query = session.createQuery(hql, History.class);
             query.setParameter("shelf", shelf);
-            return query.list();
+            return listWithFetchGraph(session, query, History.GRAPH_LIST_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при получении истории по полке", e);
             throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Возвращает строки таблицы истории для указанной товарной позиции
+     * 
+     * <p>Проекция ({@code select new}) на {@link HistoryRow} с номером документа
+     * и кодами полок; сущности не создаются. Результаты сортируются по дате
+     * операции в обратном порядке.</p>
+     * 
+     * @param itemId идентификатор товарной позиции
+     * @return строки истории товарной позиции
+     * @throws RuntimeException если произошла ошибка при получении истории
+     */
+    public List<HistoryRow> findRowsByItem(Long itemId) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.HistoryRow(
+                    h.operationDate, h.operationType, d.documentNumber, h.quantityChange,
+                    fs.code, ts.code, h.createdBy)
+                FROM History h
+                LEFT JOIN h.document d
+                LEFT JOIN h.fromShelf fs
+                LEFT JOIN h.toShelf ts
+                WHERE h.item.id = :itemId
+                ORDER BY h.operationDate DESC
+                """;
+            Query<HistoryRow> query = session.createQuery(hql, HistoryRow.class);
+            query.setParameter("itemId", itemId);
+            return query.list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении строк истории товарной позиции", e);
+            throw new RuntimeException("Ошибка при получении истории: " + e.getMessage(), e);
+        }
+    }
 }
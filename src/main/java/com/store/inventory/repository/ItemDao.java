@@ -1,14 +1,28 @@
 package com.store.inventory.repository;
 
+import com.store.inventory.domain.AllocationPolicy;
 import com.store.inventory.domain.Item;
 import com.store.inventory.domain.ItemStatus;
 import com.store.inventory.domain.Nomenclature;
 import com.store.inventory.domain.Shelf;
+import com.store.inventory.domain.Warehouse;
+import com.store.inventory.dto.StockSummary;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * DAO для работы с товарными позициями
@@ -17,14 +31,64 @@ import java.util.List;
  * Расширяет базовый GenericDao методами поиска по номенклатуре, статусу,
  * полке, партии, а также специализированными методами для получения остатков,
  * просроченных и скоро просрочивающихся товаров.</p>
+ * 
+ * <p>Все методы изменения позиций — {@link #save(Item)}, {@link #updateStatus(Collection, ItemStatus)},
+ * пакетные методы и методы удаления базового DAO — изменяют таблицу остатков в той же транзакции
+ * и передают изменённые партии в {@link StockLedger}. Только позиции, загруженные
+ * в обход DAO, требуют пересчёта остатков {@link StockBalanceDao#rebuild()}.</p>
  */
 public class ItemDao extends GenericDao<Item, Long> {
 
+    /**
+     * Распределение по партиям: идентификаторы и версии партий номенклатуры на складе
+     * в порядке правила (%s) от первой до той, на которой нарастающий итог количества
+     * достигает требуемого. Просроченные партии пропускаются. Партии номенклатуры
+     * в наличии читаются по индексу idx_items_nomenclature_status (проданные
+     * не просматриваются), полки склада — один раз, подзапросом.
+     */
+    private static final String ALLOCATION_SQL = """
+            SELECT t.id, t.version FROM (
+                SELECT l.id, l.version,
+                       SUM(l.quantity) OVER (ORDER BY %s ROWS UNBOUNDED PRECEDING) - l.quantity
+                           AS allocated_before
+                FROM items l
+                WHERE l.nomenclature_id = :nomenclatureId
+                AND l.status = 'IN_STOCK'
+                AND l.current_shelf_id IN (SELECT s.id FROM shelf s WHERE s.warehouse_id = :warehouseId)
+                AND l.quantity > 0
+                AND (l.expiry_date IS NULL OR l.expiry_date >= :today)
+            ) t
+            WHERE t.allocated_before < :quantity
+            """;
+
+    /** Партии распределения в порядке правила (%s); для просмотра без блокировки */
+    private static final String FIND_ALLOCATION_SQL = """
+            SELECT i.* FROM items i
+            JOIN (%s) a ON a.id = i.id
+            ORDER BY %s
+            """;
+
+    /** Блокировка выбранных партий по первичному ключу в порядке правила (%s) */
+    private static final String LOCK_ALLOCATION_SQL = """
+            SELECT i.* FROM items i
+            WHERE i.id IN (:ids)
+            ORDER BY %s
+            FOR UPDATE
+            """;
+
+    /** Порядок партий по правилам распределения (%1$s — псевдоним таблицы) */
+    private static final Map<AllocationPolicy, String> ALLOCATION_ORDER = new EnumMap<>(Map.of(
+            AllocationPolicy.FEFO, "%1$s.expiry_date NULLS LAST, %1$s.created_at, %1$s.id",
+            AllocationPolicy.FIFO, "%1$s.created_at, %1$s.id"));
+
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final StockLedger stockLedger = StockLedger.getInstance();
+
     /**
      * Создает экземпляр DAO для работы с товарными позициями
      */
     public ItemDao() {
-        super(Item.class);
+        super(Item.class, Item.GRAPH_STOCK_ROW);
     }
 
     /**
@@ -37,11 +101,11 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findByNomenclature(Nomenclature nomenclature) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Item WHERE nomenclature = :nomenclature ORDER BY createdAt DESC";
             Query<Item> query = session.createQuery(hql, Item.class);
             query.setParameter("nomenclature", nomenclature);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров по номенклатуре", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -58,17 +122,135 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findByStatus(ItemStatus status) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Item WHERE status = :status ORDER BY createdAt DESC";
             Query<Item> query = session.createQuery(hql, Item.class);
             query.setParameter("status", status);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров по статусу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Возвращает страницу товарных позиций с указанным статусом (keyset-пагинация)
+     * 
+     * <p>Позиции упорядочены по идентификатору; следующая страница начинается
+     * сразу после {@code afterId}. Сортировка указана по (status, id), чтобы
+     * H2 читал индекс (status, id) по порядку и останавливался после limit строк.</p>
+     * 
+     * @param status статус товара
+     * @param afterId идентификатор последней позиции предыдущей страницы или null для первой
+     * @param limit максимальное количество позиций на странице
+     * @return позиции страницы; страница короче limit — последняя
+     * @throws IllegalArgumentException если limit не положителен
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<Item> findPageByStatus(ItemStatus status, Long afterId, int limit) {
+        requirePositiveLimit(limit);
+        try (Session session = getReadOnlySession()) {
+            String hql = afterId == null
+                    ? "FROM Item i WHERE i.status = :status ORDER BY i.status, i.id"
+                    : "FROM Item i WHERE i.status = :status AND i.id > :afterId ORDER BY i.status, i.id";
+            Query<Item> query = session.createQuery(hql, Item.class);
+            query.setParameter("status", status);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            query.setMaxResults(limit);
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
+        } catch (Exception e) {
+            logger.error("Ошибка при получении страницы товаров по статусу", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает поток товарных позиций с указанным статусом
+     * 
+     * <p>Позиции упорядочены по идентификатору и читаются курсором.
+     * Поток необходимо закрыть: вместе с ним закрывается сессия.</p>
+     * 
+     * @param status статус товара
+     * @return поток товарных позиций
+     * @throws RuntimeException если произошла ошибка при открытии потока
+     */
+    public Stream<Item> streamByStatus(ItemStatus status) {
+        Session session = getReadOnlySession();
+        try {
+            String hql = "FROM Item i WHERE i.status = :status ORDER BY i.status, i.id";
+            Query<Item> query = session.createQuery(hql, Item.class);
+            query.setParameter("status", status);
+            return streamWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
+        } catch (Exception e) {
+            session.close();
+            logger.error("Ошибка при открытии потока товаров по статусу", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает поток товарных позиций в наличии на указанном складе
+     * 
+     * <p>Включает позиции в статусе IN_STOCK на любой полке склада. Поток
+     * предназначен для агрегирования, поэтому связи позиций не загружаются,
+     * а порядок строк не задан (без сортировки всей выборки).
+     * Поток необходимо закрыть: вместе с ним закрывается сессия.</p>
+     * 
+     * @param warehouse склад
+     * @return поток товарных позиций склада
+     * @throws RuntimeException если произошла ошибка при открытии потока
+     */
+    public Stream<Item> streamInStockByWarehouse(Warehouse warehouse) {
+        Session session = getReadOnlySession();
+        try {
+            String hql = """
+                SELECT i FROM Item i
+                JOIN i.currentShelf s
+                WHERE s.warehouse = :warehouse
+                AND i.status = 'IN_STOCK'
+                """;
+            Query<Item> query = session.createQuery(hql, Item.class);
+            query.setParameter("warehouse", warehouse);
+            return streamWithFetchGraph(session, query, null);
+        } catch (Exception e) {
+            session.close();
+            logger.error("Ошибка при открытии потока товаров склада", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает сводку по товарным позициям в наличии на указанном складе
+     * 
+     * <p>Количество позиций, общее количество и стоимость по цене продажи
+     * считаются одним агрегирующим запросом. Позиции выбираются по индексу
+     * статуса, поэтому проданные и списанные позиции на стоимость не влияют.</p>
+     * 
+     * @param warehouse склад
+     * @return сводка; для склада без товаров — нули
+     * @throws RuntimeException если произошла ошибка при выполнении запроса
+     */
+    public StockSummary summarizeInStockByWarehouse(Warehouse warehouse) {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.StockSummary(
+                    COUNT(i), COALESCE(SUM(i.quantity), 0), COALESCE(SUM(i.quantity * i.sellingPrice), 0))
+                FROM Item i
+                JOIN i.currentShelf s
+                WHERE s.warehouse = :warehouse
+                AND i.status = 'IN_STOCK'
+                """;
+            return session.createQuery(hql, StockSummary.class)
+                    .setParameter("warehouse", warehouse)
+                    .getSingleResult();
+        } catch (Exception e) {
+            logger.error("Ошибка при подсчёте сводки по складу", e);
+            throw new RuntimeException("Ошибка при подсчёте сводки: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Возвращает список товарных позиций на указанной полке
      * 
@@ -79,11 +261,11 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findByShelf(Shelf shelf) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Item WHERE currentShelf = :shelf ORDER BY nomenclature.name";
             Query<Item> query = session.createQuery(hql, Item.class);
             query.setParameter("shelf", shelf);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров на полке", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -100,11 +282,11 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findByBatchNumber(String batchNumber) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Item WHERE batchNumber = :batchNumber ORDER BY createdAt DESC";
             Query<Item> query = session.createQuery(hql, Item.class);
             query.setParameter("batchNumber", batchNumber);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров по номеру партии: {}", batchNumber, e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -123,7 +305,7 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при подсчёте
      */
     public BigDecimal getTotalQuantityByNomenclatureAndStatus(Nomenclature nomenclature, ItemStatus status) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "SELECT COALESCE(SUM(i.quantity), 0) FROM Item i WHERE i.nomenclature = :nomenclature AND i.status = :status";
             Query<BigDecimal> query = session.createQuery(hql, BigDecimal.class);
             query.setParameter("nomenclature", nomenclature);
@@ -135,35 +317,6 @@ public class ItemDao extends GenericDao<Item, Long> {
         }
     }
     
-    /**
-     * Возвращает остатки товаров с разбивкой по складам
-     * 
-     * <p>Для каждой комбинации номенклатура-склад возвращает суммарное количество
-     * товаров в статусе IN_STOCK. Результаты сортируются по артикулу номенклатуры
-     * и названию склада.</p>
-     * 
-     * @return список массивов объектов [nomenclature, warehouse, quantity]
-     * @throws RuntimeException если произошла ошибка при получении остатков
-     */
-    public List<Object[]> getStockByWarehouse() {
-        try (Session session = getSession()) {
-            String hql = """
-                SELECT i.nomenclature, s.warehouse, SUM(i.quantity)
-                FROM Item i
-                JOIN i.currentShelf s
-                JOIN s.warehouse
-                WHERE i.status = 'IN_STOCK' AND i.quantity > 0
-                GROUP BY i.nomenclature, s.warehouse
-                ORDER BY i.nomenclature.article, s.warehouse.name
-                """;
-            Query<Object[]> query = session.createQuery(hql, Object[].class);
-            return query.list();
-        } catch (Exception e) {
-            logger.error("Ошибка при получении остатков по складам", e);
-            throw new RuntimeException("Ошибка при получении остатков: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * Возвращает список просроченных товаров
      * 
@@ -174,10 +327,10 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findExpiredItems() {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Item WHERE expiryDate < CURRENT_DATE AND status = 'IN_STOCK' ORDER BY expiryDate";
             Query<Item> query = session.createQuery(hql, Item.class);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске просроченных товаров", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -196,44 +349,78 @@ public class ItemDao extends GenericDao<Item, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Item> findExpiringItems(int daysBeforeExpiry) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
+            // Граница периода вычисляется здесь: HQL не складывает дату с числом дней
+            LocalDate today = LocalDate.now();
             String hql = """
                 FROM Item
                 WHERE expiryDate IS NOT NULL
-                AND expiryDate > CURRENT_DATE
-                AND expiryDate <= (CURRENT_DATE + :days)
+                AND expiryDate > :today
+                AND expiryDate <= :until
                 AND status = 'IN_STOCK'
                 ORDER BY expiryDate
                 """;
             Query<Item> query = session.createQuery(hql, Item.class);
-            query.setParameter("days", daysBeforeExpiry);
-            return query.list();
+            query.setParameter("today", today);
+            query.setParameter("until", today.plusDays(daysBeforeExpiry));
+            return listWithFetchGraph(session, query, Item.GRAPH_STOCK_ROW);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров с истекающим сроком", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Возвращает товары в наличии с указанными идентификаторами
+     * 
+     * <p>Для отчётов по сроку годности, идентификаторы для которых выбраны
+     * {@link ExpiryIndex}: позиции читаются по первичному ключу
+     * ({@link #multiLoadWithFetchGraph}), без просмотра таблицы. Позиции, проданные или
+     * списанные после выбора, пропускаются. Результаты сортируются по дате
+     * истечения срока годности.</p>
+     * 
+     * @param ids идентификаторы товарных позиций
+     * @return товары в статусе IN_STOCK
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<Item> findInStockByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = getReadOnlySession()) {
+            List<Item> result = new ArrayList<>(ids.size());
+            for (Item item : multiLoadWithFetchGraph(session, List.copyOf(ids), Item.GRAPH_STOCK_ROW)) {
+                if (item.getStatus() == ItemStatus.IN_STOCK) {
+                    result.add(item);
+                }
+            }
+            result.sort(Comparator.comparing(Item::getExpiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Item::getId));
+            return result;
+        } catch (Exception e) {
+            logger.error("Ошибка при поиске товаров по идентификаторам", e);
+            throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Возвращает список доступных товаров по номенклатуре и складу
      * 
      * <p>Включает только товары в статусе IN_STOCK с количеством больше нуля,
-     * расположенные на указанном складе. Использует EAGER fetch для номенклатуры,
-     * полки и склада для предотвращения LazyInitializationException.
-     * Результаты сортируются по дате создания (FIFO).</p>
+     * расположенные на указанном складе. План загрузки «строка продажи»:
+     * номенклатура и полка, которые переходят в строку документа; склад известен
+     * вызывающему коду и не загружается. Результаты сортируются по дате создания (FIFO).</p>
      * 
      * @param nomenclature номенклатура товара
      * @param warehouse склад
      * @return список доступных товарных позиций
      * @throws RuntimeException если произошла ошибка при поиске
      */
-    public List<Item> findAvailableByNomenclatureAndWarehouse(Nomenclature nomenclature, com.store.inventory.domain.Warehouse warehouse) {
-        try (Session session = getSession()) {
+    public List<Item> findAvailableByNomenclatureAndWarehouse(Nomenclature nomenclature, Warehouse warehouse) {
+        try (Session session = getReadOnlySession()) {
             String hql = """
                 SELECT i FROM Item i
-                LEFT JOIN FETCH i.nomenclature
-                LEFT JOIN FETCH i.currentShelf s
-                LEFT JOIN FETCH s.warehouse
+                JOIN i.currentShelf s
                 WHERE i.nomenclature = :nomenclature
                 AND s.warehouse = :warehouse
                 AND i.status = 'IN_STOCK'
@@ -243,10 +430,353 @@ public class ItemDao extends GenericDao<Item, Long> {
             Query<Item> query = session.createQuery(hql, Item.class);
             query.setParameter("nomenclature", nomenclature);
             query.setParameter("warehouse", warehouse);
-            return query.list();
+            return listWithFetchGraph(session, query, Item.GRAPH_SALE_LINE);
         } catch (Exception e) {
             logger.error("Ошибка при поиске товаров по номенклатуре и складу", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Возвращает партии, на которые распределится количество реализации
+     * 
+     * <p>Партии в наличии указанной номенклатуры на складе, без просроченных,
+     * в порядке правила распределения: от первой до той, на которой нарастающий итог
+     * количества достигает требуемого. Отбор выполняется одним запросом в базе
+     * (оконная сумма), без загрузки остальных партий. Если количества не хватает,
+     * возвращаются все партии. Партии не блокируются: для предварительного просмотра плана.</p>
+     * 
+     * @param nomenclature номенклатура товара
+     * @param warehouse склад
+     * @param quantity требуемое количество
+     * @param policy правило распределения
+     * @param today текущая дата (партии со сроком раньше неё пропускаются)
+     * @return партии в порядке распределения
+     * @throws RuntimeException если произошла ошибка при поиске
+     */
+    public List<Item> findAllocation(Nomenclature nomenclature, Warehouse warehouse, BigDecimal quantity,
+                                     AllocationPolicy policy, LocalDate today) {
+        try (Session session = getReadOnlySession()) {
+            String order = ALLOCATION_ORDER.get(policy);
+            String sql = FIND_ALLOCATION_SQL.formatted(ALLOCATION_SQL.formatted(order.formatted("l")),
+                    order.formatted("i"));
+            return session.createNativeQuery(sql, Item.class)
+                    .setParameter("nomenclatureId", nomenclature.getId())
+                    .setParameter("warehouseId", warehouse.getId())
+                    .setParameter("quantity", quantity)
+                    .setParameter("today", today)
+                    .list();
+        } catch (Exception e) {
+            logger.error("Ошибка при распределении по партиям", e);
+            throw new RuntimeException("Ошибка при распределении по партиям: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Блокирует партии, на которые распределится количество реализации
+     * 
+     * <p>Тот же отбор, что {@link #findAllocation}, в транзакции вызывающего кода.
+     * Запрос с нарастающим итогом возвращает идентификаторы и версии партий, затем
+     * партии блокируются по первичному ключу ({@code SELECT ... FOR UPDATE}): до фиксации
+     * транзакции их не изменит другое соединение. Запрос с {@code FOR UPDATE} H2 не берёт
+     * из кэша разобранных запросов сессии и оптимизирует заново при каждом вызове, поэтому
+     * блокируется простой запрос по ключу, а запрос с оконной суммой остаётся в кэше.</p>
+     * 
+     * <p>Если между отбором и блокировкой партию изменило другое соединение (её версия
+     * изменилась или партия удалена), отбор повторяется в той же транзакции: уже
+     * заблокированные партии остаются заблокированными и не меняются, блокируются только
+     * вновь отобранные. Каждый повтор блокирует хотя бы одну новую партию, поэтому отбор
+     * завершается без отката транзакции и без повторов {@link com.store.inventory.util.TransactionRetry}.
+     * Проводки одной номенклатуры на складе в процессе сериализуются блокировкой остатков
+     * ({@link com.store.inventory.util.StripedLockManager}), и повтор нужен только при записи
+     * мимо неё (другой процесс, прямое изменение позиции). Возвращённые сущности принадлежат
+     * сессии и изменяются в ней.</p>
+     * 
+     * @param session сессия с открытой транзакцией
+     * @param nomenclatureId идентификатор номенклатуры
+     * @param warehouseId идентификатор склада
+     * @param quantity требуемое количество
+     * @param policy правило распределения
+     * @param today текущая дата (партии со сроком раньше неё пропускаются)
+     * @return заблокированные партии в порядке распределения
+     */
+    public List<Item> lockAllocation(Session session, Long nomenclatureId, Long warehouseId, BigDecimal quantity,
+                                     AllocationPolicy policy, LocalDate today) {
+        String order = ALLOCATION_ORDER.get(policy);
+        Map<Long, Item> locked = new HashMap<>();
+        while (true) {
+            List<Object[]> selected = session.createNativeQuery(
+                            ALLOCATION_SQL.formatted(order.formatted("l")), Object[].class)
+                    .setParameter("nomenclatureId", nomenclatureId)
+                    .setParameter("warehouseId", warehouseId)
+                    .setParameter("quantity", quantity)
+                    .setParameter("today", today)
+                    .list();
+            Set<Long> toLock = new HashSet<>();
+            for (Object[] row : selected) {
+                Long id = ((Number) row[0]).longValue();
+                if (!locked.containsKey(id)) {
+                    toLock.add(id);
+                }
+            }
+            if (!toLock.isEmpty()) {
+                for (Item lot : session.createNativeQuery(
+                                LOCK_ALLOCATION_SQL.formatted(order.formatted("i")), Item.class)
+                        .setParameterList("ids", toLock)
+                        .list()) {
+                    locked.put(lot.getId(), lot);
+                }
+            }
+            // Отбор действителен, если все партии заблокированы в прочитанной версии
+            List<Item> lots = new ArrayList<>(selected.size());
+            for (Object[] row : selected) {
+                Long id = ((Number) row[0]).longValue();
+                Item lot = locked.get(id);
+                if (lot == null || lot.getVersion() != ((Number) row[1]).longValue()) {
+                    if (lot != null && !toLock.contains(id)) {
+                        // Заблокированная ранее партия не меняется: в сессии был устаревший экземпляр
+                        session.refresh(lot);
+                    }
+                    lots = null;
+                    break;
+                }
+                lots.add(lot);
+            }
+            if (lots != null) {
+                return lots;
+            }
+            logger.debug("Партии номенклатуры #{} изменены при распределении, отбор повторяется", nomenclatureId);
+        }
+    }
+
+    /**
+     * Сохраняет или обновляет товарную позицию вместе с остатками
+     * 
+     * <p>Вклад позиции в остатки до изменения читается в той же транзакции,
+     * поэтому исправление количества, статуса или полки вручную отражается
+     * в таблице остатков.</p>
+     * 
+     * @param item товарная позиция
+     * @return сохранённая позиция
+     * @throws RuntimeException если произошла ошибка при сохранении
+     *         (в том числе при конфликте версий — позиция изменена другим пользователем)
+     */
+    @Override
+    public Item save(Item item) {
+        try {
+            return executeInTransaction(session -> {
+                StockBalanceChanges stock = new StockBalanceChanges();
+                if (item.getId() != null) {
+                    Item current = session.get(Item.class, item.getId());
+                    if (current != null) {
+                        stock.remove(current);
+                    }
+                }
+                Item saved = session.merge(item);
+                stock.add(saved);
+                stockBalanceDao.apply(session, stock);
+                return initializeDefaultFetchGraph(session, saved);
+            });
+        } catch (Exception e) {
+            logger.error("Ошибка при сохранении товарной позиции", e);
+            throw new RuntimeException("Ошибка при сохранении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сохраняет новые товарные позиции пакетами и добавляет их в остатки
+     *
+     * @param items новые товарные позиции
+     * @return сгенерированные идентификаторы в порядке позиций
+     * @throws RuntimeException если произошла ошибка при сохранении (транзакция откатывается)
+     */
+    @Override
+    public List<Long> persistAll(Collection<? extends Item> items) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return executeInTransaction(session -> {
+                StockBalanceChanges stock = new StockBalanceChanges();
+                List<Long> ids = new ArrayList<>(items.size());
+                for (Item item : items) {
+                    session.persist(item);
+                    stock.add(item);
+                    ids.add(item.getId());
+                    flushBatch(session, ids.size());
+                }
+                stockBalanceDao.apply(session, stock);
+                return ids;
+            });
+        } catch (Exception e) {
+            logger.error("Ошибка при пакетном сохранении товарных позиций", e);
+            throw new RuntimeException("Ошибка при пакетном сохранении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сохраняет или обновляет товарные позиции пакетами и переносит изменения в остатки
+     *
+     * <p>Вклад каждой существующей позиции вычитается в состоянии из базы до слияния,
+     * как в {@link #save(Item)}.</p>
+     *
+     * @param items товарные позиции
+     * @return идентификаторы сохранённых позиций в порядке позиций
+     * @throws RuntimeException если произошла ошибка при сохранении (транзакция откатывается)
+     */
+    @Override
+    public List<Long> saveAll(Collection<? extends Item> items) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return executeInTransaction(session -> {
+                StockBalanceChanges stock = new StockBalanceChanges();
+                List<Long> ids = new ArrayList<>(items.size());
+                for (Item item : items) {
+                    if (item.getId() != null) {
+                        Item current = session.get(Item.class, item.getId());
+                        if (current != null) {
+                            stock.remove(current);
+                        }
+                    }
+                    Item saved = session.merge(item);
+                    stock.add(saved);
+                    ids.add(saved.getId());
+                    flushBatch(session, ids.size());
+                }
+                stockBalanceDao.apply(session, stock);
+                return ids;
+            });
+        } catch (Exception e) {
+            logger.error("Ошибка при пакетном сохранении товарных позиций", e);
+            throw new RuntimeException("Ошибка при пакетном сохранении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Вычитает удаляемые товарные позиции из остатков
+     *
+     * <p>Вызывается всеми методами удаления базового DAO ({@code delete}, {@code deleteById},
+     * {@code deleteAllById}) в их транзакции. Позиции загружаются по первичному ключу,
+     * их вклад вычитается из таблицы остатков, а партии после фиксации исключаются
+     * из {@link StockLedger}.</p>
+     *
+     * @param session сессия с открытой транзакцией удаления
+     * @param ids идентификаторы удаляемых позиций
+     */
+    @Override
+    protected void deleteDependentRows(Session session, Collection<Long> ids) {
+        StockBalanceChanges stock = new StockBalanceChanges();
+        for (Item item : session.byMultipleIds(Item.class).multiLoad(List.copyOf(ids))) {
+            if (item != null) {
+                stock.remove(item);
+            }
+        }
+        stockBalanceDao.apply(session, stock);
+    }
+
+    /**
+     * Устанавливает значение атрибута у товарных позиций одним запросом UPDATE
+     * и переносит изменения в остатки
+     *
+     * <p>Остатки позиций до и после обновления суммируются запросами в той же
+     * транзакции, как в {@link #updateStatus(Collection, ItemStatus)}.</p>
+     *
+     * @param ids идентификаторы товарных позиций
+     * @param attribute имя атрибута позиции
+     * @param value новое значение (может быть null)
+     * @param <V> тип значения
+     * @return количество обновлённых позиций
+     * @throws IllegalArgumentException если атрибут не существует или тип значения не подходит
+     * @throws RuntimeException если произошла ошибка при обновлении (транзакция откатывается)
+     */
+    @Override
+    public <V> int updateAllById(Collection<Long> ids, String attribute, V value) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            return executeInTransaction(session -> {
+                StockBalanceChanges stock = new StockBalanceChanges();
+                collectStock(session, ids, BigDecimal.ONE.negate(), stock);
+                int updated = executeUpdateAllById(session, ids, attribute, value);
+                collectStock(session, ids, BigDecimal.ONE, stock);
+                stockBalanceDao.apply(session, stock);
+                stockLedger.reloadAfterCommit(session, ids);
+                return updated;
+            });
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Ошибка при массовом обновлении товарных позиций", e);
+            throw new RuntimeException("Ошибка при массовом обновлении: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Устанавливает статус товарных позиций одним запросом UPDATE
+     * 
+     * <p>Вместе со статусом обновляется дата изменения: запрос выполняется
+     * в обход контекста персистентности, и {@code @PreUpdate} не срабатывает.
+     * Запрос версионированный ({@code UPDATE VERSIONED}): версия позиций
+     * увеличивается, и проведение, прочитавшее позицию до смены статуса,
+     * завершится конфликтом версий, а не перезапишет статус.
+     * Остатки позиций до и после изменения статуса суммируются запросами
+     * в той же транзакции и переносятся в таблицу остатков; {@link StockLedger}
+     * перечитывает позиции после фиксации.</p>
+     * 
+     * @param ids идентификаторы товарных позиций
+     * @param status новый статус
+     * @return количество обновлённых позиций
+     * @throws RuntimeException если произошла ошибка при обновлении
+     */
+    public int updateStatus(Collection<Long> ids, ItemStatus status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            String hql = "UPDATE VERSIONED Item SET status = :status, updatedAt = :updatedAt WHERE id IN (:ids)";
+            return executeInTransaction(session -> {
+                StockBalanceChanges stock = new StockBalanceChanges();
+                collectStock(session, ids, BigDecimal.ONE.negate(), stock);
+                int updated = session.createMutationQuery(hql)
+                        .setParameter("status", status)
+                        .setParameter("updatedAt", LocalDateTime.now())
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+                collectStock(session, ids, BigDecimal.ONE, stock);
+                stockBalanceDao.apply(session, stock);
+                // Запрос UPDATE не передаёт журналу новые состояния: он перечитывает позиции из базы
+                stockLedger.reloadAfterCommit(session, ids);
+                return updated;
+            });
+        } catch (Exception e) {
+            logger.error("Ошибка при обновлении статуса товарных позиций", e);
+            throw new RuntimeException("Ошибка при обновлении статуса: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Добавляет к изменениям остатки позиций в наличии, сгруппированные по номенклатуре и полке
+     * 
+     * @param session сессия транзакции
+     * @param ids идентификаторы товарных позиций
+     * @param sign 1 — добавить остатки, -1 — вычесть
+     * @param stock изменения остатков
+     */
+    private void collectStock(Session session, Collection<Long> ids, BigDecimal sign, StockBalanceChanges stock) {
+        String hql = """
+            SELECT i.nomenclature.id, i.currentShelf.id, SUM(i.quantity)
+            FROM Item i
+            WHERE i.id IN (:ids) AND i.status = 'IN_STOCK' AND i.currentShelf IS NOT NULL
+            GROUP BY i.nomenclature.id, i.currentShelf.id
+            """;
+        List<Object[]> rows = session.createQuery(hql, Object[].class)
+                .setParameterList("ids", ids)
+                .list();
+        for (Object[] row : rows) {
+            stock.add((Long) row[0], (Long) row[1], ((BigDecimal) row[2]).multiply(sign));
+        }
+    }
 }
@@ -30,7 +30,7 @@ public class ManufacturerDao extends GenericDao<Manufacturer, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<Manufacturer> findByName(String name) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Manufacturer WHERE name = :name";
             Query<Manufacturer> query = session.createQuery(hql, Manufacturer.class);
             query.setParameter("name", name);
@@ -51,7 +51,7 @@ public class ManufacturerDao extends GenericDao<Manufacturer, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public java.util.List<Manufacturer> findByCountry(String country) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Manufacturer WHERE country = :country ORDER BY name";
             Query<Manufacturer> query = session.createQuery(hql, Manufacturer.class);
             query.setParameter("country", country);
@@ -2,9 +2,16 @@ package com.store.inventory.repository;
 
 import com.store.inventory.domain.Manufacturer;
 import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.dto.NomenclatureRow;
+import com.store.inventory.dto.StockThreshold;
 import org.hibernate.Session;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,11 +24,24 @@ import java.util.Optional;
  */
 public class NomenclatureDao extends GenericDao<Nomenclature, Long> {
 
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+
     /**
      * Создает экземпляр DAO для работы с номенклатурой
      */
     public NomenclatureDao() {
-        super(Nomenclature.class);
+        super(Nomenclature.class, Nomenclature.GRAPH_WITH_MANUFACTURER);
+    }
+
+    /**
+     * Удаляет остатки удаляемой номенклатуры
+     * 
+     * @param session сессия с открытой транзакцией удаления
+     * @param ids идентификаторы удаляемой номенклатуры
+     */
+    @Override
+    protected void deleteDependentRows(Session session, Collection<Long> ids) {
+        stockBalanceDao.deleteByNomenclature(session, ids);
     }
 
     /**
@@ -32,10 +52,11 @@ public class NomenclatureDao extends GenericDao<Nomenclature, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<Nomenclature> findByArticle(String article) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Nomenclature WHERE article = :article";
             Query<Nomenclature> query = session.createQuery(hql, Nomenclature.class);
             query.setParameter("article", article);
+            query.setCacheable(true).setCacheRegion(REFERENCE_QUERY_REGION);
             return query.uniqueResultOptional();
         } catch (Exception e) {
             logger.error("Ошибка при поиске номенклатуры по артикулу: {}", article, e);
@@ -53,11 +74,11 @@ public class NomenclatureDao extends GenericDao<Nomenclature, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Nomenclature> findByManufacturer(Manufacturer manufacturer) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Nomenclature WHERE manufacturer = :manufacturer ORDER BY name";
             Query<Nomenclature> query = session.createQuery(hql, Nomenclature.class);
             query.setParameter("manufacturer", manufacturer);
-            return query.list();
+            return listWithFetchGraph(session, query, Nomenclature.GRAPH_WITH_MANUFACTURER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске номенклатуры по производителю", e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -74,11 +95,11 @@ public class NomenclatureDao extends GenericDao<Nomenclature, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public List<Nomenclature> searchByName(String searchTerm) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Nomenclature WHERE LOWER(name) LIKE LOWER(:searchTerm) ORDER BY name";
             Query<Nomenclature> query = session.createQuery(hql, Nomenclature.class);
             query.setParameter("searchTerm", "%" + searchTerm + "%");
-            return query.list();
+            return listWithFetchGraph(session, query, Nomenclature.GRAPH_WITH_MANUFACTURER);
         } catch (Exception e) {
             logger.error("Ошибка при поиске номенклатуры по названию: {}", searchTerm, e);
             throw new RuntimeException("Ошибка при поиске: " + e.getMessage(), e);
@@ -88,27 +109,110 @@ public class NomenclatureDao extends GenericDao<Nomenclature, Long> {
     /**
      * Возвращает номенклатуру, у которой текущий остаток ниже минимального уровня
      * 
-     * <p>Для каждой номенклатуры подсчитывается сумма доступных товаров в статусе IN_STOCK
-     * и сравнивается с минимальным уровнем запаса. Результаты сортируются по названию.</p>
+     * <p>Остаток номенклатуры на всех полках берётся из таблицы остатков (по первому
+     * столбцу её ключа) и сравнивается с минимальным уровнем запаса. Таблица остатков
+     * ведётся по полкам, поэтому позиции в наличии без полки в остаток не входят:
+     * номенклатура, все партии которой не размещены на полках, считается отсутствующей.
+     * Результаты сортируются по названию.</p>
      * 
      * @return список номенклатуры с низким уровнем запаса
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<Nomenclature> findLowStockItems() {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = """
                 FROM Nomenclature n
-                WHERE (SELECT COALESCE(SUM(i.quantity), 0)
-                       FROM Item i
-                       WHERE i.nomenclature = n AND i.status = 'IN_STOCK') < n.minStockLevel
+                WHERE (SELECT COALESCE(SUM(b.quantity), 0)
+                       FROM StockBalance b
+                       WHERE b.nomenclature = n) < n.minStockLevel
                 ORDER BY n.name
                 """;
             Query<Nomenclature> query = session.createQuery(hql, Nomenclature.class);
-            return query.list();
+            return listWithFetchGraph(session, query, Nomenclature.GRAPH_WITH_MANUFACTURER);
         } catch (Exception e) {
             logger.error("Ошибка при получении номенклатуры с низким запасом", e);
             throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Возвращает номенклатуру с указанными идентификаторами
+     *
+     * <p>Номенклатура читается по идентификаторам ({@code multiLoad}): записи, которые есть
+     * в кэше второго уровня, берутся из него, остальные загружаются одним запросом.
+     * Результаты сортируются по названию; отсутствующие идентификаторы пропускаются.</p>
+     *
+     * @param ids идентификаторы номенклатуры
+     * @return список номенклатуры
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    @SuppressWarnings("unchecked")
+    public List<Nomenclature> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = getReadOnlySession()) {
+            RootGraph<Nomenclature> graph =
+                    (RootGraph<Nomenclature>) session.getEntityGraph(Nomenclature.GRAPH_WITH_MANUFACTURER);
+            List<Nomenclature> found = session.byMultipleIds(Nomenclature.class)
+                    .with(graph, GraphSemantic.LOAD)
+                    .multiLoad(List.copyOf(ids));
+            List<Nomenclature> result = new ArrayList<>(found.size());
+            for (Nomenclature nomenclature : found) {
+                if (nomenclature != null) {
+                    result.add(nomenclature);
+                }
+            }
+            result.sort(Comparator.comparing(Nomenclature::getName));
+            return result;
+        } catch (Exception e) {
+            logger.error("Ошибка при получении номенклатуры по идентификаторам", e);
+            throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает минимальные уровни запаса всей номенклатуры
+     *
+     * <p>Проекция ({@code select new}) на {@link StockThreshold}; сущности не создаются.</p>
+     *
+     * @return минимальные уровни запаса
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    public List<StockThreshold> findStockThresholds() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.StockThreshold(n.id, n.article, n.name, n.minStockLevel)
+                FROM Nomenclature n
+                """;
+            return session.createQuery(hql, StockThreshold.class).list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении минимальных уровней запаса", e);
+            throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает строки таблицы номенклатуры
+     * 
+     * <p>Проекция ({@code select new}) на {@link NomenclatureRow} с названием
+     * производителя; сущности не создаются. Результаты сортируются по артикулу.</p>
+     * 
+     * @return строки номенклатуры
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    public List<NomenclatureRow> findRows() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.NomenclatureRow(n.id, n.article, n.name, m.name, n.unit)
+                FROM Nomenclature n
+                LEFT JOIN n.manufacturer m
+                ORDER BY n.article
+                """;
+            return session.createQuery(hql, NomenclatureRow.class).list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении строк номенклатуры", e);
+            throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.store.inventory.domain.Warehouse;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,11 +18,24 @@ import java.util.Optional;
  */
 public class ShelfDao extends GenericDao<Shelf, Long> {
 
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+
     /**
      * Создает экземпляр DAO для работы с полками
      */
     public ShelfDao() {
-        super(Shelf.class);
+        super(Shelf.class, Shelf.GRAPH_WITH_WAREHOUSE);
+    }
+
+    /**
+     * Удаляет остатки удаляемых полок
+     * 
+     * @param session сессия с открытой транзакцией удаления
+     * @param ids идентификаторы удаляемых полок
+     */
+    @Override
+    protected void deleteDependentRows(Session session, Collection<Long> ids) {
+        stockBalanceDao.deleteByShelf(session, ids);
     }
 
     /**
@@ -35,7 +49,7 @@ public class ShelfDao extends GenericDao<Shelf, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<Shelf> findByWarehouseAndCode(Warehouse warehouse, String code) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Shelf WHERE warehouse = :warehouse AND code = :code";
             Query<Shelf> query = session.createQuery(hql, Shelf.class);
             query.setParameter("warehouse", warehouse);
@@ -57,7 +71,7 @@ public class ShelfDao extends GenericDao<Shelf, Long> {
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<Shelf> findByWarehouse(Warehouse warehouse) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Shelf WHERE warehouse = :warehouse ORDER BY code";
             Query<Shelf> query = session.createQuery(hql, Shelf.class);
             query.setParameter("warehouse", warehouse);
@@ -78,10 +92,11 @@ public class ShelfDao extends GenericDao<Shelf, Long> {
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<Shelf> findActiveByWarehouse(Warehouse warehouse) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Shelf WHERE warehouse = :warehouse AND isActive = true ORDER BY code";
             Query<Shelf> query = session.createQuery(hql, Shelf.class);
             query.setParameter("warehouse", warehouse);
+            query.setCacheable(true).setCacheRegion(REFERENCE_QUERY_REGION);
             return query.list();
         } catch (Exception e) {
             logger.error("Ошибка при получении активных полок склада", e);
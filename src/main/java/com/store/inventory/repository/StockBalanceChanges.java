@@ -0,0 +1,144 @@
+package com.store.inventory.repository;
+
+import com.store.inventory.domain.Item;
+import com.store.inventory.domain.ItemStatus;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Изменения остатков в одной транзакции
+ *
+ * <p>Сервис отмечает вклад товарной позиции в остатки до её изменения
+ * ({@link #remove(Item)}) и после ({@link #add(Item)}); в остатки входят позиции
+ * в статусе IN_STOCK, расположенные на полке. Изменения по одной номенклатуре
+ * и полке складываются. {@link StockBalanceDao#apply(org.hibernate.Session, StockBalanceChanges)}
+ * записывает их в порядке ключа, поэтому параллельные проведения блокируют
+ * общие строки остатков в одном порядке и не взаимоблокируются.</p>
+ *
+ * <p>Для {@link StockLedger} запоминается последнее состояние каждой партии;
+ * позиция, для которой после {@link #remove(Item)} не вызван {@link #add(Item)},
+ * считается удалённой.</p>
+ *
+ * <pre>{@code
+ * StockBalanceChanges stock = new StockBalanceChanges();
+ * stock.remove(item);
+ * item.setCurrentShelf(targetShelf);
+ * stock.add(item);
+ * stockBalanceDao.apply(session, stock);
+ * }</pre>
+ */
+public final class StockBalanceChanges {
+
+    private final Map<Key, BigDecimal> deltas = new TreeMap<>();
+
+    /** Партии после изменения по идентификатору позиции; null — позиция удалена */
+    private final Map<Long, Lot> lots = new LinkedHashMap<>();
+
+    /**
+     * Добавляет вклад позиции в её текущем состоянии
+     *
+     * @param item товарная позиция
+     */
+    public void add(Item item) {
+        boolean counted = isCounted(item);
+        if (counted) {
+            add(item.getNomenclature().getId(), item.getCurrentShelf().getId(), item.getQuantity());
+        }
+        if (item.getId() != null) {
+            lots.put(item.getId(), counted
+                    ? new Lot(item, item.getNomenclature().getId(), item.getCurrentShelf().getWarehouse().getId(),
+                            StockLedger.toUnits(item.getQuantity()), StockLedger.toExpiryDay(item.getExpiryDate()))
+                    : new Lot(item, 0, 0, 0, StockLedger.LotState.NO_EXPIRY));
+        }
+    }
+
+    /**
+     * Вычитает вклад позиции в её текущем состоянии
+     *
+     * <p>Вызывается до изменения или удаления позиции.</p>
+     *
+     * @param item товарная позиция
+     */
+    public void remove(Item item) {
+        if (isCounted(item)) {
+            add(item.getNomenclature().getId(), item.getCurrentShelf().getId(), item.getQuantity().negate());
+        }
+        if (item.getId() != null) {
+            lots.put(item.getId(), null);
+        }
+    }
+
+    /**
+     * Добавляет изменение остатка номенклатуры на полке
+     *
+     * @param nomenclatureId идентификатор номенклатуры
+     * @param shelfId идентификатор полки
+     * @param delta изменение количества (отрицательное — уменьшение)
+     */
+    void add(long nomenclatureId, long shelfId, BigDecimal delta) {
+        deltas.merge(new Key(nomenclatureId, shelfId), delta, BigDecimal::add);
+    }
+
+    /**
+     * @return true, если изменений нет
+     */
+    public boolean isEmpty() {
+        return deltas.values().stream().allMatch(delta -> delta.signum() == 0);
+    }
+
+    /**
+     * @return изменения по возрастанию ключа
+     */
+    Set<Map.Entry<Key, BigDecimal>> entries() {
+        return deltas.entrySet();
+    }
+
+    /**
+     * @return партии после изменения; null — позиция удалена
+     */
+    Map<Long, Lot> lots() {
+        return lots;
+    }
+
+    /**
+     * Возвращает состояние партий после фиксации транзакции
+     *
+     * <p>Версия читается из позиции: при фиксации Hibernate записывает в неё новую версию.</p>
+     *
+     * @return состояние по идентификатору позиции
+     */
+    Map<Long, StockLedger.LotState> committedLots() {
+        Map<Long, StockLedger.LotState> states = new LinkedHashMap<>();
+        lots.forEach((itemId, lot) -> states.put(itemId, lot == null
+                ? StockLedger.LotState.DELETED
+                : new StockLedger.LotState(lot.nomenclatureId(), lot.warehouseId(), lot.quantity(),
+                        lot.expiryDay(), lot.item().getVersion())));
+        return states;
+    }
+
+    private static boolean isCounted(Item item) {
+        return item.getStatus() == ItemStatus.IN_STOCK && item.getCurrentShelf() != null;
+    }
+
+    /**
+     * Партия после изменения: количество в тысячных долях, 0 — не в наличии
+     */
+    record Lot(Item item, long nomenclatureId, long warehouseId, long quantity, long expiryDay) {
+    }
+
+    /**
+     * Ключ изменения: склад определяется полкой
+     */
+    record Key(long nomenclatureId, long shelfId) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int result = Long.compare(nomenclatureId, other.nomenclatureId);
+            return result != 0 ? result : Long.compare(shelfId, other.shelfId);
+        }
+    }
+}
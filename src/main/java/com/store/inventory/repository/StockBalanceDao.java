@@ -0,0 +1,352 @@
+package com.store.inventory.repository;
+
+import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.domain.StockBalance;
+import com.store.inventory.domain.StockBalanceId;
+import com.store.inventory.dto.StockBalanceDiscrepancy;
+import com.store.inventory.dto.StockRow;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO для работы с материализованными остатками
+ *
+ * <p>Таблица {@code stock_balance} хранит остаток каждой номенклатуры на каждой полке.
+ * Сервисы проведения передают изменения позиций в {@link #apply(Session, StockBalanceChanges)}
+ * в своей транзакции, отчёты читают остатки без суммирования товарных позиций.
+ * Массовая загрузка позиций в обход сервисов (начальные и синтетические данные)
+ * завершается {@link #rebuild()}; {@link #verify()} сравнивает таблицу с позициями.</p>
+ *
+ * <p>Строки изменяются через JDBC, а не через сущность {@link StockBalance}:
+ * приращение выполняется в базе ({@code quantity = quantity + ?}) и не зависит
+ * от значения, прочитанного транзакцией.</p>
+ */
+public class StockBalanceDao extends GenericDao<StockBalance, StockBalanceId> {
+
+    private static final String UPDATE_BALANCE =
+            "UPDATE stock_balance SET quantity = quantity + ? WHERE nomenclature_id = ? AND shelf_id = ?";
+
+    private static final String INSERT_BALANCE = """
+            INSERT INTO stock_balance (nomenclature_id, warehouse_id, shelf_id, quantity)
+            SELECT ?, warehouse_id, id, ? FROM shelf WHERE id = ?
+            """;
+
+    /** Остатки по товарным позициям; тот же запрос заполняет таблицу в миграции V6 */
+    private static final String COMPUTE_BALANCES = """
+            SELECT i.nomenclature_id, s.warehouse_id, i.current_shelf_id, SUM(i.quantity)
+            FROM items i
+            JOIN shelf s ON s.id = i.current_shelf_id
+            WHERE i.status = 'IN_STOCK'
+            GROUP BY i.nomenclature_id, s.warehouse_id, i.current_shelf_id
+            HAVING SUM(i.quantity) <> 0
+            """;
+
+    private static final String FIND_DISCREPANCIES = """
+            SELECT nomenclature_id, warehouse_id, shelf_id, SUM(expected), SUM(recorded)
+            FROM (
+                SELECT i.nomenclature_id, s.warehouse_id, i.current_shelf_id AS shelf_id,
+                       i.quantity AS expected, 0 AS recorded
+                FROM items i
+                JOIN shelf s ON s.id = i.current_shelf_id
+                WHERE i.status = 'IN_STOCK'
+                UNION ALL
+                SELECT nomenclature_id, warehouse_id, shelf_id, 0, quantity
+                FROM stock_balance
+            ) balances
+            GROUP BY nomenclature_id, warehouse_id, shelf_id
+            HAVING SUM(expected) <> SUM(recorded)
+            ORDER BY nomenclature_id, warehouse_id, shelf_id
+            """;
+
+    private static final String DELETE_BY_NOMENCLATURE = "DELETE FROM stock_balance WHERE nomenclature_id IN (:ids)";
+
+    private static final String DELETE_BY_WAREHOUSE = "DELETE FROM stock_balance WHERE warehouse_id IN (:ids)";
+
+    private static final String DELETE_BY_SHELF = "DELETE FROM stock_balance WHERE shelf_id IN (:ids)";
+
+    /** SQLSTATE нарушения уникальности */
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final StockLedger stockLedger = StockLedger.getInstance();
+
+    /**
+     * Создает экземпляр DAO для работы с остатками
+     */
+    public StockBalanceDao() {
+        super(StockBalance.class);
+    }
+
+    /**
+     * Записывает изменения остатков в транзакции сессии
+     *
+     * <p>Вызывается перед фиксацией транзакции проведения, чтобы строки остатков
+     * оставались заблокированными как можно меньше. Отсутствующая строка
+     * вставляется; если её одновременно вставила другая транзакция, вставка
+     * дожидается её фиксации и изменение применяется к вставленной строке.
+     * Остатки пишутся через соединение сессии, поэтому сначала сбрасываются
+     * ожидающие изменения сессии (полки и номенклатура, созданные в той же транзакции).
+     * После фиксации транзакции изменённые партии передаются в {@link StockLedger}.</p>
+     *
+     * @param session сессия с открытой транзакцией проведения
+     * @param changes изменения остатков
+     * @throws org.hibernate.JDBCException если произошла ошибка при записи
+     */
+    public void apply(Session session, StockBalanceChanges changes) {
+        stockLedger.applyAfterCommit(session, changes);
+        if (changes.isEmpty()) {
+            return;
+        }
+        session.flush();
+        session.doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_BALANCE);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_BALANCE)) {
+                for (Map.Entry<StockBalanceChanges.Key, BigDecimal> change : changes.entries()) {
+                    StockBalanceChanges.Key key = change.getKey();
+                    BigDecimal delta = change.getValue();
+                    if (delta.signum() == 0) {
+                        continue;
+                    }
+                    if (!update(update, key, delta) && !insert(insert, key, delta) && !update(update, key, delta)) {
+                        throw new SQLException("Не удалось изменить остаток номенклатуры #"
+                                + key.nomenclatureId() + " на полке #" + key.shelfId());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Удаляет остатки номенклатуры перед её удалением
+     *
+     * <p>Строки с нулевым остатком в таблице сохраняются, поэтому у номенклатуры,
+     * у которой когда-либо были партии, строки остатков есть всегда; без их удаления
+     * внешний ключ не позволил бы удалить номенклатуру. Партии номенклатуры
+     * удаляются вместе с ней, поэтому её остатки теряют смысл.</p>
+     *
+     * @param session сессия с открытой транзакцией удаления
+     * @param nomenclatureIds идентификаторы удаляемой номенклатуры
+     * @return количество удалённых строк
+     */
+    public int deleteByNomenclature(Session session, Collection<Long> nomenclatureIds) {
+        return delete(session, DELETE_BY_NOMENCLATURE, nomenclatureIds);
+    }
+
+    /**
+     * Удаляет остатки склада перед его удалением
+     *
+     * @param session сессия с открытой транзакцией удаления
+     * @param warehouseIds идентификаторы удаляемых складов
+     * @return количество удалённых строк
+     * @see #deleteByNomenclature(Session, Collection)
+     */
+    public int deleteByWarehouse(Session session, Collection<Long> warehouseIds) {
+        return delete(session, DELETE_BY_WAREHOUSE, warehouseIds);
+    }
+
+    /**
+     * Удаляет остатки полки перед её удалением
+     *
+     * @param session сессия с открытой транзакцией удаления
+     * @param shelfIds идентификаторы удаляемых полок
+     * @return количество удалённых строк
+     * @see #deleteByNomenclature(Session, Collection)
+     */
+    public int deleteByShelf(Session session, Collection<Long> shelfIds) {
+        return delete(session, DELETE_BY_SHELF, shelfIds);
+    }
+
+    /**
+     * Пересчитывает таблицу остатков по товарным позициям
+     *
+     * <p>Таблица очищается и заполняется заново в одной транзакции.
+     * Выполняется после массовой загрузки позиций и для исправления расхождений;
+     * проведения, начатые во время пересчёта, ожидают его завершения на блокировках строк.</p>
+     *
+     * @return количество строк остатков
+     * @throws RuntimeException если произошла ошибка при пересчёте
+     */
+    public int rebuild() {
+        try {
+            long started = System.nanoTime();
+            int rows = executeInTransaction(session -> {
+                // Внутри единицы работы позиции могут быть ещё не отправлены в базу
+                session.flush();
+                return session.doReturningWork(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate("DELETE FROM stock_balance");
+                        return statement.executeUpdate(
+                                "INSERT INTO stock_balance (nomenclature_id, warehouse_id, shelf_id, quantity) "
+                                        + COMPUTE_BALANCES);
+                    }
+                });
+            });
+            logger.info("Остатки пересчитаны по товарным позициям: {} строк за {} мс",
+                    rows, (System.nanoTime() - started) / 1_000_000);
+            return rows;
+        } catch (Exception e) {
+            logger.error("Ошибка при пересчёте остатков", e);
+            throw new RuntimeException("Ошибка при пересчёте остатков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сравнивает таблицу остатков с товарными позициями
+     *
+     * @return расхождения по возрастанию номенклатуры, склада и полки; пусто, если их нет
+     * @throws RuntimeException если произошла ошибка при проверке
+     */
+    public List<StockBalanceDiscrepancy> verify() {
+        try (Session session = getReadOnlySession()) {
+            List<Object[]> rows = session.createNativeQuery(FIND_DISCREPANCIES, Object[].class).list();
+            return rows.stream()
+                    .map(row -> new StockBalanceDiscrepancy(
+                            ((Number) row[0]).longValue(),
+                            ((Number) row[1]).longValue(),
+                            ((Number) row[2]).longValue(),
+                            toBigDecimal(row[3]),
+                            toBigDecimal(row[4])))
+                    .toList();
+        } catch (Exception e) {
+            logger.error("Ошибка при проверке остатков", e);
+            throw new RuntimeException("Ошибка при проверке остатков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает остатки с разбивкой по складам
+     *
+     * <p>Для каждой комбинации номенклатура-склад возвращает остаток в наличии.
+     * Результаты сортируются по артикулу номенклатуры и названию склада.
+     * Производитель номенклатуры отображается в таблице остатков, поэтому он
+     * инициализируется до закрытия сессии.</p>
+     *
+     * @return список массивов объектов [nomenclature, warehouse, quantity]
+     * @throws RuntimeException если произошла ошибка при получении остатков
+     */
+    public List<Object[]> findStockByWarehouse() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT b.nomenclature, b.warehouse, SUM(b.quantity)
+                FROM StockBalance b
+                WHERE b.quantity > 0
+                GROUP BY b.nomenclature, b.warehouse
+                ORDER BY b.nomenclature.article, b.warehouse.name
+                """;
+            List<Object[]> rows = session.createQuery(hql, Object[].class).list();
+            for (Object[] row : rows) {
+                Hibernate.initialize(((Nomenclature) row[0]).getManufacturer());
+            }
+            return rows;
+        } catch (Exception e) {
+            logger.error("Ошибка при получении остатков по складам", e);
+            throw new RuntimeException("Ошибка при получении остатков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает строки таблицы остатков по складам
+     *
+     * <p>Проекция ({@code select new}) на {@link StockRow}; сущности не создаются.
+     * Результаты сортируются по артикулу и названию склада.</p>
+     *
+     * @return строки остатков
+     * @throws RuntimeException если произошла ошибка при получении остатков
+     */
+    public List<StockRow> findStockRows() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.StockRow(
+                    n.article, n.name, m.name, w.name, SUM(b.quantity), n.unit)
+                FROM StockBalance b
+                JOIN b.nomenclature n
+                LEFT JOIN n.manufacturer m
+                JOIN b.warehouse w
+                WHERE b.quantity > 0
+                GROUP BY n.id, n.article, n.name, m.name, w.id, w.name, n.unit
+                ORDER BY n.article, w.name
+                """;
+            return session.createQuery(hql, StockRow.class).list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении строк остатков", e);
+            throw new RuntimeException("Ошибка при получении остатков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает общие остатки по номенклатуре на всех складах
+     *
+     * @return остаток по идентификатору номенклатуры; номенклатуры без остатка в карте нет
+     * @throws RuntimeException если произошла ошибка при получении остатков
+     */
+    public Map<Long, BigDecimal> findTotalsByNomenclature() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT b.id.nomenclatureId, SUM(b.quantity)
+                FROM StockBalance b
+                GROUP BY b.id.nomenclatureId
+                """;
+            Map<Long, BigDecimal> totals = new HashMap<>();
+            for (Object[] row : session.createQuery(hql, Object[].class).list()) {
+                totals.put((Long) row[0], (BigDecimal) row[1]);
+            }
+            return totals;
+        } catch (Exception e) {
+            logger.error("Ошибка при получении остатков по номенклатуре", e);
+            throw new RuntimeException("Ошибка при получении остатков: " + e.getMessage(), e);
+        }
+    }
+
+    private static int delete(Session session, String sql, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return session.createNativeQuery(sql)
+                .addSynchronizedEntityClass(StockBalance.class)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    private static boolean update(PreparedStatement update, StockBalanceChanges.Key key, BigDecimal delta)
+            throws SQLException {
+        update.setBigDecimal(1, delta);
+        update.setLong(2, key.nomenclatureId());
+        update.setLong(3, key.shelfId());
+        return update.executeUpdate() > 0;
+    }
+
+    /**
+     * Вставляет строку остатка
+     *
+     * @return false, если строку уже вставила параллельная транзакция
+     */
+    private static boolean insert(PreparedStatement insert, StockBalanceChanges.Key key, BigDecimal delta)
+            throws SQLException {
+        insert.setLong(1, key.nomenclatureId());
+        insert.setBigDecimal(2, delta);
+        insert.setLong(3, key.shelfId());
+        try {
+            if (insert.executeUpdate() == 0) {
+                throw new SQLException("Полка не найдена (#" + key.shelfId() + ")");
+            }
+            return true;
+        } catch (SQLException e) {
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,588 @@
+package com.store.inventory.repository;
+
+import com.store.inventory.domain.ItemStatus;
+import com.store.inventory.util.StripedLockManager;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Журнал остатков в памяти процесса
+ *
+ * <p>Хранит доступное количество каждой партии (товарной позиции в статусе IN_STOCK
+ * на полке) и суммы по номенклатуре и по номенклатуре на складе, чтобы проверки
+ * доступности при подборе строк реализации не обращались к базе.</p>
+ *
+ * <p>При запуске журнал заполняется из базы ({@link #load()}). Затем
+ * {@link StockBalanceDao#apply(Session, StockBalanceChanges)} регистрирует в транзакции
+ * проведения обработчик, который после фиксации передаёт журналу состояние изменённых
+ * партий; откаченные транзакции журнал не меняют. Состояние партии заменяется сравнением
+ * с обменом (CAS) и только состоянием с более новой версией записи ({@code @Version}):
+ * обновления, пришедшие не в порядке фиксации, и чтение базы при запуске не затирают
+ * более новое состояние. Суммы — атомарные счётчики, которые изменяются на разность
+ * старого и нового состояния партии. Чтение и изменение известных ключей не блокируются.</p>
+ *
+ * <p>Изменения в обход DAO (другие процессы, правка базы вручную) журнал не видит:
+ * {@link #reconcile()} сверяет его с базой, исправляет расхождения и сообщает о них
+ * в журнал приложения; {@link #startReconciliation(Duration)} выполняет сверку периодически.</p>
+ *
+ * <p>{@link Listener} получает номенклатуру, суммы которой изменились после фиксации
+ * или сверки, в потоке, который их изменил.</p>
+ *
+ * <p>Каждое изменение партии передаётся {@link ExpiryIndex}, поэтому индекс сроков
+ * годности содержит ровно партии журнала.</p>
+ */
+public final class StockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final StockLedger INSTANCE = new StockLedger();
+
+    /** Количество хранится в тысячных долях — масштаб столбца items.quantity */
+    private static final int SCALE = 3;
+
+    /** Идентификаторов партий в одном запросе перечитывания */
+    private static final int READ_BATCH_SIZE = 500;
+
+    /** Период сверки с базой, мин (0 — не сверять) */
+    private static final String RECONCILE_MINUTES = "inventory.ledger.reconcileMinutes";
+
+    private static final long DEFAULT_RECONCILE_MINUTES = 10;
+
+    private static final String SELECT_LOTS_IN_STOCK = """
+            SELECT i.id, i.nomenclature_id, s.warehouse_id, i.quantity, i.expiry_date, i.version
+            FROM items i
+            JOIN shelf s ON s.id = i.current_shelf_id
+            WHERE i.status = 'IN_STOCK' AND i.quantity > 0
+            """;
+
+    private final Map<Long, AtomicReference<LotState>> lots = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> byNomenclature = new ConcurrentHashMap<>();
+    private final Map<WarehouseKey, AtomicLong> byWarehouse = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong correctedLots = new AtomicLong();
+
+    /** Журнал принимает изменения после фиксации (включается в начале загрузки) */
+    private volatile boolean tracking;
+
+    /** Журнал заполнен из базы и отвечает на запросы доступности */
+    private volatile boolean loaded;
+
+    private ScheduledExecutorService reconciler;
+
+    private StockLedger() {
+    }
+
+    /**
+     * Возвращает общий журнал остатков процесса
+     *
+     * @return журнал остатков
+     */
+    public static StockLedger getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Заполняет журнал партиями в наличии из базы
+     *
+     * <p>Изменения, зафиксированные во время загрузки, принимаются сразу:
+     * прочитанное из базы состояние партии не заменяет более новое.</p>
+     *
+     * @throws RuntimeException если произошла ошибка при чтении базы
+     */
+    public void load() {
+        tracking = true;
+        long started = System.nanoTime();
+        Map<Long, LotState> database = readLotsInStock();
+        database.forEach((lotId, state) -> update(lotId, state, true, null));
+        loaded = true;
+        logger.info("Журнал остатков заполнен: {} партий за {} мс",
+                database.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @return true, если журнал заполнен и отвечает на запросы доступности
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Возвращает доступное количество номенклатуры на всех складах
+     *
+     * @param nomenclatureId идентификатор номенклатуры
+     * @return количество в наличии
+     */
+    public BigDecimal getAvailable(long nomenclatureId) {
+        return toQuantity(byNomenclature.get(nomenclatureId));
+    }
+
+    /**
+     * Возвращает доступное количество номенклатуры на складе
+     *
+     * @param nomenclatureId идентификатор номенклатуры
+     * @param warehouseId идентификатор склада
+     * @return количество в наличии
+     */
+    public BigDecimal getAvailable(long nomenclatureId, long warehouseId) {
+        return toQuantity(byWarehouse.get(new WarehouseKey(nomenclatureId, warehouseId)));
+    }
+
+    /**
+     * Возвращает доступное количество партии
+     *
+     * @param itemId идентификатор товарной позиции
+     * @return количество в наличии; 0, если позиция продана, удалена или не на полке
+     */
+    public BigDecimal getLotAvailable(long itemId) {
+        AtomicReference<LotState> lot = lots.get(itemId);
+        return lot == null ? BigDecimal.ZERO : BigDecimal.valueOf(lot.get().quantity(), SCALE);
+    }
+
+    /**
+     * Возвращает ключ блокировки остатка, к которому относится партия
+     *
+     * <p>Проведение по конкретным партиям захватывает ключи их остатков, чтобы
+     * не выполняться одновременно с распределением по партиям той же номенклатуры
+     * на том же складе.</p>
+     *
+     * @param itemId идентификатор товарной позиции
+     * @return ключ {@link StripedLockManager#stockKey(Long, Long)}; null, если партии нет в наличии
+     */
+    public StripedLockManager.Key getLotStockKey(long itemId) {
+        AtomicReference<LotState> lot = lots.get(itemId);
+        if (lot == null) {
+            return null;
+        }
+        LotState state = lot.get();
+        return state.quantity() == 0 ? null : StripedLockManager.stockKey(state.nomenclatureId(), state.warehouseId());
+    }
+
+    /**
+     * Возвращает индекс сроков годности партий журнала
+     *
+     * @return индекс сроков годности; отвечает на запросы, когда журнал заполнен
+     */
+    public ExpiryIndex getExpiryIndex() {
+        return expiryIndex;
+    }
+
+    /**
+     * Подписывает слушателя на изменения сумм по номенклатуре
+     *
+     * @param listener слушатель
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписывает слушателя
+     *
+     * @param listener слушатель
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Сверяет журнал с базой и исправляет расхождения
+     *
+     * <p>Партии в наличии читаются одним запросом; партии, которые журнал считает
+     * доступными, а база — нет, перечитываются по идентификаторам. Партия исправляется,
+     * если её состояние в базе отличается от журнала и не старше его по версии.</p>
+     *
+     * @return количество исправленных партий; 0, если журнал не заполнен
+     * @throws RuntimeException если произошла ошибка при чтении базы
+     */
+    public int reconcile() {
+        if (!loaded) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        Map<Long, LotState> database = readLotsInStock();
+        Set<Long> changed = new HashSet<>();
+        int corrected = 0;
+        for (Map.Entry<Long, LotState> lot : database.entrySet()) {
+            if (correct(lot.getKey(), lot.getValue(), changed)) {
+                corrected++;
+            }
+        }
+        List<Long> missing = new ArrayList<>();
+        lots.forEach((lotId, lot) -> {
+            if (lot.get().quantity() != 0 && !database.containsKey(lotId)) {
+                missing.add(lotId);
+            }
+        });
+        for (Map.Entry<Long, LotState> lot : readLots(missing).entrySet()) {
+            if (correct(lot.getKey(), lot.getValue(), changed)) {
+                corrected++;
+            }
+        }
+
+        reconciliations.incrementAndGet();
+        correctedLots.addAndGet(corrected);
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        if (corrected > 0) {
+            logger.warn("Сверка журнала остатков: исправлено партий {} из {} за {} мс",
+                    corrected, database.size(), elapsed);
+        } else {
+            logger.debug("Сверка журнала остатков: расхождений нет, партий {}, {} мс", database.size(), elapsed);
+        }
+        notifyStockChanged(changed);
+        for (Listener listener : listeners) {
+            try {
+                listener.reconciled();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка в обработчике сверки журнала остатков", e);
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Запускает периодическую сверку журнала с базой в фоновом потоке
+     *
+     * @param period период сверки; нулевой период сверку не запускает
+     */
+    public synchronized void startReconciliation(Duration period) {
+        if (reconciler != null || period.isZero() || period.isNegative()) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-ledger-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = period.toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        logger.info("Сверка журнала остатков с базой каждые {} мин", period.toMinutes());
+    }
+
+    /**
+     * Останавливает периодическую сверку и выводит статистику журнала
+     */
+    public synchronized void stopReconciliation() {
+        if (reconciler == null) {
+            return;
+        }
+        reconciler.shutdownNow();
+        reconciler = null;
+        logger.info("Журнал остатков: партий {}, сверок {}, исправлено партий {}",
+                lots.size(), reconciliations.get(), correctedLots.get());
+    }
+
+    /**
+     * Возвращает период сверки из настроек
+     *
+     * <p>Свойство {@code inventory.ledger.reconcileMinutes} или переменная
+     * {@code INVENTORY_LEDGER_RECONCILEMINUTES}, по умолчанию 10 минут; 0 — не сверять.</p>
+     *
+     * @return период сверки
+     * @throws IllegalArgumentException если значение не является неотрицательным целым
+     */
+    public static Duration reconciliationPeriod() {
+        String value = System.getProperty(RECONCILE_MINUTES);
+        if (value == null) {
+            value = System.getenv(RECONCILE_MINUTES.replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        if (value == null || value.isBlank()) {
+            return Duration.ofMinutes(DEFAULT_RECONCILE_MINUTES);
+        }
+        try {
+            long minutes = Long.parseLong(value.trim());
+            if (minutes < 0) {
+                throw new NumberFormatException();
+            }
+            return Duration.ofMinutes(minutes);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + RECONCILE_MINUTES + ": " + value, e);
+        }
+    }
+
+    /**
+     * Передаёт журналу состояние изменённых партий после фиксации транзакции сессии
+     *
+     * @param session сессия с открытой транзакцией
+     * @param changes изменения остатков транзакции
+     */
+    void applyAfterCommit(Session session, StockBalanceChanges changes) {
+        if (tracking && !changes.lots().isEmpty()) {
+            afterCommit(session, () -> {
+                Set<Long> changed = new HashSet<>();
+                changes.committedLots().forEach((lotId, state) -> update(lotId, state, false, changed));
+                notifyStockChanged(changed);
+            });
+        }
+    }
+
+    /**
+     * Перечитывает партии из базы после фиксации транзакции сессии
+     *
+     * <p>Для массовых запросов UPDATE, выполняемых в обход контекста персистентности.</p>
+     *
+     * @param session сессия с открытой транзакцией
+     * @param itemIds идентификаторы товарных позиций
+     */
+    void reloadAfterCommit(Session session, Collection<Long> itemIds) {
+        if (tracking && !itemIds.isEmpty()) {
+            List<Long> ids = List.copyOf(itemIds);
+            afterCommit(session, () -> {
+                Set<Long> changed = new HashSet<>();
+                readLots(ids).forEach((lotId, state) -> update(lotId, state, true, changed));
+                notifyStockChanged(changed);
+            });
+        }
+    }
+
+    /**
+     * Заменяет состояние партии более новым
+     *
+     * @param fromDatabase состояние прочитано из базы: заменяет состояние той же версии
+     * @param changed номенклатура, суммы которой изменились; null — не собирать
+     * @return true, если состояние заменено
+     */
+    private boolean update(long lotId, LotState state, boolean fromDatabase, Set<Long> changed) {
+        AtomicReference<LotState> lot = lots.get(lotId);
+        if (lot == null) {
+            lot = lots.computeIfAbsent(lotId, id -> new AtomicReference<>(LotState.UNKNOWN));
+        }
+        while (true) {
+            LotState current = lot.get();
+            boolean newer = fromDatabase ? state.version() >= current.version() : state.version() > current.version();
+            if (!newer || current.equals(state)) {
+                return false;
+            }
+            if (lot.compareAndSet(current, state)) {
+                adjustTotals(current, -current.quantity());
+                adjustTotals(state, state.quantity());
+                expiryIndex.update(lotId, lot);
+                if (changed != null) {
+                    if (current.quantity() != 0) {
+                        changed.add(current.nomenclatureId());
+                    }
+                    if (state.quantity() != 0) {
+                        changed.add(state.nomenclatureId());
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    private boolean correct(long lotId, LotState database, Set<Long> changed) {
+        AtomicReference<LotState> lot = lots.get(lotId);
+        LotState current = lot == null ? LotState.UNKNOWN : lot.get();
+        if (current.sameStock(database) || current.version() > database.version()) {
+            return false;
+        }
+        return update(lotId, database, true, changed);
+    }
+
+    private void notifyStockChanged(Set<Long> nomenclatureIds) {
+        if (nomenclatureIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(nomenclatureIds);
+        for (Listener listener : listeners) {
+            try {
+                listener.stockChanged(ids);
+            } catch (RuntimeException e) {
+                logger.error("Ошибка в обработчике изменения остатков", e);
+            }
+        }
+    }
+
+    private void adjustTotals(LotState state, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        counter(byNomenclature, state.nomenclatureId()).addAndGet(delta);
+        counter(byWarehouse, new WarehouseKey(state.nomenclatureId(), state.warehouseId())).addAndGet(delta);
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при сверке журнала остатков", e);
+        }
+    }
+
+    private Map<Long, LotState> readLotsInStock() {
+        try (Session session = UnitOfWork.openReadOnlySession()) {
+            return session.doReturningWork(connection -> {
+                Map<Long, LotState> result = new HashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_LOTS_IN_STOCK);
+                     ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        Date expiryDate = rows.getDate(5);
+                        result.put(rows.getLong(1), new LotState(rows.getLong(2), rows.getLong(3),
+                                toUnits(rows.getBigDecimal(4)),
+                                toExpiryDay(expiryDate == null ? null : expiryDate.toLocalDate()), rows.getLong(6)));
+                    }
+                }
+                return result;
+            });
+        } catch (Exception e) {
+            logger.error("Ошибка при чтении партий в наличии", e);
+            throw new RuntimeException("Ошибка при чтении остатков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Читает текущее состояние партий по идентификаторам
+     *
+     * @return состояние каждой партии; отсутствующие в базе партии — {@link LotState#DELETED}
+     */
+    private Map<Long, LotState> readLots(List<Long> itemIds) {
+        Map<Long, LotState> result = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return result;
+        }
+        String hql = """
+            SELECT i.id, i.nomenclature.id, s.warehouse.id, i.quantity, i.expiryDate, i.version, i.status
+            FROM Item i
+            LEFT JOIN i.currentShelf s
+            WHERE i.id IN (:ids)
+            """;
+        try (Session session = UnitOfWork.openReadOnlySession()) {
+            for (int from = 0; from < itemIds.size(); from += READ_BATCH_SIZE) {
+                List<Long> batch = itemIds.subList(from, Math.min(from + READ_BATCH_SIZE, itemIds.size()));
+                batch.forEach(id -> result.put(id, LotState.DELETED));
+                for (Object[] row : session.createQuery(hql, Object[].class).setParameterList("ids", batch).list()) {
+                    long version = (Long) row[5];
+                    boolean inStock = row[6] == ItemStatus.IN_STOCK && row[2] != null;
+                    result.put((Long) row[0], inStock
+                            ? new LotState((Long) row[1], (Long) row[2], toUnits((BigDecimal) row[3]),
+                                    toExpiryDay((LocalDate) row[4]), version)
+                            : LotState.removed(version));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("Ошибка при чтении партий", e);
+            throw new RuntimeException("Ошибка при чтении остатков: " + e.getMessage(), e);
+        }
+    }
+
+    private static <K> AtomicLong counter(Map<K, AtomicLong> counters, K key) {
+        AtomicLong counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private static BigDecimal toQuantity(AtomicLong units) {
+        return units == null ? BigDecimal.ZERO : BigDecimal.valueOf(units.get(), SCALE);
+    }
+
+    static long toUnits(BigDecimal quantity) {
+        return quantity.signum() <= 0 ? 0 : quantity.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static long toExpiryDay(LocalDate expiryDate) {
+        return expiryDate == null ? LotState.NO_EXPIRY : expiryDate.toEpochDay();
+    }
+
+    private static void afterCommit(Session session, Runnable action) {
+        AfterTransactionCompletionProcess process = (success, completedSession) -> {
+            if (!success) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // Транзакция уже зафиксирована; журнал исправит сверка
+                logger.error("Ошибка при обновлении журнала остатков", e);
+            }
+        };
+        session.unwrap(SessionImplementor.class).getActionQueue().registerProcess(process);
+    }
+
+    /**
+     * Состояние партии: доступное количество в тысячных долях, день истечения срока
+     * годности ({@link LocalDate#toEpochDay()}) и версия записи
+     *
+     * <p>Номенклатура, склад и срок годности имеют смысл только при ненулевом количестве.</p>
+     */
+    record LotState(long nomenclatureId, long warehouseId, long quantity, long expiryDay, long version) {
+
+        /** Срок годности не указан */
+        static final long NO_EXPIRY = Long.MIN_VALUE;
+
+        /** Партия ещё не встречалась журналу */
+        static final LotState UNKNOWN = new LotState(0, 0, 0, NO_EXPIRY, -1);
+
+        /** Партия удалена; состояние окончательное */
+        static final LotState DELETED = new LotState(0, 0, 0, NO_EXPIRY, Long.MAX_VALUE);
+
+        /**
+         * Партия продана, списана или снята с полки
+         *
+         * @param version версия записи
+         */
+        static LotState removed(long version) {
+            return new LotState(0, 0, 0, NO_EXPIRY, version);
+        }
+
+        boolean sameStock(LotState other) {
+            return quantity == other.quantity
+                    && (quantity == 0 || nomenclatureId == other.nomenclatureId && warehouseId == other.warehouseId
+                            && expiryDay == other.expiryDay);
+        }
+    }
+
+    /**
+     * Слушатель изменений журнала
+     */
+    public interface Listener {
+
+        /**
+         * Вызывается после изменения сумм номенклатуры
+         *
+         * @param nomenclatureIds номенклатура, суммы которой изменились
+         */
+        void stockChanged(Set<Long> nomenclatureIds);
+
+        /**
+         * Вызывается после каждой сверки журнала с базой
+         */
+        default void reconciled() {
+        }
+    }
+
+    /**
+     * Ключ суммы по номенклатуре на складе
+     */
+    private record WarehouseKey(long nomenclatureId, long warehouseId) {
+    }
+}
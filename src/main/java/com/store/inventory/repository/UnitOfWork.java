@@ -0,0 +1,263 @@
+package com.store.inventory.repository;
+
+import com.store.inventory.util.HibernateUtil;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Единица работы (Unit of Work) для выполнения нескольких DAO-операций
+ * в одной сессии и одной транзакции
+ *
+ * <p>По умолчанию каждый метод DAO открывает собственную сессию. Внутри
+ * {@link #execute(Function)} сессия привязывается к текущему потоку, и все DAO
+ * прозрачно используют её: запросы выполняются в общей транзакции, а закрытие
+ * сессии в DAO игнорируется. Транзакция фиксируется при выходе из внешнего
+ * блока и откатывается при любом исключении.</p>
+ *
+ * <p>Вложенные вызовы присоединяются к уже открытой единице работы.</p>
+ *
+ * <p>Для отчётов и других цепочек запросов без изменений предназначен
+ * {@link #executeReadOnly(Function)}: сущности загружаются только для чтения
+ * (без снимков состояния для проверки изменений), сессия не сбрасывается,
+ * а соединение JDBC помечается как read-only.</p>
+ *
+ * <pre>{@code
+ * Map<Nomenclature, BigDecimal> report = UnitOfWork.execute(session -> {
+ *     List<Nomenclature> all = nomenclatureDao.findAll();
+ *     ...
+ * });
+ * }</pre>
+ */
+public final class UnitOfWork {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    /** Активная единица работы текущего потока */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private UnitOfWork() {
+        // Утилитный класс
+    }
+
+    /**
+     * Выполняет работу в общей сессии и транзакции и возвращает результат
+     *
+     * @param work работа, получающая общую сессию
+     * @param <R> тип результата
+     * @return результат работы
+     * @throws IllegalStateException если вызвана внутри единицы работы только для чтения
+     * @throws RuntimeException если работа завершилась ошибкой (транзакция откатывается)
+     */
+    public static <R> R execute(Function<Session, R> work) {
+        if (isReadOnly()) {
+            throw new IllegalStateException("Изменение данных внутри единицы работы только для чтения");
+        }
+        return execute(work, false);
+    }
+
+    /**
+     * Выполняет работу только для чтения в общей сессии и транзакции
+     *
+     * <p>Сессия открывается в режиме только для чтения (см. {@link #openReadOnlySession()}).
+     * Внутри уже открытой единицы работы работа присоединяется к ней без изменения режима.</p>
+     *
+     * @param work работа, получающая общую сессию
+     * @param <R> тип результата
+     * @return результат работы
+     * @throws RuntimeException если работа завершилась ошибкой (транзакция откатывается)
+     */
+    public static <R> R executeReadOnly(Function<Session, R> work) {
+        return execute(work, true);
+    }
+
+    /**
+     * Выполняет работу в общей сессии, открывая единицу работы при необходимости
+     *
+     * @param work работа, получающая общую сессию
+     * @param readOnly true — открыть сессию только для чтения
+     * @param <R> тип результата
+     * @return результат работы
+     */
+    private static <R> R execute(Function<Session, R> work, boolean readOnly) {
+        Scope current = CURRENT.get();
+        if (current != null) {
+            return work.apply(current.sharedView);
+        }
+
+        Session session = openSession(readOnly);
+        Transaction transaction = null;
+        try {
+            CURRENT.set(new Scope(session, readOnly));
+            transaction = beginTransaction(session, readOnly);
+            R result = work.apply(CURRENT.get().sharedView);
+            transaction.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Ошибка при выполнении единицы работы, транзакция отменена", e);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            session.close();
+        }
+    }
+
+    /**
+     * Выполняет работу без результата в общей сессии и транзакции
+     *
+     * @param work работа, получающая общую сессию
+     */
+    public static void run(Consumer<Session> work) {
+        execute(session -> {
+            work.accept(session);
+            return null;
+        });
+    }
+
+    /**
+     * Проверяет, выполняется ли текущий поток внутри единицы работы
+     *
+     * @return true, если единица работы активна
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Возвращает общую сессию текущей единицы работы
+     *
+     * <p>Закрытие возвращаемой сессии игнорируется: её жизненным циклом
+     * управляет единица работы.</p>
+     *
+     * @return общая сессия
+     * @throws IllegalStateException если единица работы не активна
+     */
+    static Session currentSession() {
+        Scope current = CURRENT.get();
+        if (current == null) {
+            throw new IllegalStateException("Единица работы не активна");
+        }
+        return current.sharedView;
+    }
+
+    /**
+     * Проверяет, открыта ли текущая единица работы только для чтения
+     *
+     * @return true, если единица работы активна и открыта только для чтения
+     */
+    static boolean isReadOnly() {
+        Scope current = CURRENT.get();
+        return current != null && current.readOnly;
+    }
+
+    /**
+     * Открывает самостоятельную сессию только для чтения вне единицы работы
+     *
+     * <p>Загруженные сущности помечаются только для чтения: Hibernate не хранит
+     * для них снимок состояния и не проверяет изменения. Сессия не сбрасывается
+     * автоматически ({@link FlushMode#MANUAL}), а запросы выполняются в транзакции
+     * на соединении, помеченном как read-only (пул восстанавливает признак при
+     * возврате соединения). Закрытие возвращаемой сессии завершает транзакцию
+     * и закрывает сессию.</p>
+     *
+     * @return сессия только для чтения, которую необходимо закрыть
+     */
+    static Session openReadOnlySession() {
+        Session session = openSession(true);
+        try {
+            Transaction transaction = beginTransaction(session, true);
+            return delegate(session, () -> {
+                try {
+                    if (transaction.isActive()) {
+                        transaction.commit();
+                    }
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Открывает сессию в обычном режиме или только для чтения
+     *
+     * @param readOnly true — сущности только для чтения, сброс вручную
+     * @return новая сессия
+     */
+    private static Session openSession(boolean readOnly) {
+        if (!readOnly) {
+            return HibernateUtil.getSessionFactory().openSession();
+        }
+        Session session = HibernateUtil.getSessionFactory().withOptions()
+                .flushMode(FlushMode.MANUAL)
+                .openSession();
+        session.setDefaultReadOnly(true);
+        return session;
+    }
+
+    /**
+     * Начинает транзакцию сессии; для чтения помечает соединение как read-only
+     *
+     * @param session сессия
+     * @param readOnly true — транзакция только для чтения
+     * @return начатая транзакция
+     */
+    private static Transaction beginTransaction(Session session, boolean readOnly) {
+        Transaction transaction = session.beginTransaction();
+        if (readOnly) {
+            // Соединение получено транзакцией и удерживается до её завершения
+            session.doWork(connection -> connection.setReadOnly(true));
+        }
+        return transaction;
+    }
+
+    /**
+     * Создаёт представление сессии с заменённым close()
+     *
+     * @param session сессия
+     * @param onClose действие вместо закрытия
+     * @return представление сессии
+     */
+    private static Session delegate(Session session, Runnable onClose) {
+        return (Session) Proxy.newProxyInstance(
+                Session.class.getClassLoader(),
+                new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        onClose.run();
+                        return null;
+                    }
+                    try {
+                        return method.invoke(session, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Сессия единицы работы и её представление с отключённым close()
+     */
+    private static final class Scope {
+        private final Session sharedView;
+        private final boolean readOnly;
+
+        private Scope(Session session, boolean readOnly) {
+            this.sharedView = delegate(session, () -> { });
+            this.readOnly = readOnly;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.store.inventory.repository;
 
 import com.store.inventory.domain.Warehouse;
+import com.store.inventory.dto.WarehouseRow;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +18,8 @@ import java.util.Optional;
  */
 public class WarehouseDao extends GenericDao<Warehouse, Long> {
 
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+
     /**
      * Создает экземпляр DAO для работы со складами
      */
@@ -23,6 +27,17 @@ public class WarehouseDao extends GenericDao<Warehouse, Long> {
         super(Warehouse.class);
     }
 
+    /**
+     * Удаляет остатки удаляемых складов
+     * 
+     * @param session сессия с открытой транзакцией удаления
+     * @param ids идентификаторы удаляемых складов
+     */
+    @Override
+    protected void deleteDependentRows(Session session, Collection<Long> ids) {
+        stockBalanceDao.deleteByWarehouse(session, ids);
+    }
+
     /**
      * Находит склад по точному совпадению имени
      * 
@@ -31,7 +46,7 @@ public class WarehouseDao extends GenericDao<Warehouse, Long> {
      * @throws RuntimeException если произошла ошибка при поиске
      */
     public Optional<Warehouse> findByName(String name) {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Warehouse WHERE name = :name";
             Query<Warehouse> query = session.createQuery(hql, Warehouse.class);
             query.setParameter("name", name);
@@ -51,14 +66,37 @@ public class WarehouseDao extends GenericDao<Warehouse, Long> {
      * @throws RuntimeException если произошла ошибка при получении списка
      */
     public List<Warehouse> findAllActive() {
-        try (Session session = getSession()) {
+        try (Session session = getReadOnlySession()) {
             String hql = "FROM Warehouse WHERE isActive = true ORDER BY name";
             Query<Warehouse> query = session.createQuery(hql, Warehouse.class);
+            query.setCacheable(true).setCacheRegion(REFERENCE_QUERY_REGION);
             return query.list();
         } catch (Exception e) {
             logger.error("Ошибка при получении активных складов", e);
             throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Возвращает строки таблицы складов
+     * 
+     * <p>Проекция ({@code select new}) на {@link WarehouseRow}; сущности
+     * не создаются. Результаты сортируются по названию склада.</p>
+     * 
+     * @return строки складов
+     * @throws RuntimeException если произошла ошибка при получении списка
+     */
+    public List<WarehouseRow> findRows() {
+        try (Session session = getReadOnlySession()) {
+            String hql = """
+                SELECT new com.store.inventory.dto.WarehouseRow(w.id, w.name, w.address, w.isActive)
+                FROM Warehouse w
+                ORDER BY w.name
+                """;
+            return session.createQuery(hql, WarehouseRow.class).list();
+        } catch (Exception e) {
+            logger.error("Ошибка при получении строк складов", e);
+            throw new RuntimeException("Ошибка при получении списка: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.store.inventory.service;
+
+import com.store.inventory.domain.History;
+import com.store.inventory.domain.Item;
+import com.store.inventory.domain.ItemStatus;
+import com.store.inventory.domain.OperationType;
+import com.store.inventory.repository.ExpiryIndex;
+import com.store.inventory.repository.StockBalanceChanges;
+import com.store.inventory.repository.StockBalanceDao;
+import com.store.inventory.repository.StockLedger;
+import com.store.inventory.util.HibernateUtil;
+import com.store.inventory.util.StripedLockManager;
+import com.store.inventory.util.TransactionRetry;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перевод просроченных партий в статус EXPIRED
+ *
+ * <p>Партии с истёкшим сроком годности берутся из {@link ExpiryIndex} журнала остатков
+ * и переводятся частями, каждая часть — в своей транзакции. Позиции части перечитываются
+ * в транзакции и переводятся, только если они всё ещё в наличии и просрочены; для каждой
+ * записывается история, изменение остатков переносится в таблицу остатков и журнал.
+ * Часть захватывает блокировки своих партий, как проведение, и повторяется
+ * при конфликте с параллельной продажей.</p>
+ *
+ * <p>{@link #start(Duration)} выполняет перевод при запуске и затем периодически
+ * в фоновом потоке. Проверка без просроченных партий не обращается к базе.</p>
+ */
+public final class ExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryService.class);
+
+    private static final ExpiryService INSTANCE = new ExpiryService();
+
+    /** Партий в одной транзакции */
+    private static final int BATCH_SIZE = 200;
+
+    /** Период проверки сроков годности, мин (0 — не проверять) */
+    private static final String CHECK_MINUTES = "inventory.expiry.checkMinutes";
+
+    private static final long DEFAULT_CHECK_MINUTES = 60;
+
+    private static final String PERFORMED_BY = "Система";
+
+    private final StockLedger stockLedger = StockLedger.getInstance();
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final StripedLockManager postingLocks = StripedLockManager.forPostings();
+
+    private ScheduledExecutorService scheduler;
+
+    private ExpiryService() {
+    }
+
+    /**
+     * Возвращает общий сервис процесса
+     *
+     * @return сервис перевода просроченных партий
+     */
+    public static ExpiryService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Переводит в статус EXPIRED партии, срок годности которых раньше указанной даты
+     *
+     * @param today текущая дата
+     * @return количество переведённых партий
+     * @throws IllegalStateException если журнал остатков не заполнен
+     * @throws RuntimeException если перевод части завершился ошибкой
+     *         (переведённые ранее части остаются зафиксированными)
+     */
+    public int expireDue(LocalDate today) {
+        if (!stockLedger.isLoaded()) {
+            throw new IllegalStateException("Журнал остатков не заполнен");
+        }
+        List<Long> itemIds = new ArrayList<>(stockLedger.getExpiryIndex().findExpired(today));
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        itemIds.sort(null);
+        long started = System.nanoTime();
+        int expired = 0;
+        for (int from = 0; from < itemIds.size(); from += BATCH_SIZE) {
+            List<Long> batch = itemIds.subList(from, Math.min(from + BATCH_SIZE, itemIds.size()));
+            expired += postingLocks.executeLocked(PostingLockKeys.forItems(batch),
+                    () -> TransactionRetry.execute("перевод просроченных партий",
+                            () -> expireBatch(batch, today)));
+        }
+        logger.info("Просроченные партии переведены в статус {}: {} за {} мс",
+                ItemStatus.EXPIRED, expired, (System.nanoTime() - started) / 1_000_000);
+        return expired;
+    }
+
+    /**
+     * Запускает периодический перевод просроченных партий в фоновом потоке
+     *
+     * <p>Первый перевод выполняется сразу.</p>
+     *
+     * @param period период проверки; нулевой период перевод не запускает
+     */
+    public synchronized void start(Duration period) {
+        if (scheduler != null || period.isZero() || period.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireQuietly, 0, period.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Проверка сроков годности каждые {} мин", period.toMinutes());
+    }
+
+    /**
+     * Останавливает периодический перевод
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Возвращает период проверки сроков годности из настроек
+     *
+     * <p>Свойство {@code inventory.expiry.checkMinutes} или переменная
+     * {@code INVENTORY_EXPIRY_CHECKMINUTES}, по умолчанию 60 минут; 0 — не проверять.</p>
+     *
+     * @return период проверки
+     * @throws IllegalArgumentException если значение не является неотрицательным целым
+     */
+    public static Duration checkPeriod() {
+        String value = System.getProperty(CHECK_MINUTES);
+        if (value == null) {
+            value = System.getenv(CHECK_MINUTES.replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        if (value == null || value.isBlank()) {
+            return Duration.ofMinutes(DEFAULT_CHECK_MINUTES);
+        }
+        try {
+            long minutes = Long.parseLong(value.trim());
+            if (minutes < 0) {
+                throw new NumberFormatException();
+            }
+            return Duration.ofMinutes(minutes);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + CHECK_MINUTES + ": " + value, e);
+        }
+    }
+
+    /**
+     * Переводит часть партий в одной транзакции
+     *
+     * <p>Позиции читаются внутри транзакции вместе с полками: партия, проданная
+     * или списанная после выбора из индекса, не переводится.</p>
+     *
+     * <p>Исключение пробрасывается без записи в журнал: конфликт версий с параллельной
+     * реализацией повторяет {@link TransactionRetry}, а ошибку, оставшуюся после
+     * повторов, записывает {@link #expireQuietly()}.</p>
+     */
+    private int expireBatch(List<Long> itemIds, LocalDate today) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            String hql = """
+                SELECT i FROM Item i
+                JOIN FETCH i.currentShelf s
+                JOIN FETCH s.warehouse
+                WHERE i.id IN (:ids)
+                AND i.status = :status
+                AND i.expiryDate < :today
+                ORDER BY i.id
+                """;
+            List<Item> items = session.createQuery(hql, Item.class)
+                    .setParameterList("ids", itemIds)
+                    .setParameter("status", ItemStatus.IN_STOCK)
+                    .setParameter("today", today)
+                    .list();
+
+            StockBalanceChanges stock = new StockBalanceChanges();
+            for (Item item : items) {
+                stock.remove(item);
+                item.setStatus(ItemStatus.EXPIRED);
+                stock.add(item);
+
+                History history = new History(
+                        item,
+                        null,
+                        OperationType.STATUS_CHANGE,
+                        null,
+                        null,
+                        item.getCurrentShelf(),
+                        null,
+                        ItemStatus.IN_STOCK,
+                        ItemStatus.EXPIRED,
+                        PERFORMED_BY,
+                        "Истёк срок годности " + item.getExpiryDate()
+                );
+                session.persist(history);
+            }
+            stockBalanceDao.apply(session, stock);
+
+            transaction.commit();
+            return items.size();
+
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expireDue(LocalDate.now());
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при проверке сроков годности", e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.store.inventory.service;
+
+import com.store.inventory.domain.Nomenclature;
+import com.store.inventory.dto.LowStockAlert;
+import com.store.inventory.dto.LowStockRow;
+import com.store.inventory.dto.StockThreshold;
+import com.store.inventory.repository.NomenclatureDao;
+import com.store.inventory.repository.StockLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Наблюдение за номенклатурой с остатком ниже минимального уровня запаса
+ *
+ * <p>Хранит минимальные уровни запаса и множество номенклатуры, остаток которой
+ * на всех складах ниже минимума. Подписывается на {@link StockLedger}: после фиксации
+ * реализации, списания, перемещения или поступления проверяется только номенклатура
+ * изменённых партий, а остаток берётся из журнала без обращения к базе. Отчёт
+ * о низком запасе читает готовое множество, поэтому его стоимость зависит
+ * от количества такой номенклатуры, а не от размера справочника
+ * ({@link #getLowStockRows()} и вовсе не обращается к базе).</p>
+ *
+ * <p>Проверки одной номенклатуры выполняются по очереди ({@code compute} по её ключу)
+ * и читают остаток в момент проверки, поэтому последняя проверка видит последнее
+ * изменение журнала. При пересечении минимума в любую сторону подписчики получают
+ * {@link LowStockAlert} в потоке, зафиксировавшем изменение.</p>
+ *
+ * <p>Изменение минимального уровня в этом процессе передаётся
+ * {@link #nomenclatureSaved(Nomenclature)} и {@link #nomenclatureDeleted(Long)};
+ * изменения других терминалов подхватываются после каждой сверки журнала,
+ * когда минимальные уровни перечитываются из базы.</p>
+ */
+public final class LowStockWatcher implements StockLedger.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockWatcher.class);
+
+    private static final LowStockWatcher INSTANCE = new LowStockWatcher();
+
+    private final StockLedger stockLedger = StockLedger.getInstance();
+    private final NomenclatureDao nomenclatureDao = new NomenclatureDao();
+
+    /** Минимальные уровни запаса по идентификатору номенклатуры */
+    private final Map<Long, StockThreshold> thresholds = new ConcurrentHashMap<>();
+
+    /** Номенклатура с остатком ниже минимального уровня */
+    private final Set<Long> lowStock = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<LowStockAlert>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean started;
+
+    private LowStockWatcher() {
+    }
+
+    /**
+     * Возвращает общий наблюдатель процесса
+     *
+     * @return наблюдатель за низким запасом
+     */
+    public static LowStockWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Читает минимальные уровни запаса и начинает наблюдение
+     *
+     * <p>Номенклатура, остаток которой уже ниже минимума, попадает в множество
+     * без уведомлений.</p>
+     *
+     * @throws IllegalStateException если журнал остатков не заполнен
+     * @throws RuntimeException если произошла ошибка при чтении базы
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        if (!stockLedger.isLoaded()) {
+            throw new IllegalStateException("Журнал остатков не заполнен");
+        }
+        long begin = System.nanoTime();
+        // Подписка до чтения уровней: изменения во время чтения не теряются
+        stockLedger.addListener(this);
+        refresh(false);
+        started = true;
+        logger.info("Номенклатура ниже минимального запаса: {} из {}, {} мс",
+                lowStock.size(), thresholds.size(), (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    /**
+     * Прекращает наблюдение
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        stockLedger.removeListener(this);
+        started = false;
+        thresholds.clear();
+        lowStock.clear();
+    }
+
+    /**
+     * @return true, если наблюдение запущено и множество номенклатуры актуально
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @return идентификаторы номенклатуры с остатком ниже минимального уровня
+     */
+    public Set<Long> getLowStockIds() {
+        return Set.copyOf(lowStock);
+    }
+
+    /**
+     * Возвращает строки отчёта о низком запасе
+     *
+     * <p>Строки строятся из множества номенклатуры ниже минимума, её минимальных
+     * уровней и журнала остатков; база не читается. Результаты сортируются по названию.</p>
+     *
+     * @return номенклатура с остатком ниже минимального уровня
+     * @throws IllegalStateException если наблюдение не запущено
+     */
+    public List<LowStockRow> getLowStockRows() {
+        if (!started) {
+            throw new IllegalStateException("Контроль низкого запаса не запущен");
+        }
+        List<LowStockRow> rows = new ArrayList<>(lowStock.size());
+        for (Long nomenclatureId : lowStock) {
+            StockThreshold threshold = thresholds.get(nomenclatureId);
+            if (threshold != null) {
+                rows.add(new LowStockRow(nomenclatureId, threshold.article(), threshold.name(),
+                        stockLedger.getAvailable(nomenclatureId), threshold.minStockLevel()));
+            }
+        }
+        rows.sort(Comparator.comparing(LowStockRow::name));
+        return rows;
+    }
+
+    /**
+     * @return количество номенклатуры с остатком ниже минимального уровня
+     */
+    public int getLowStockCount() {
+        return lowStock.size();
+    }
+
+    /**
+     * Подписывает на уведомления о пересечении минимального уровня
+     *
+     * @param listener получатель уведомлений
+     */
+    public void addListener(Consumer<LowStockAlert> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписывает от уведомлений
+     *
+     * @param listener получатель уведомлений
+     */
+    public void removeListener(Consumer<LowStockAlert> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Учитывает новый или изменённый минимальный уровень номенклатуры
+     *
+     * @param nomenclature сохранённая номенклатура
+     */
+    public void nomenclatureSaved(Nomenclature nomenclature) {
+        if (!started || nomenclature.getId() == null) {
+            return;
+        }
+        publish(evaluate(nomenclature.getId(), new StockThreshold(nomenclature.getId(),
+                nomenclature.getArticle(), nomenclature.getName(), nomenclature.getMinStockLevel())));
+    }
+
+    /**
+     * Прекращает наблюдение за удалённой номенклатурой
+     *
+     * @param nomenclatureId идентификатор номенклатуры
+     */
+    public void nomenclatureDeleted(Long nomenclatureId) {
+        if (started) {
+            forget(nomenclatureId);
+        }
+    }
+
+    @Override
+    public void stockChanged(Set<Long> nomenclatureIds) {
+        for (Long nomenclatureId : nomenclatureIds) {
+            publish(evaluate(nomenclatureId, null));
+        }
+    }
+
+    @Override
+    public void reconciled() {
+        if (started) {
+            refresh(true);
+        }
+    }
+
+    /**
+     * Перечитывает минимальные уровни из базы и проверяет всю номенклатуру
+     *
+     * @param notify уведомлять о пересечении минимума
+     */
+    private void refresh(boolean notify) {
+        Set<Long> present = new HashSet<>();
+        for (StockThreshold threshold : nomenclatureDao.findStockThresholds()) {
+            present.add(threshold.nomenclatureId());
+            LowStockAlert alert = evaluate(threshold.nomenclatureId(), threshold);
+            if (notify) {
+                publish(alert);
+            }
+        }
+        for (Long nomenclatureId : Set.copyOf(thresholds.keySet())) {
+            if (!present.contains(nomenclatureId)) {
+                forget(nomenclatureId);
+            }
+        }
+    }
+
+    /**
+     * Сравнивает остаток номенклатуры с минимальным уровнем
+     *
+     * @param threshold новый минимальный уровень; null — прежний
+     * @return уведомление, если номенклатура пересекла минимум; иначе null
+     */
+    private LowStockAlert evaluate(long nomenclatureId, StockThreshold threshold) {
+        LowStockAlert[] alert = new LowStockAlert[1];
+        thresholds.compute(nomenclatureId, (id, current) -> {
+            StockThreshold effective = threshold != null ? threshold : current;
+            if (effective == null) {
+                // Номенклатура ещё не известна: уровень появится при сохранении или после сверки
+                return null;
+            }
+            BigDecimal available = stockLedger.getAvailable(id);
+            Integer minimum = effective.minStockLevel();
+            boolean below = minimum != null && available.compareTo(BigDecimal.valueOf(minimum)) < 0;
+            if (below ? lowStock.add(id) : lowStock.remove(id)) {
+                alert[0] = new LowStockAlert(id, effective.article(), effective.name(), available, minimum, below);
+            }
+            return effective;
+        });
+        return alert[0];
+    }
+
+    private void forget(Long nomenclatureId) {
+        thresholds.compute(nomenclatureId, (id, current) -> {
+            lowStock.remove(id);
+            return null;
+        });
+    }
+
+    private void publish(LowStockAlert alert) {
+        if (alert == null) {
+            return;
+        }
+        if (alert.belowMinimum()) {
+            logger.info("Запас ниже минимума: {} «{}», остаток {} при минимуме {}",
+                    alert.article(), alert.name(), alert.available(), alert.minStockLevel());
+        } else {
+            logger.info("Запас восстановлен: {} «{}», остаток {}", alert.article(), alert.name(), alert.available());
+        }
+        for (Consumer<LowStockAlert> listener : listeners) {
+            try {
+                listener.accept(alert);
+            } catch (RuntimeException e) {
+                logger.error("Ошибка в обработчике уведомления о низком запасе", e);
+            }
+        }
+    }
+}
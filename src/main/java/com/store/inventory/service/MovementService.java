@@ -3,6 +3,8 @@ package com.store.inventory.service;
 import com.store.inventory.domain.*;
 import com.store.inventory.repository.*;
 import com.store.inventory.util.HibernateUtil;
+import com.store.inventory.util.StripedLockManager;
+import com.store.inventory.util.TransactionRetry;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
@@ -23,6 +25,8 @@ public class MovementService {
     private final DocumentItemDao documentItemDao = new DocumentItemDao();
     private final ItemDao itemDao = new ItemDao();
     private final HistoryDao historyDao = new HistoryDao();
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final StripedLockManager postingLocks = StripedLockManager.forPostings();
 
     /**
      * Создать документ перемещения (черновик)
@@ -73,6 +77,8 @@ public class MovementService {
 
     /**
      * Провести документ перемещения
+     * Проведения по одним партиям выполняются по очереди,
+     * при конфликте параллельного изменения проведение повторяется
      */
     public void confirmMovementDocument(Document document, String confirmedBy) {
         if (document.getDocumentType() != DocumentType.MOVEMENT) {
@@ -83,12 +89,31 @@ public class MovementService {
             throw new IllegalStateException("Можно провести только черновик документа");
         }
 
+        Long documentId = document.getId();
+        String operation = "проведение документа перемещения " + document.getDocumentNumber();
+        postingLocks.runLocked(PostingLockKeys.forDocument(documentId),
+                () -> TransactionRetry.run(operation, () -> postMovementDocument(documentId, confirmedBy)));
+    }
+
+    /**
+     * Проводит документ перемещения в одной транзакции
+     *
+     * <p>Исходная полка берётся из товарной позиции, прочитанной внутри
+     * транзакции, а не из строки документа, сформированной ранее.</p>
+     */
+    private void postMovementDocument(Long documentId, String confirmedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Присоединяем документ к текущей сессии
-            document = session.merge(document);
+            Document document = session.get(Document.class, documentId);
+            if (document == null) {
+                throw new IllegalStateException("Документ не найден (#" + documentId + ")");
+            }
+            if (document.getStatus() != DocumentStatus.DRAFT) {
+                throw new IllegalStateException("Можно провести только черновик документа");
+            }
 
             // Получаем строки документа через текущую сессию
             String hql = "FROM DocumentItem WHERE document = :document";
@@ -101,8 +126,9 @@ public class MovementService {
             }
 
             // Обрабатываем каждую строку
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (DocumentItem docItem : items) {
-                Item item = session.merge(docItem.getItem());
+                Item item = docItem.getItem();
 
                 if (item == null) {
                     throw new IllegalStateException("Товарная позиция не найдена");
@@ -112,8 +138,9 @@ public class MovementService {
                 Shelf toShelf = docItem.getShelf();
 
                 // Перемещаем товар
+                stock.remove(item);
                 item.setCurrentShelf(toShelf);
-                session.merge(item);
+                stock.add(item);
 
                 // Записываем в историю
                 History history = new History(
@@ -130,27 +157,30 @@ public class MovementService {
                         "Перемещение: " + fromShelf.getFullAddress() + " → " + toShelf.getFullAddress()
                 );
 
-                session.merge(history);
+                session.persist(history);
             }
 
             // Меняем статус документа
             document.setStatus(DocumentStatus.CONFIRMED);
-            session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ перемещения {} успешно проведён", document.getDocumentNumber());
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при проведении документа перемещения", e);
             throw new RuntimeException("Ошибка при проведении документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
     /**
      * Переместить товар на другую полку (быстрое перемещение без документа)
+     * При конфликте параллельного изменения перемещение повторяется
      */
     public void moveItemToShelf(Item item, Shelf targetShelf, String movedBy) {
         if (item.getCurrentShelf() == null) {
@@ -161,15 +191,36 @@ public class MovementService {
             throw new IllegalStateException("Товар уже находится на целевой полке");
         }
 
+        Long itemId = item.getId();
+        postingLocks.runLocked(List.of(StripedLockManager.itemKey(itemId)),
+                () -> TransactionRetry.run("перемещение товарной позиции #" + itemId,
+                        () -> relocateItem(itemId, targetShelf, movedBy)));
+    }
+
+    /**
+     * Перемещает товарную позицию в одной транзакции
+     *
+     * <p>Позиция перечитывается по идентификатору, поэтому остальные её поля
+     * (количество, статус) не перезаписываются значениями из отсоединённой копии.</p>
+     */
+    private void relocateItem(Long itemId, Shelf targetShelf, String movedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
+            Item item = session.get(Item.class, itemId);
+            if (item == null) {
+                throw new IllegalStateException("Товарная позиция не найдена (#" + itemId + ")");
+            }
             Shelf fromShelf = item.getCurrentShelf();
+            targetShelf = session.get(Shelf.class, targetShelf.getId());
 
             // Перемещаем товар
+            StockBalanceChanges stock = new StockBalanceChanges();
+            stock.remove(item);
             item.setCurrentShelf(targetShelf);
-            session.merge(item);
+            stock.add(item);
 
             // Записываем в историю
             History history = new History(
@@ -186,17 +237,20 @@ public class MovementService {
                     "Быстрое перемещение: " + fromShelf.getFullAddress() + " → " + targetShelf.getFullAddress()
             );
 
-            session.merge(history);
+            session.persist(history);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Товар {} перемещён с {} на {}", item.getId(), fromShelf.getCode(), targetShelf.getCode());
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при перемещении товара", e);
             throw new RuntimeException("Ошибка при перемещении: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
@@ -231,16 +285,36 @@ public class MovementService {
     
     /**
      * Создать и провести документ перемещения в одной транзакции
+     * Проведения по одним партиям выполняются по очереди,
+     * при конфликте параллельного изменения проведение повторяется
      */
     public Document createAndConfirmMovementDocument(String documentNumber, LocalDate documentDate,
                                                      Warehouse sourceWarehouse, 
                                                      java.util.List<MovementItemData> items,
                                                      String performedBy) {
+        List<Long> itemIds = items.stream().map(itemData -> itemData.item.getId()).toList();
+        return postingLocks.executeLocked(PostingLockKeys.forItems(itemIds),
+                () -> TransactionRetry.execute("проведение документа перемещения " + documentNumber,
+                        () -> postNewMovementDocument(documentNumber, documentDate, sourceWarehouse, items, performedBy)));
+    }
+
+    /**
+     * Создаёт и проводит документ перемещения в одной транзакции
+     *
+     * <p>Товарные позиции и полки перечитываются по идентификатору,
+     * а не присоединяются из отсоединённых копий экрана.</p>
+     */
+    private Document postNewMovementDocument(String documentNumber, LocalDate documentDate,
+                                             Warehouse sourceWarehouse,
+                                             java.util.List<MovementItemData> items,
+                                             String performedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            sourceWarehouse = session.merge(sourceWarehouse);
+            // Ссылка на склад без загрузки: он нужен только как внешний ключ
+            sourceWarehouse = session.getReference(Warehouse.class, sourceWarehouse.getId());
 
             Document document = new Document(
                 DocumentType.MOVEMENT,
@@ -251,11 +325,15 @@ public class MovementService {
                 DocumentStatus.DRAFT,
                 performedBy
             );
-            document = session.merge(document);
+            session.persist(document);
 
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (MovementItemData itemData : items) {
-                Item item = session.merge(itemData.item);
-                Shelf targetShelf = session.merge(itemData.targetShelf);
+                Item item = session.get(Item.class, itemData.item.getId());
+                if (item == null) {
+                    throw new IllegalStateException("Товарная позиция не найдена (#" + itemData.item.getId() + ")");
+                }
+                Shelf targetShelf = session.get(Shelf.class, itemData.targetShelf.getId());
                 
                 if (item.getCurrentShelf().equals(targetShelf)) {
                     logger.warn("Товар {} уже находится на полке {}", item.getId(), targetShelf.getId());
@@ -270,11 +348,12 @@ public class MovementService {
                     targetShelf
                 );
                 documentItem.setItem(item);
-                documentItem = session.merge(documentItem);
+                session.persist(documentItem);
 
                 Shelf fromShelf = item.getCurrentShelf();
+                stock.remove(item);
                 item.setCurrentShelf(targetShelf);
-                item = session.merge(item);
+                stock.add(item);
 
                 History history = new History(
                     item,
@@ -289,11 +368,11 @@ public class MovementService {
                     performedBy,
                     "Перемещение: " + fromShelf.getFullAddress() + " → " + targetShelf.getFullAddress()
                 );
-                session.merge(history);
+                session.persist(history);
             }
 
             document.setStatus(DocumentStatus.CONFIRMED);
-            document = session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ перемещения {} успешно создан и проведён", documentNumber);
@@ -301,11 +380,13 @@ public class MovementService {
             return document;
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при создании документа перемещения", e);
             throw new RuntimeException("Ошибка при создании документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
     
@@ -0,0 +1,67 @@
+package com.store.inventory.service;
+
+import com.store.inventory.repository.DocumentItemDao;
+import com.store.inventory.repository.StockLedger;
+import com.store.inventory.util.StripedLockManager;
+import com.store.inventory.util.StripedLockManager.Key;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Наборы ключей {@link StripedLockManager} для проведения документов
+ *
+ * <p>Проведение захватывает ключи всех партий, которые оно изменяет; проведение
+ * черновика дополнительно захватывает ключ самого документа, чтобы один черновик
+ * не проводился одновременно из двух окон.</p>
+ *
+ * <p>Вместе с ключом партии захватывается ключ её остатка (номенклатура на складе
+ * по журналу остатков). Распределение реализации по партиям
+ * ({@link SaleService#createAndConfirmAllocatedSale}) захватывает только ключ остатка,
+ * поэтому не выполняется одновременно с проведением по партиям того же остатка.
+ * Все ключи захватываются сразу, в порядке полос, и взаимная блокировка
+ * между распределением и проведением невозможна.</p>
+ */
+final class PostingLockKeys {
+
+    private static final DocumentItemDao documentItemDao = new DocumentItemDao();
+    private static final StockLedger stockLedger = StockLedger.getInstance();
+
+    private PostingLockKeys() {
+        // Утилитный класс
+    }
+
+    /**
+     * Ключи проведения сохранённого документа: документ и партии его строк
+     *
+     * @param documentId идентификатор документа
+     * @return ключи блокировки
+     */
+    static List<Key> forDocument(Long documentId) {
+        List<Key> keys = forItems(documentItemDao.findItemIdsByDocument(documentId));
+        keys.add(StripedLockManager.documentKey(documentId));
+        return keys;
+    }
+
+    /**
+     * Ключи партий и их остатков
+     *
+     * <p>Ключ остатка берётся из журнала остатков; если журнал не заполнен или партии
+     * нет в наличии, захватывается только ключ партии.</p>
+     *
+     * @param itemIds идентификаторы товарных позиций
+     * @return ключи блокировки
+     */
+    static List<Key> forItems(Collection<Long> itemIds) {
+        List<Key> keys = new ArrayList<>(2 * itemIds.size() + 1);
+        boolean ledgerLoaded = stockLedger.isLoaded();
+        for (Long itemId : itemIds) {
+            keys.add(StripedLockManager.itemKey(itemId));
+            if (ledgerLoaded) {
+                keys.add(stockLedger.getLotStockKey(itemId));
+            }
+        }
+        return keys;
+    }
+}
@@ -3,6 +3,8 @@ package com.store.inventory.service;
 import com.store.inventory.domain.*;
 import com.store.inventory.repository.*;
 import com.store.inventory.util.HibernateUtil;
+import com.store.inventory.util.StripedLockManager;
+import com.store.inventory.util.TransactionRetry;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
@@ -21,9 +23,10 @@ public class ReceiptService {
     private static final Logger logger = LoggerFactory.getLogger(ReceiptService.class);
 
     private final DocumentDao documentDao = new DocumentDao();
-    private final DocumentItemDao documentItemDao = new DocumentItemDao();
     private final ItemDao itemDao = new ItemDao();
     private final HistoryDao historyDao = new HistoryDao();
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final StripedLockManager postingLocks = StripedLockManager.forPostings();
 
     /**
      * Создать документ поступления (черновик)
@@ -64,13 +67,8 @@ public class ReceiptService {
                 shelf
         );
 
-        documentItem = documentItemDao.save(documentItem);
-
-        // Пересчитываем сумму документа
-        document.recalculateTotalAmount();
-        documentDao.save(document);
-
-        return documentItem;
+        // Сохраняем строку и пересчитываем сумму документа по его строкам
+        return documentDao.addLine(document, documentItem);
     }
 
     /**
@@ -80,12 +78,13 @@ public class ReceiptService {
                                                     Warehouse warehouse, String supplier, 
                                                     java.util.List<ReceiptItemData> items, 
                                                     String performedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Присоединяем склад к сессии
-            warehouse = session.merge(warehouse);
+            // Ссылка на склад без загрузки: он нужен только как внешний ключ
+            warehouse = session.getReference(Warehouse.class, warehouse.getId());
 
             // Создаём документ
             Document document = new Document(
@@ -97,22 +96,17 @@ public class ReceiptService {
                 DocumentStatus.DRAFT,
                 performedBy
             );
-            document = session.merge(document);
+            session.persist(document);
 
-            // Добавляем строки
+            // Добавляем строки. Новые сущности сохраняются через persist: идентификаторы
+            // берутся из блока последовательности, и вставки уходят пакетами при flush
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (ReceiptItemData itemData : items) {
-                Nomenclature nomenclature = session.merge(itemData.nomenclature);
-                Shelf shelf = session.merge(itemData.shelf);
-
-                // Создаём строку документа
-                DocumentItem documentItem = new DocumentItem(
-                    document,
-                    nomenclature,
-                    itemData.quantity,
-                    itemData.purchasePrice,
-                    shelf
-                );
-                documentItem = session.merge(documentItem);
+                Nomenclature nomenclature = session.getReference(Nomenclature.class, itemData.nomenclature.getId());
+                Shelf shelf = itemData.shelf != null
+                        ? session.getReference(Shelf.class, itemData.shelf.getId())
+                        : null;
 
                 // Создаём товарную позицию
                 Item item = new Item(
@@ -126,11 +120,20 @@ public class ReceiptService {
                 );
                 item.setManufactureDate(itemData.manufactureDate);
                 item.setExpiryDate(itemData.expiryDate);
-                item = session.merge(item);
+                session.persist(item);
+                stock.add(item);
 
-                // Связываем строку документа с товарной позицией
+                // Создаём строку документа, сразу связанную с товарной позицией
+                DocumentItem documentItem = new DocumentItem(
+                    document,
+                    nomenclature,
+                    itemData.quantity,
+                    itemData.purchasePrice,
+                    shelf
+                );
                 documentItem.setItem(item);
-                session.merge(documentItem);
+                session.persist(documentItem);
+                totalAmount = totalAmount.add(documentItem.getTotal());
 
                 // Записываем в историю
                 History history = new History(
@@ -146,17 +149,12 @@ public class ReceiptService {
                     performedBy,
                     "Поступление по документу " + documentNumber
                 );
-                session.merge(history);
+                session.persist(history);
             }
 
-            // Вычисляем сумму вручную
-            String sumHql = "SELECT COALESCE(SUM(di.quantity * di.price), 0) FROM DocumentItem di WHERE di.document = :document";
-            BigDecimal totalAmount = session.createQuery(sumHql, BigDecimal.class)
-                    .setParameter("document", document)
-                    .uniqueResult();
             document.setTotalAmount(totalAmount);
             document.setStatus(DocumentStatus.CONFIRMED);
-            document = session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ поступления {} успешно создан и проведён", documentNumber);
@@ -164,17 +162,20 @@ public class ReceiptService {
             return document;
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при создании документа поступления", e);
             throw new RuntimeException("Ошибка при создании документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
     /**
      * Провести документ поступления
-     * Создаёт товарные позиции и записывает историю
+     * Создаёт товарные позиции и записывает историю.
+     * При конфликте параллельного изменения проведение повторяется
      */
     public void confirmReceiptDocument(Document document, String confirmedBy) {
         if (document.getDocumentType() != DocumentType.RECEIPT) {
@@ -185,12 +186,31 @@ public class ReceiptService {
             throw new IllegalStateException("Можно провести только черновик документа");
         }
 
+        Long documentId = document.getId();
+        String operation = "проведение документа поступления " + document.getDocumentNumber();
+        postingLocks.runLocked(List.of(StripedLockManager.documentKey(documentId)),
+                () -> TransactionRetry.run(operation, () -> postReceiptDocument(documentId, confirmedBy)));
+    }
+
+    /**
+     * Проводит документ поступления в одной транзакции
+     *
+     * <p>Статус документа проверяется по данным внутри транзакции: если тот же
+     * черновик проводится с другого терминала, повторная попытка увидит его проведённым.</p>
+     */
+    private void postReceiptDocument(Long documentId, String confirmedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Присоединяем документ к текущей сессии
-            document = session.merge(document);
+            Document document = session.get(Document.class, documentId);
+            if (document == null) {
+                throw new IllegalStateException("Документ не найден (#" + documentId + ")");
+            }
+            if (document.getStatus() != DocumentStatus.DRAFT) {
+                throw new IllegalStateException("Можно провести только черновик документа");
+            }
 
             // Получаем строки документа через текущую сессию
             String hql = "FROM DocumentItem WHERE document = :document";
@@ -203,6 +223,7 @@ public class ReceiptService {
             }
 
             // Создаём товарные позиции для каждой строки
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (DocumentItem docItem : items) {
                 // Создаём новую товарную позицию
                 Item item = new Item(
@@ -215,11 +236,11 @@ public class ReceiptService {
                         ItemStatus.IN_STOCK
                 );
 
-                item = session.merge(item);
+                session.persist(item);
+                stock.add(item);
 
                 // Связываем строку документа с товарной позицией
                 docItem.setItem(item);
-                session.merge(docItem);
 
                 // Записываем в историю
                 History history = new History(
@@ -236,41 +257,69 @@ public class ReceiptService {
                         "Поступление по документу " + document.getDocumentNumber()
                 );
 
-                session.merge(history);
+                session.persist(history);
             }
 
             // Меняем статус документа
             document.setStatus(DocumentStatus.CONFIRMED);
-            session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ поступления {} успешно проведён", document.getDocumentNumber());
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при проведении документа поступления", e);
             throw new RuntimeException("Ошибка при проведении документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
     /**
      * Отменить проведение документа поступления
+     * При конфликте параллельного изменения отмена повторяется
      */
     public void cancelReceiptDocument(Document document, String cancelledBy) {
         if (document.getStatus() != DocumentStatus.CONFIRMED) {
             throw new IllegalStateException("Можно отменить только проведённый документ");
         }
 
+        Long documentId = document.getId();
+        String operation = "отмена документа поступления " + document.getDocumentNumber();
+        postingLocks.runLocked(PostingLockKeys.forDocument(documentId),
+                () -> TransactionRetry.run(operation, () -> cancelPostedReceipt(documentId, cancelledBy)));
+    }
+
+    /**
+     * Отменяет проведённый документ поступления в одной транзакции
+     *
+     * <p>Документ и товарные позиции читаются внутри транзакции: позиция,
+     * проданная другим терминалом после открытия документа, не будет удалена.</p>
+     */
+    private void cancelPostedReceipt(Long documentId, String cancelledBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Получаем строки документа
-            List<DocumentItem> items = documentItemDao.findByDocument(document);
+            Document document = session.get(Document.class, documentId);
+            if (document == null) {
+                throw new IllegalStateException("Документ не найден (#" + documentId + ")");
+            }
+            if (document.getStatus() != DocumentStatus.CONFIRMED) {
+                throw new IllegalStateException("Можно отменить только проведённый документ");
+            }
+
+            // Получаем строки документа через текущую сессию
+            List<DocumentItem> items = session.createQuery("FROM DocumentItem WHERE document = :document", DocumentItem.class)
+                    .setParameter("document", document)
+                    .list();
 
             // Для каждой строки обновляем статус товарной позиции
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (DocumentItem docItem : items) {
                 if (docItem.getItem() != null) {
                     Item item = docItem.getItem();
@@ -283,6 +332,7 @@ public class ReceiptService {
                     }
 
                     // Меняем статус или удаляем позицию
+                    stock.remove(item);
                     session.remove(item);
 
                     // Записываем в историю
@@ -306,17 +356,19 @@ public class ReceiptService {
 
             // Меняем статус документа
             document.setStatus(DocumentStatus.CANCELLED);
-            session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ поступления {} отменён", document.getDocumentNumber());
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при отмене документа поступления", e);
             throw new RuntimeException("Ошибка при отмене документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
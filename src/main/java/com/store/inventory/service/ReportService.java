@@ -1,6 +1,10 @@
 package com.store.inventory.service;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.DocumentTotals;
+import com.store.inventory.dto.LowStockRow;
+import com.store.inventory.dto.StockRow;
+import com.store.inventory.dto.StockSummary;
 import com.store.inventory.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +18,9 @@ import java.util.Map;
 
 /**
  * Сервис для формирования отчётов
+ *
+ * <p>Итоги отчётов считаются агрегирующими запросами в базе: в память
+ * загружаются только строки, которые входят в отчёт.</p>
  */
 public class ReportService {
 
@@ -23,24 +30,27 @@ public class ReportService {
     private final NomenclatureDao nomenclatureDao = new NomenclatureDao();
     private final DocumentDao documentDao = new DocumentDao();
     private final HistoryDao historyDao = new HistoryDao();
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final LowStockWatcher lowStockWatcher = LowStockWatcher.getInstance();
+    private final StockLedger stockLedger = StockLedger.getInstance();
 
     /**
      * Получить остатки товаров на складе (общие, без разбивки по складам)
+     * Справочник и остатки из таблицы остатков читаются в одной сессии только для чтения;
+     * номенклатура без остатка получает 0.
+     * Позиции в наличии без полки в остаток не входят: таблица остатков ведётся по полкам
      */
     public Map<Nomenclature, BigDecimal> getStockReport() {
-        Map<Nomenclature, BigDecimal> stockReport = new HashMap<>();
+        return UnitOfWork.executeReadOnly(session -> {
+            Map<Nomenclature, BigDecimal> stockReport = new HashMap<>();
 
-        List<Nomenclature> allNomenclature = nomenclatureDao.findAll();
+            Map<Long, BigDecimal> totals = stockBalanceDao.findTotalsByNomenclature();
+            for (Nomenclature nomenclature : nomenclatureDao.findAll()) {
+                stockReport.put(nomenclature, totals.getOrDefault(nomenclature.getId(), BigDecimal.ZERO));
+            }
 
-        for (Nomenclature nomenclature : allNomenclature) {
-            BigDecimal totalQuantity = itemDao.getTotalQuantityByNomenclatureAndStatus(
-                    nomenclature,
-                    ItemStatus.IN_STOCK
-            );
-            stockReport.put(nomenclature, totalQuantity);
-        }
-
-        return stockReport;
+            return stockReport;
+        });
     }
     
     /**
@@ -48,81 +58,101 @@ public class ReportService {
      * @return список объектов [nomenclature, warehouse, quantity]
      */
     public List<Object[]> getStockReportByWarehouse() {
-        return itemDao.getStockByWarehouse();
+        return stockBalanceDao.findStockByWarehouse();
+    }
+
+    /**
+     * Получить строки таблицы остатков с разбивкой по складам
+     * (проекция без загрузки сущностей)
+     */
+    public List<StockRow> getStockRows() {
+        return stockBalanceDao.findStockRows();
     }
 
     /**
      * Получить отчёт по товарам с низким запасом
+     * Если запущен {@link LowStockWatcher}, загружается только номенклатура из его множества;
+     * иначе остатки всей номенклатуры сравниваются с минимумом запросом к таблице остатков.
+     * В обоих случаях позиции в наличии без полки в остаток не входят
      */
     public List<Nomenclature> getLowStockReport() {
+        if (lowStockWatcher.isStarted()) {
+            return nomenclatureDao.findAllById(lowStockWatcher.getLowStockIds());
+        }
         return nomenclatureDao.findLowStockItems();
     }
 
+    /**
+     * Получить строки отчёта по товарам с низким запасом
+     * из множества {@link LowStockWatcher} и журнала остатков, без обращения к базе
+     *
+     * @throws IllegalStateException если контроль низкого запаса не запущен
+     */
+    public List<LowStockRow> getLowStockRows() {
+        return lowStockWatcher.getLowStockRows();
+    }
+
     /**
      * Получить отчёт по просроченным товарам
+     * Если журнал остатков загружен, партии выбираются индексом сроков годности
+     * и читаются по идентификаторам; иначе запросом по всем товарным позициям
      */
     public List<Item> getExpiredItemsReport() {
+        if (stockLedger.isLoaded()) {
+            return itemDao.findInStockByIds(stockLedger.getExpiryIndex().findExpired(LocalDate.now()));
+        }
         return itemDao.findExpiredItems();
     }
 
     /**
      * Получить отчёт по товарам с истекающим сроком годности
+     * Если журнал остатков загружен, партии выбираются индексом сроков годности
+     * и читаются по идентификаторам; иначе запросом по всем товарным позициям
      */
     public List<Item> getExpiringItemsReport(int daysBeforeExpiry) {
+        if (stockLedger.isLoaded()) {
+            return itemDao.findInStockByIds(
+                    stockLedger.getExpiryIndex().findExpiring(LocalDate.now(), daysBeforeExpiry));
+        }
         return itemDao.findExpiringItems(daysBeforeExpiry);
     }
 
     /**
      * Получить отчёт по продажам за период
+     * Учитываются проведённые документы реализации
      */
     public Map<String, Object> getSalesReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
 
-        // Получаем все документы продаж за период
-        List<Document> salesDocuments = documentDao.findByDateRange(startDate, endDate).stream()
-                .filter(doc -> doc.getDocumentType() == DocumentType.SALE)
-                .filter(doc -> doc.getStatus() == DocumentStatus.CONFIRMED)
-                .toList();
-
-        // Общая сумма продаж
-        BigDecimal totalSales = salesDocuments.stream()
-                .map(Document::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Количество документов
-        int documentCount = salesDocuments.size();
+        DocumentTotals totals = documentDao.summarizeByTypeStatusAndDateRange(
+                DocumentType.SALE, DocumentStatus.CONFIRMED, startDate, endDate);
 
         report.put("startDate", startDate);
         report.put("endDate", endDate);
-        report.put("totalSales", totalSales);
-        report.put("documentCount", documentCount);
-        report.put("documents", salesDocuments);
+        report.put("totalSales", totals.totalAmount());
+        report.put("documentCount", totals.documentCount().intValue());
+        report.put("documents", documentDao.findByTypeStatusAndDateRange(
+                DocumentType.SALE, DocumentStatus.CONFIRMED, startDate, endDate));
 
         return report;
     }
 
     /**
      * Получить отчёт по поступлениям за период
+     * Учитываются проведённые документы поступления
      */
     public Map<String, Object> getReceiptReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
 
-        List<Document> receiptDocuments = documentDao.findByDateRange(startDate, endDate).stream()
-                .filter(doc -> doc.getDocumentType() == DocumentType.RECEIPT)
-                .filter(doc -> doc.getStatus() == DocumentStatus.CONFIRMED)
-                .toList();
-
-        BigDecimal totalReceipts = receiptDocuments.stream()
-                .map(Document::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int documentCount = receiptDocuments.size();
+        DocumentTotals totals = documentDao.summarizeByTypeStatusAndDateRange(
+                DocumentType.RECEIPT, DocumentStatus.CONFIRMED, startDate, endDate);
 
         report.put("startDate", startDate);
         report.put("endDate", endDate);
-        report.put("totalReceipts", totalReceipts);
-        report.put("documentCount", documentCount);
-        report.put("documents", receiptDocuments);
+        report.put("totalReceipts", totals.totalAmount());
+        report.put("documentCount", totals.documentCount().intValue());
+        report.put("documents", documentDao.findByTypeStatusAndDateRange(
+                DocumentType.RECEIPT, DocumentStatus.CONFIRMED, startDate, endDate));
 
         return report;
     }
@@ -158,33 +188,18 @@ public class ReportService {
 
     /**
      * Получить сводку по складу
+     * Товары склада в наличии суммируются одним запросом
      */
     public Map<String, Object> getWarehouseSummary(Warehouse warehouse) {
         Map<String, Object> summary = new HashMap<>();
 
-        // Получаем все полки склада
-        List<Item> allItems = itemDao.findAll().stream()
-                .filter(item -> item.getCurrentShelf() != null)
-                .filter(item -> item.getCurrentShelf().getWarehouse().equals(warehouse))
-                .filter(item -> item.getStatus() == ItemStatus.IN_STOCK)
-                .toList();
-
-        int totalItems = allItems.size();
-
-        BigDecimal totalValue = allItems.stream()
-                .map(Item::getTotalValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalQuantity = allItems.stream()
-                .map(Item::getQuantity)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        StockSummary stock = itemDao.summarizeInStockByWarehouse(warehouse);
 
         summary.put("warehouse", warehouse);
-        summary.put("totalItems", totalItems);
-        summary.put("totalQuantity", totalQuantity);
-        summary.put("totalValue", totalValue);
+        summary.put("totalItems", stock.itemCount().intValue());
+        summary.put("totalQuantity", stock.totalQuantity());
+        summary.put("totalValue", stock.totalValue());
 
         return summary;
     }
 }
-
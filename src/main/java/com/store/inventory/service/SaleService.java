@@ -1,8 +1,11 @@
 package com.store.inventory.service;
 
 import com.store.inventory.domain.*;
+import com.store.inventory.dto.LotAllocation;
 import com.store.inventory.repository.*;
 import com.store.inventory.util.HibernateUtil;
+import com.store.inventory.util.StripedLockManager;
+import com.store.inventory.util.TransactionRetry;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
@@ -10,6 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,9 +24,11 @@ public class SaleService {
     private static final Logger logger = LoggerFactory.getLogger(SaleService.class);
 
     private final DocumentDao documentDao = new DocumentDao();
-    private final DocumentItemDao documentItemDao = new DocumentItemDao();
     private final ItemDao itemDao = new ItemDao();
     private final HistoryDao historyDao = new HistoryDao();
+    private final StockBalanceDao stockBalanceDao = new StockBalanceDao();
+    private final StockLedger stockLedger = StockLedger.getInstance();
+    private final StripedLockManager postingLocks = StripedLockManager.forPostings();
 
     /**
      * Создать документ реализации (черновик)
@@ -55,6 +61,10 @@ public class SaleService {
             throw new IllegalStateException("Товар недоступен для продажи (статус: " + item.getStatus() + ")");
         }
 
+        if (isExpired(item)) {
+            throw new IllegalStateException("Срок годности товара истёк (позиция #" + item.getId() + ")");
+        }
+
         if (item.getQuantity().compareTo(quantity) < 0) {
             throw new IllegalStateException("Недостаточное количество товара на складе");
         }
@@ -69,18 +79,15 @@ public class SaleService {
         );
         documentItem.setItem(item);
 
-        documentItem = documentItemDao.save(documentItem);
-
-        // Пересчитываем сумму документа
-        document.recalculateTotalAmount();
-        documentDao.save(document);
-
-        return documentItem;
+        // Сохраняем строку и пересчитываем сумму документа по его строкам
+        return documentDao.addLine(document, documentItem);
     }
 
     /**
      * Провести документ реализации
-     * Обновляет статус товарных позиций и записывает историю
+     * Обновляет статус товарных позиций и записывает историю.
+     * Проведения по одним партиям выполняются по очереди,
+     * при конфликте параллельного изменения проведение повторяется
      */
     public void confirmSaleDocument(Document document, String confirmedBy) {
         if (document.getDocumentType() != DocumentType.SALE) {
@@ -91,12 +98,32 @@ public class SaleService {
             throw new IllegalStateException("Можно провести только черновик документа");
         }
 
+        Long documentId = document.getId();
+        String operation = "проведение документа реализации " + document.getDocumentNumber();
+        postingLocks.runLocked(PostingLockKeys.forDocument(documentId),
+                () -> TransactionRetry.run(operation, () -> postSaleDocument(documentId, confirmedBy)));
+    }
+
+    /**
+     * Проводит документ реализации в одной транзакции
+     *
+     * <p>Документ и товарные позиции читаются внутри транзакции, поэтому
+     * остаток проверяется по актуальным данным; одновременная продажа той же
+     * позиции другим терминалом обнаруживается по версии при фиксации.</p>
+     */
+    private void postSaleDocument(Long documentId, String confirmedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Присоединяем документ к текущей сессии
-            document = session.merge(document);
+            Document document = session.get(Document.class, documentId);
+            if (document == null) {
+                throw new IllegalStateException("Документ не найден (#" + documentId + ")");
+            }
+            if (document.getStatus() != DocumentStatus.DRAFT) {
+                throw new IllegalStateException("Можно провести только черновик документа");
+            }
 
             // Получаем строки документа через текущую сессию
             String hql = "FROM DocumentItem WHERE document = :document";
@@ -109,8 +136,9 @@ public class SaleService {
             }
 
             // Обрабатываем каждую строку
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (DocumentItem docItem : items) {
-                Item item = session.merge(docItem.getItem());
+                Item item = docItem.getItem();
 
                 if (item == null) {
                     throw new IllegalStateException("Товарная позиция не найдена для строки документа");
@@ -123,6 +151,10 @@ public class SaleService {
                     );
                 }
 
+                if (item.isExpired()) {
+                    throw new IllegalStateException("Срок годности товара истёк (позиция #" + item.getId() + ")");
+                }
+
                 // Обновляем количество или статус
                 BigDecimal remainingQuantity = item.getQuantity().subtract(docItem.getQuantity());
 
@@ -132,6 +164,7 @@ public class SaleService {
                     );
                 }
 
+                stock.remove(item);
                 if (remainingQuantity.compareTo(BigDecimal.ZERO) == 0) {
                     // Товар полностью продан
                     item.setStatus(ItemStatus.SOLD);
@@ -140,8 +173,7 @@ public class SaleService {
                     // Частичная продажа - уменьшаем количество
                     item.setQuantity(remainingQuantity);
                 }
-
-                session.merge(item);
+                stock.add(item);
 
                 // Записываем в историю
                 History history = new History(
@@ -158,22 +190,24 @@ public class SaleService {
                         "Продажа по документу " + document.getDocumentNumber()
                 );
 
-                session.merge(history);
+                session.persist(history);
             }
 
             // Меняем статус документа
             document.setStatus(DocumentStatus.CONFIRMED);
-            session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
             logger.info("Документ реализации {} успешно проведён", document.getDocumentNumber());
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
             logger.error("Ошибка при проведении документа реализации", e);
             throw new RuntimeException("Ошибка при проведении документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
         }
     }
 
@@ -189,24 +223,82 @@ public class SaleService {
 
     /**
      * Получить общее доступное количество по номенклатуре
+     * Если журнал остатков загружен, количество берётся из него без запроса к базе
      */
     public BigDecimal getAvailableQuantity(Nomenclature nomenclature) {
+        if (stockLedger.isLoaded()) {
+            return stockLedger.getAvailable(nomenclature.getId());
+        }
         return itemDao.getTotalQuantityByNomenclatureAndStatus(nomenclature, ItemStatus.IN_STOCK);
     }
 
+    /**
+     * Получить доступное количество номенклатуры на складе
+     * Если журнал остатков загружен, количество берётся из него без запроса к базе
+     */
+    public BigDecimal getAvailableQuantity(Nomenclature nomenclature, Warehouse warehouse) {
+        if (stockLedger.isLoaded()) {
+            return stockLedger.getAvailable(nomenclature.getId(), warehouse.getId());
+        }
+        return itemDao.findAvailableByNomenclatureAndWarehouse(nomenclature, warehouse).stream()
+                .map(Item::getQuantity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * Получить доступное количество партии
+     * Если журнал остатков загружен, учитываются продажи, проведённые после загрузки позиции
+     */
+    public BigDecimal getAvailableQuantity(Item item) {
+        if (stockLedger.isLoaded()) {
+            return stockLedger.getLotAvailable(item.getId());
+        }
+        return item.getStatus() == ItemStatus.IN_STOCK ? item.getQuantity() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Проверить, истёк ли срок годности партии
+     * Если журнал остатков загружен, срок берётся из индекса сроков годности без запроса к базе
+     */
+    public boolean isExpired(Item item) {
+        if (stockLedger.isLoaded()) {
+            return stockLedger.getExpiryIndex().isExpired(item.getId(), LocalDate.now());
+        }
+        return item.isExpired();
+    }
+
     /**
      * Создать и провести документ реализации целиком (для UI)
+     * Проведения по одним партиям выполняются по очереди,
+     * при конфликте параллельного изменения проведение повторяется
      */
     public Document createAndConfirmSaleDocument(String documentNumber, LocalDate documentDate,
                                                  Warehouse warehouse, String customer,
                                                  java.util.List<SaleItemData> items,
                                                  String performedBy) {
+        List<Long> itemIds = items.stream().map(itemData -> itemData.item.getId()).toList();
+        return postingLocks.executeLocked(PostingLockKeys.forItems(itemIds),
+                () -> TransactionRetry.execute("проведение документа реализации " + documentNumber,
+                        () -> postNewSaleDocument(documentNumber, documentDate, warehouse, customer, items, performedBy)));
+    }
+
+    /**
+     * Создаёт и проводит документ реализации в одной транзакции
+     *
+     * <p>Товарные позиции перечитываются по идентификатору: количество
+     * из отсоединённых сущностей экрана может быть устаревшим.</p>
+     */
+    private Document postNewSaleDocument(String documentNumber, LocalDate documentDate,
+                                         Warehouse warehouse, String customer,
+                                         java.util.List<SaleItemData> items,
+                                         String performedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try {
             transaction = session.beginTransaction();
 
-            // Присоединяем склад к сессии
-            warehouse = session.merge(warehouse);
+            // Ссылка на склад без загрузки: он нужен только как внешний ключ
+            warehouse = session.getReference(Warehouse.class, warehouse.getId());
 
             // Создаём документ
             Document document = new Document(
@@ -218,83 +310,240 @@ public class SaleService {
                 DocumentStatus.DRAFT,
                 performedBy
             );
-            document = session.merge(document);
+            session.persist(document);
 
             // Добавляем строки и проводим
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            StockBalanceChanges stock = new StockBalanceChanges();
             for (SaleItemData itemData : items) {
-                Item item = session.merge(itemData.item);
-
-                // Проверяем доступность товара
-                if (item.getStatus() != ItemStatus.IN_STOCK) {
-                    throw new IllegalStateException(
-                        "Товар недоступен для продажи (позиция #" + item.getId() + ")"
-                    );
+                Item item = session.get(Item.class, itemData.item.getId());
+                if (item == null) {
+                    throw new IllegalStateException("Товарная позиция не найдена (#" + itemData.item.getId() + ")");
                 }
+                DocumentItem documentItem = postSaleLine(session, document, item, itemData.quantity,
+                        itemData.salePrice, stock, performedBy);
+                totalAmount = totalAmount.add(documentItem.getTotal());
+            }
 
-                // Проверяем количество
-                if (itemData.quantity.compareTo(item.getQuantity()) > 0) {
-                    throw new IllegalStateException(
-                        "Недостаточно товара. Доступно: " + item.getQuantity()
-                    );
-                }
+            document.setTotalAmount(totalAmount);
+            document.setStatus(DocumentStatus.CONFIRMED);
+            stockBalanceDao.apply(session, stock);
 
-                // Создаём строку документа
-                DocumentItem documentItem = new DocumentItem(
-                    document,
-                    item.getNomenclature(),
-                    itemData.quantity,
-                    itemData.salePrice,
-                    item.getCurrentShelf()
-                );
-                documentItem.setItem(item);
-                documentItem = session.merge(documentItem);
+            transaction.commit();
+            logger.info("Документ реализации {} успешно создан и проведён", documentNumber);
 
-                // Обновляем количество товара
-                BigDecimal remainingQuantity = item.getQuantity().subtract(itemData.quantity);
-                
-                if (remainingQuantity.compareTo(BigDecimal.ZERO) == 0) {
-                    item.setStatus(ItemStatus.SOLD);
-                }
-                item.setQuantity(remainingQuantity);
-                session.merge(item);
+            return document;
 
-                // Записываем в историю
-                History history = new History(
-                    item,
-                    document,
-                    OperationType.SALE,
-                    itemData.quantity.negate(),
-                    itemData.salePrice,
-                    item.getCurrentShelf(),
-                    null,
-                    ItemStatus.IN_STOCK,
-                    item.getStatus(),
-                    performedBy,
-                    "Продажа по документу " + documentNumber
-                );
-                session.merge(history);
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Ошибка при создании документа реализации", e);
+            throw new RuntimeException("Ошибка при создании документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Рассчитать распределение количества номенклатуры по партиям склада (без проведения)
+     * Партии выбираются одним запросом в порядке правила FEFO или FIFO, просроченные пропускаются
+     */
+    public List<LotAllocation> planAllocation(Nomenclature nomenclature, Warehouse warehouse,
+                                              BigDecimal quantity, AllocationPolicy policy) {
+        requirePositive(quantity);
+        List<Item> lots = itemDao.findAllocation(nomenclature, warehouse, quantity, policy, LocalDate.now());
+        return allocate(lots, quantity);
+    }
+
+    /**
+     * Создать и провести документ реализации с распределением по партиям
+     * Количество номенклатуры списывается с партий склада в порядке правила FEFO или FIFO:
+     * запрос распределения без блокировки выбирает партии нарастающим итогом, затем они
+     * блокируются по первичному ключу с проверкой версий, документ проводится в той же транзакции.
+     * Распределения по одной номенклатуре на складе выполняются по очереди под блокировкой
+     * её остатка; если партия изменена или удалена между выбором и блокировкой,
+     * выбор повторяется в той же транзакции, заблокированные партии остаются за ней
+     *
+     * @param salePrice цена продажи или null — цена продажи каждой партии
+     * @return проведённый план распределения
+     */
+    public List<LotAllocation> createAndConfirmAllocatedSale(String documentNumber, LocalDate documentDate,
+                                                             Warehouse warehouse, String customer,
+                                                             Nomenclature nomenclature, BigDecimal quantity,
+                                                             BigDecimal salePrice, AllocationPolicy policy,
+                                                             String performedBy) {
+        requirePositive(quantity);
+        List<StripedLockManager.Key> keys =
+                List.of(StripedLockManager.stockKey(nomenclature.getId(), warehouse.getId()));
+        return postingLocks.executeLocked(keys,
+                () -> TransactionRetry.execute("проведение документа реализации " + documentNumber,
+                        () -> postAllocatedSale(documentNumber, documentDate, warehouse, customer,
+                                nomenclature, quantity, salePrice, policy, performedBy)));
+    }
+
+    /**
+     * Распределяет количество по партиям и проводит документ реализации в одной транзакции
+     *
+     * <p>Распределение строится в два шага ({@link ItemDao#lockAllocation}): запрос
+     * распределения без блокировки возвращает идентификаторы и версии нужных партий,
+     * затем партии блокируются по первичному ключу ({@code SELECT ... FOR UPDATE})
+     * и их версии сравниваются с прочитанными. Если партия изменена или удалена за это
+     * время, запрос распределения повторяется в той же транзакции и блокирует вновь
+     * отобранные партии; откат и повтор проведения не нужны. Заблокированные партии
+     * списываются в той же транзакции, поэтому план не устаревает до фиксации.</p>
+     */
+    private List<LotAllocation> postAllocatedSale(String documentNumber, LocalDate documentDate,
+                                                  Warehouse warehouse, String customer,
+                                                  Nomenclature nomenclature, BigDecimal quantity,
+                                                  BigDecimal salePrice, AllocationPolicy policy,
+                                                  String performedBy) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            List<Item> lots = itemDao.lockAllocation(session, nomenclature.getId(), warehouse.getId(),
+                    quantity, policy, LocalDate.now());
+            List<LotAllocation> plan = allocate(lots, quantity);
+
+            Document document = new Document(
+                DocumentType.SALE,
+                documentNumber,
+                documentDate,
+                session.getReference(Warehouse.class, warehouse.getId()),
+                customer,
+                DocumentStatus.DRAFT,
+                performedBy
+            );
+            session.persist(document);
+
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            StockBalanceChanges stock = new StockBalanceChanges();
+            for (int i = 0; i < plan.size(); i++) {
+                Item item = lots.get(i);
+                BigDecimal price = salePrice != null ? salePrice : item.getSellingPrice();
+                DocumentItem documentItem = postSaleLine(session, document, item, plan.get(i).quantity(),
+                        price, stock, performedBy);
+                totalAmount = totalAmount.add(documentItem.getTotal());
             }
 
-            // Вычисляем сумму вручную
-            String sumHql = "SELECT COALESCE(SUM(di.quantity * di.price), 0) FROM DocumentItem di WHERE di.document = :document";
-            BigDecimal totalAmount = session.createQuery(sumHql, BigDecimal.class)
-                    .setParameter("document", document)
-                    .uniqueResult();
             document.setTotalAmount(totalAmount);
             document.setStatus(DocumentStatus.CONFIRMED);
-            document = session.merge(document);
+            stockBalanceDao.apply(session, stock);
 
             transaction.commit();
-            logger.info("Документ реализации {} успешно создан и проведён", documentNumber);
+            logger.info("Документ реализации {} проведён с распределением {} по партиям: {}",
+                    documentNumber, policy.name(), plan.size());
 
-            return document;
+            return plan;
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
-            logger.error("Ошибка при создании документа реализации", e);
+            logger.error("Ошибка при распределении реализации по партиям", e);
             throw new RuntimeException("Ошибка при создании документа: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Добавляет строку документа реализации и списывает её количество с партии
+     *
+     * <p>Партия должна быть прочитана в сессии документа; изменение остатков
+     * добавляется в {@code stock}, история записывается в ту же транзакцию.</p>
+     */
+    private DocumentItem postSaleLine(Session session, Document document, Item item, BigDecimal quantity,
+                                      BigDecimal price, StockBalanceChanges stock, String performedBy) {
+        // Проверяем доступность товара
+        if (item.getStatus() != ItemStatus.IN_STOCK) {
+            throw new IllegalStateException(
+                "Товар недоступен для продажи (позиция #" + item.getId() + ")"
+            );
+        }
+
+        if (item.isExpired()) {
+            throw new IllegalStateException("Срок годности товара истёк (позиция #" + item.getId() + ")");
+        }
+
+        // Проверяем количество
+        if (quantity.compareTo(item.getQuantity()) > 0) {
+            throw new IllegalStateException(
+                "Недостаточно товара. Доступно: " + item.getQuantity()
+            );
+        }
+
+        // Создаём строку документа
+        DocumentItem documentItem = new DocumentItem(
+            document,
+            item.getNomenclature(),
+            quantity,
+            price,
+            item.getCurrentShelf()
+        );
+        documentItem.setItem(item);
+        session.persist(documentItem);
+
+        // Обновляем количество товара
+        BigDecimal remainingQuantity = item.getQuantity().subtract(quantity);
+
+        stock.remove(item);
+        if (remainingQuantity.compareTo(BigDecimal.ZERO) == 0) {
+            item.setStatus(ItemStatus.SOLD);
+        }
+        item.setQuantity(remainingQuantity);
+        stock.add(item);
+
+        // Записываем в историю
+        History history = new History(
+            item,
+            document,
+            OperationType.SALE,
+            quantity.negate(),
+            price,
+            item.getCurrentShelf(),
+            null,
+            ItemStatus.IN_STOCK,
+            item.getStatus(),
+            performedBy,
+            "Продажа по документу " + document.getDocumentNumber()
+        );
+        session.persist(history);
+
+        return documentItem;
+    }
+
+    /**
+     * Распределяет количество по партиям в порядке списка
+     *
+     * @param lots партии в порядке правила распределения
+     * @param quantity требуемое количество
+     * @return план: количество, списываемое с каждой партии, начиная с первой
+     * @throws IllegalStateException если количества партий не хватает
+     */
+    private static List<LotAllocation> allocate(List<Item> lots, BigDecimal quantity) {
+        List<LotAllocation> plan = new ArrayList<>(lots.size());
+        BigDecimal remaining = quantity;
+        for (Item lot : lots) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            BigDecimal allocated = lot.getQuantity().min(remaining);
+            plan.add(new LotAllocation(lot.getId(), lot.getBatchNumber(), lot.getExpiryDate(),
+                    lot.getQuantity(), allocated));
+            remaining = remaining.subtract(allocated);
+        }
+        if (remaining.signum() > 0) {
+            throw new IllegalStateException("Недостаточно товара. Доступно: " + quantity.subtract(remaining));
+        }
+        return plan;
+    }
+
+    private static void requirePositive(BigDecimal quantity) {
+        if (quantity == null || quantity.signum() <= 0) {
+            throw new IllegalArgumentException("Количество должно быть больше нуля");
         }
     }
 
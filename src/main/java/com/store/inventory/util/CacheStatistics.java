@@ -0,0 +1,47 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Снимок статистики региона кэша второго уровня
+ *
+ * <p>Содержит накопленные с момента запуска попадания, промахи и записи
+ * в регион, а также текущее количество элементов. Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class CacheStatistics {
+
+    /** Имя региона кэша (полное имя класса сущности или имя региона запросов) */
+    private final String regionName;
+
+    /** Количество попаданий в кэш */
+    private final long hits;
+
+    /** Количество промахов (сущность загружена из БД) */
+    private final long misses;
+
+    /** Количество записей в кэш */
+    private final long puts;
+
+    /** Текущее количество элементов в регионе (-1, если провайдер не сообщает) */
+    private final long elementCount;
+
+    /**
+     * Доля попаданий среди всех обращений к региону
+     *
+     * @return доля попаданий от 0 до 1 или 0, если обращений не было
+     */
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: попаданий=%d, промахов=%d (%.1f%%), записей=%d, элементов=%d",
+                regionName, hits, misses, getHitRatio() * 100, puts, elementCount);
+    }
+}
@@ -0,0 +1,150 @@
+package com.store.inventory.util;
+
+import java.util.Locale;
+
+/**
+ * Профиль развёртывания базы данных H2
+ *
+ * <p>Профиль определяет способ подключения и значения параметров H2 по умолчанию:
+ * размер кэша страниц ({@code CACHE_SIZE}, КБ), задержку записи изменений на диск
+ * ({@code WRITE_DELAY}, мс) и время ожидания блокировки строки ({@code LOCK_TIMEOUT}, мс).
+ * Любой параметр можно переопределить, см. {@link DatabaseSettings}.</p>
+ */
+public enum DatabaseProfile {
+
+    /**
+     * Встроенная файловая база в каталоге приложения
+     *
+     * <p>Режим AUTO_SERVER позволяет второму процессу на том же компьютере
+     * подключиться к уже открытой базе.</p>
+     */
+    EMBEDDED("встроенная файловая база", 65536, 500, 10000) {
+        @Override
+        String baseUrl(DatabaseSettings settings) {
+            return "jdbc:h2:" + settings.getDatabasePath() + ";AUTO_SERVER=TRUE";
+        }
+    },
+
+    /**
+     * TCP-сервер H2 для нескольких терминалов магазина
+     *
+     * <p>Если сервер указан на локальном компьютере, приложение запускает его само
+     * и останавливает при завершении; остальные терминалы подключаются к нему по сети.
+     * Кэш общий для всех терминалов, поэтому больше, чем у встроенной базы.</p>
+     */
+    SERVER("TCP-сервер H2", 131072, 500, 10000) {
+        @Override
+        String baseUrl(DatabaseSettings settings) {
+            return "jdbc:h2:tcp://" + settings.getHost() + ":" + settings.getPort()
+                    + "/" + settings.getDatabaseName();
+        }
+    },
+
+    /**
+     * База в памяти для бенчмарков и тестов
+     *
+     * <p>Данные не сохраняются на диск; база живёт, пока открыт процесс.
+     * Кэш страниц и задержка записи к базе в памяти не применяются.</p>
+     */
+    MEMORY("база в памяти", null, null, 10000) {
+        @Override
+        String baseUrl(DatabaseSettings settings) {
+            return "jdbc:h2:mem:" + settings.getDatabaseName() + ";DB_CLOSE_DELAY=-1";
+        }
+
+        @Override
+        public boolean isFileBased() {
+            return false;
+        }
+    };
+
+    private final String description;
+    private final Integer defaultCacheSizeKb;
+    private final Integer defaultWriteDelayMillis;
+    private final int defaultLockTimeoutMillis;
+
+    /**
+     * Создает профиль с указанными параметрами по умолчанию
+     *
+     * @param description описание профиля
+     * @param defaultCacheSizeKb размер кэша страниц, КБ, или null
+     * @param defaultWriteDelayMillis задержка записи, мс, или null
+     * @param defaultLockTimeoutMillis время ожидания блокировки, мс
+     */
+    DatabaseProfile(String description, Integer defaultCacheSizeKb,
+                    Integer defaultWriteDelayMillis, int defaultLockTimeoutMillis) {
+        this.description = description;
+        this.defaultCacheSizeKb = defaultCacheSizeKb;
+        this.defaultWriteDelayMillis = defaultWriteDelayMillis;
+        this.defaultLockTimeoutMillis = defaultLockTimeoutMillis;
+    }
+
+    /**
+     * Возвращает URL подключения без параметров производительности
+     *
+     * @param settings настройки подключения
+     * @return URL JDBC
+     */
+    abstract String baseUrl(DatabaseSettings settings);
+
+    /**
+     * Хранит ли профиль данные в файлах локального каталога
+     *
+     * @return true для файловых профилей
+     */
+    public boolean isFileBased() {
+        return true;
+    }
+
+    /**
+     * Находит профиль по имени без учёта регистра
+     *
+     * @param name имя профиля (embedded, server, memory)
+     * @return профиль
+     * @throws IllegalArgumentException если профиль не найден
+     */
+    public static DatabaseProfile fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный профиль базы данных: " + name
+                    + " (допустимые: embedded, server, memory)", e);
+        }
+    }
+
+    /**
+     * Возвращает описание профиля для журнала
+     *
+     * @return описание профиля
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Возвращает размер кэша страниц по умолчанию
+     *
+     * @return размер кэша, КБ, или null — значение H2 по умолчанию
+     */
+    public Integer getDefaultCacheSizeKb() {
+        return defaultCacheSizeKb;
+    }
+
+    /**
+     * Возвращает задержку записи по умолчанию
+     *
+     * @return задержка записи, мс, или null — значение H2 по умолчанию
+     */
+    public Integer getDefaultWriteDelayMillis() {
+        return defaultWriteDelayMillis;
+    }
+
+    /**
+     * Возвращает время ожидания блокировки по умолчанию
+     *
+     * @return время ожидания, мс
+     */
+    public int getDefaultLockTimeoutMillis() {
+        return defaultLockTimeoutMillis;
+    }
+}
@@ -0,0 +1,185 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Действующие настройки подключения к базе данных
+ *
+ * <p>Профиль и параметры читаются из системных свойств JVM, а при их отсутствии —
+ * из переменных окружения с тем же именем в верхнем регистре через подчёркивание
+ * ({@code inventory.db.profile} → {@code INVENTORY_DB_PROFILE}):</p>
+ * <ul>
+ *   <li>{@code inventory.db.profile} — embedded (по умолчанию), server или memory</li>
+ *   <li>{@code inventory.db.dir} — каталог файлов базы, по умолчанию {@code ./data}</li>
+ *   <li>{@code inventory.db.name} — имя базы, по умолчанию {@code inventory_db}</li>
+ *   <li>{@code inventory.db.host}, {@code inventory.db.port} — адрес TCP-сервера,
+ *       по умолчанию {@code localhost:9092}</li>
+ *   <li>{@code inventory.db.allowOthers} — принимать подключения других компьютеров
+ *       к запущенному приложением серверу, по умолчанию false</li>
+ *   <li>{@code inventory.db.cacheSize}, {@code inventory.db.writeDelay},
+ *       {@code inventory.db.lockTimeout} — переопределение параметров профиля</li>
+ *   <li>{@code inventory.db.slowQueryMillis} — порог журнала медленных запросов, мс;
+ *       по умолчанию значение {@code hibernate.log_slow_query} из hibernate.cfg.xml</li>
+ * </ul>
+ *
+ * <p>Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class DatabaseSettings {
+
+    private static final String PREFIX = "inventory.db.";
+    private static final Set<String> LOCAL_HOSTS = Set.of("localhost", "127.0.0.1", "::1");
+
+    /** Профиль развёртывания */
+    private final DatabaseProfile profile;
+
+    /** Каталог файлов базы данных */
+    private final String directory;
+
+    /** Имя базы данных */
+    private final String databaseName;
+
+    /** Адрес TCP-сервера */
+    private final String host;
+
+    /** Порт TCP-сервера */
+    private final int port;
+
+    /** Принимать подключения других компьютеров к управляемому серверу */
+    private final boolean allowOthers;
+
+    /** Размер кэша страниц, КБ, или null — значение H2 по умолчанию */
+    private final Integer cacheSizeKb;
+
+    /** Задержка записи изменений на диск, мс, или null — значение H2 по умолчанию */
+    private final Integer writeDelayMillis;
+
+    /** Время ожидания блокировки строки, мс */
+    private final int lockTimeoutMillis;
+
+    /** Порог медленного запроса, мс, или null — значение из hibernate.cfg.xml */
+    private final Integer slowQueryMillis;
+
+    /**
+     * Читает настройки из системных свойств и переменных окружения
+     *
+     * @return настройки подключения
+     * @throws IllegalArgumentException если значение параметра некорректно
+     */
+    public static DatabaseSettings load() {
+        String profileName = setting("profile");
+        DatabaseProfile profile = profileName != null
+                ? DatabaseProfile.fromName(profileName)
+                : DatabaseProfile.EMBEDDED;
+
+        Integer cacheSizeKb = intSetting("cacheSize");
+        Integer writeDelayMillis = intSetting("writeDelay");
+        Integer lockTimeoutMillis = intSetting("lockTimeout");
+        Integer port = intSetting("port");
+
+        return new DatabaseSettings(
+                profile,
+                valueOrDefault(setting("dir"), "./data"),
+                valueOrDefault(setting("name"), "inventory_db"),
+                valueOrDefault(setting("host"), "localhost"),
+                port != null ? port : 9092,
+                Boolean.parseBoolean(setting("allowOthers")),
+                cacheSizeKb != null ? cacheSizeKb : profile.getDefaultCacheSizeKb(),
+                writeDelayMillis != null ? writeDelayMillis : profile.getDefaultWriteDelayMillis(),
+                lockTimeoutMillis != null ? lockTimeoutMillis : profile.getDefaultLockTimeoutMillis(),
+                intSetting("slowQueryMillis"));
+    }
+
+    /**
+     * Возвращает URL подключения с параметрами производительности
+     *
+     * @return URL JDBC
+     */
+    public String getUrl() {
+        StringBuilder url = new StringBuilder(profile.baseUrl(this));
+        if (cacheSizeKb != null) {
+            url.append(";CACHE_SIZE=").append(cacheSizeKb);
+        }
+        if (writeDelayMillis != null) {
+            url.append(";WRITE_DELAY=").append(writeDelayMillis);
+        }
+        url.append(";LOCK_TIMEOUT=").append(lockTimeoutMillis);
+        return url.toString();
+    }
+
+    /**
+     * Возвращает путь к файлам базы без расширения
+     *
+     * @return путь к базе данных
+     */
+    public String getDatabasePath() {
+        return directory + "/" + databaseName;
+    }
+
+    /**
+     * Должно ли приложение само запустить TCP-сервер H2
+     *
+     * @return true для профиля server с адресом локального компьютера
+     */
+    public boolean isManagedServer() {
+        return profile == DatabaseProfile.SERVER && LOCAL_HOSTS.contains(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Подключается ли приложение к серверу на другом компьютере
+     *
+     * @return true для профиля server с адресом другого компьютера
+     */
+    public boolean isRemote() {
+        return profile == DatabaseProfile.SERVER && !isManagedServer();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append("профиль ").append(profile.name().toLowerCase(Locale.ROOT))
+                .append(" (").append(profile.getDescription()).append(")");
+        if (profile.isFileBased() && !isRemote()) {
+            report.append(", файлы: ").append(getDatabasePath());
+        }
+        if (profile == DatabaseProfile.SERVER) {
+            report.append(", сервер: ").append(host).append(':').append(port)
+                    .append(isManagedServer() ? " (запускается приложением" : " (внешний")
+                    .append(isManagedServer() && allowOthers ? ", доступен по сети)" : ")");
+        }
+        return report.toString();
+    }
+
+    private static String setting(String key) {
+        String value = System.getProperty(PREFIX + key);
+        if (value == null) {
+            value = System.getenv((PREFIX + key).replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Integer intSetting(String key) {
+        String value = setting(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + PREFIX + key + ": " + value, e);
+        }
+    }
+
+    private static String valueOrDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+}
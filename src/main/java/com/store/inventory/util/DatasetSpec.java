@@ -0,0 +1,124 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Параметры синтетического набора данных
+ *
+ * <p>Читаются из системных свойств JVM, а при их отсутствии — из переменных
+ * окружения ({@code inventory.dataset.skus} → {@code INVENTORY_DATASET_SKUS}):</p>
+ * <ul>
+ *   <li>{@code inventory.dataset} — {@code demo} (по умолчанию, несколько демонстрационных
+ *       записей) или {@code synthetic} (генерация набора с параметрами ниже)</li>
+ *   <li>{@code inventory.dataset.warehouses} — количество складов, по умолчанию 2</li>
+ *   <li>{@code inventory.dataset.shelvesPerWarehouse} — полок на складе, по умолчанию 50</li>
+ *   <li>{@code inventory.dataset.skus} — позиций номенклатуры, по умолчанию 5000</li>
+ *   <li>{@code inventory.dataset.lotsPerSku} — партий на позицию за всю историю
+ *       на одном складе в среднем, по умолчанию 8</li>
+ *   <li>{@code inventory.dataset.historyYears} — глубина истории в годах, по умолчанию 2</li>
+ *   <li>{@code inventory.dataset.documentsPerDay} — документов реализации и перемещения
+ *       в день по всем складам, по умолчанию 200; поступления создаются по мере
+ *       расхода остатков</li>
+ *   <li>{@code inventory.dataset.seed} — начальное значение генератора, по умолчанию 42</li>
+ *   <li>{@code inventory.dataset.threads} — потоков загрузки; на содержимое не влияет</li>
+ * </ul>
+ *
+ * <p>Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class DatasetSpec {
+
+    private static final String PREFIX = "inventory.dataset.";
+
+    /** Количество складов */
+    private final int warehouses;
+
+    /** Количество полок на складе */
+    private final int shelvesPerWarehouse;
+
+    /** Количество позиций номенклатуры */
+    private final int skus;
+
+    /** Среднее количество партий позиции на одном складе за всю историю */
+    private final int lotsPerSku;
+
+    /** Глубина истории, лет */
+    private final int historyYears;
+
+    /** Документов реализации и перемещения в день по всем складам */
+    private final int documentsPerDay;
+
+    /** Начальное значение генератора случайных чисел */
+    private final long seed;
+
+    /** Количество потоков загрузки */
+    private final int threads;
+
+    /**
+     * Запрошена ли генерация синтетического набора вместо демонстрационных данных
+     *
+     * @return true, если {@code inventory.dataset=synthetic}
+     */
+    public static boolean isSyntheticRequested() {
+        String dataset = setting("inventory.dataset");
+        return dataset != null && dataset.equalsIgnoreCase("synthetic");
+    }
+
+    /**
+     * Читает параметры из системных свойств и переменных окружения
+     *
+     * @return параметры набора данных
+     * @throws IllegalArgumentException если значение параметра некорректно
+     */
+    public static DatasetSpec load() {
+        String seed = setting(PREFIX + "seed");
+        try {
+            return new DatasetSpec(
+                    positiveSetting("warehouses", 2),
+                    positiveSetting("shelvesPerWarehouse", 50),
+                    positiveSetting("skus", 5000),
+                    positiveSetting("lotsPerSku", 8),
+                    positiveSetting("historyYears", 2),
+                    positiveSetting("documentsPerDay", 200),
+                    seed != null ? Long.parseLong(seed) : 42L,
+                    positiveSetting("threads", Math.min(Runtime.getRuntime().availableProcessors(), 4)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + PREFIX + "seed: " + seed, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("складов=%d, полок на складе=%d, номенклатуры=%d, партий на позицию=%d, "
+                        + "лет истории=%d, документов в день=%d, seed=%d, потоков=%d",
+                warehouses, shelvesPerWarehouse, skus, lotsPerSku, historyYears, documentsPerDay, seed, threads);
+    }
+
+    private static String setting(String key) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static int positiveSetting(String key, int defaultValue) {
+        String value = setting(PREFIX + key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + PREFIX + key + ": " + value, e);
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package com.store.inventory.util;
 
+import org.h2.tools.Server;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Утилита для работы с Hibernate SessionFactory
@@ -14,7 +28,13 @@ import java.io.File;
 public class HibernateUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
+
+    /** Количество методов с наибольшим временем запросов, выводимых в журнал при закрытии */
+    private static final int QUERY_STATISTICS_LOG_LIMIT = 15;
+
     private static SessionFactory sessionFactory;
+    private static DatabaseSettings databaseSettings;
+    private static Server tcpServer;
 
     private HibernateUtil() {
         // Приватный конструктор для Singleton
@@ -22,6 +42,9 @@ public class HibernateUtil {
 
     /**
      * Получить экземпляр SessionFactory
+     *
+     * <p>Подключение к базе определяется профилем {@link DatabaseSettings}; при первом
+     * вызове в журнал выводятся профиль и действующие параметры H2.</p>
      */
     public static SessionFactory getSessionFactory() {
         if (sessionFactory == null) {
@@ -29,20 +52,44 @@ public class HibernateUtil {
                 if (sessionFactory == null) {
                     try {
                         logger.info("Инициализация Hibernate SessionFactory...");
-                        
+                        DatabaseSettings settings = DatabaseSettings.load();
+
                         // Создание директории для базы данных, если её нет
-                        File dataDir = new File("./data");
-                        if (!dataDir.exists()) {
-                            dataDir.mkdirs();
-                            logger.info("Создана директория для базы данных: {}", dataDir.getAbsolutePath());
+                        if (settings.getProfile().isFileBased() && !settings.isRemote()) {
+                            File dataDir = new File(settings.getDirectory());
+                            if (!dataDir.exists()) {
+                                dataDir.mkdirs();
+                                logger.info("Создана директория для базы данных: {}", dataDir.getAbsolutePath());
+                            }
                         }
 
-                        // Создание SessionFactory из hibernate.cfg.xml
+                        // Создание SessionFactory из hibernate.cfg.xml, URL задаётся профилем
                         Configuration configuration = new Configuration();
                         configuration.configure("hibernate.cfg.xml");
-                        
-                        sessionFactory = configuration.buildSessionFactory();
-                        
+                        configuration.setProperty(AvailableSettings.URL, settings.getUrl());
+                        if (settings.getSlowQueryMillis() != null) {
+                            configuration.setProperty(AvailableSettings.LOG_SLOW_QUERY,
+                                    String.valueOf(settings.getSlowQueryMillis()));
+                        }
+
+                        if (settings.isManagedServer()) {
+                            startTcpServer(settings,
+                                    configuration.getProperty(AvailableSettings.USER),
+                                    configuration.getProperty(AvailableSettings.PASS));
+                        }
+
+                        // Схема обновляется до создания SessionFactory, которая её только проверяет.
+                        // Соединение миграций остаётся открытым, пока пул не откроет свои:
+                        // иначе H2 закроет файловую базу и откроет её заново
+                        try (Connection connection = DriverManager.getConnection(settings.getUrl(),
+                                configuration.getProperty(AvailableSettings.USER),
+                                configuration.getProperty(AvailableSettings.PASS))) {
+                            new MigrationRunner(connection).migrate();
+                            sessionFactory = configuration.buildSessionFactory();
+                        }
+                        databaseSettings = settings;
+                        logDatabaseReport(configuration);
+
                         logger.info("Hibernate SessionFactory успешно инициализирована");
                     } catch (Exception e) {
                         logger.error("Ошибка инициализации SessionFactory", e);
@@ -59,10 +106,147 @@ public class HibernateUtil {
      */
     public static void shutdown() {
         if (sessionFactory != null && !sessionFactory.isClosed()) {
+            getPoolStatistics().ifPresent(stats -> logger.info("Статистика пула соединений: {}", stats));
+            getCacheStatistics().forEach(stats -> logger.info("Статистика кэша второго уровня: {}", stats));
+            getQueryStatistics().stream()
+                    .limit(QUERY_STATISTICS_LOG_LIMIT)
+                    .forEach(stats -> logger.info("Статистика запросов: {}", stats));
             logger.info("Закрытие Hibernate SessionFactory...");
             sessionFactory.close();
             logger.info("Hibernate SessionFactory закрыта");
         }
+        if (tcpServer != null) {
+            tcpServer.stop();
+            tcpServer = null;
+            logger.info("TCP-сервер H2 остановлен");
+        }
+    }
+
+    /**
+     * Получить действующие настройки подключения к базе данных
+     *
+     * <p>Возвращает пустой Optional, если SessionFactory ещё не создана.</p>
+     */
+    public static Optional<DatabaseSettings> getDatabaseSettings() {
+        return Optional.ofNullable(databaseSettings);
+    }
+
+    /**
+     * Запускает TCP-сервер H2 для профиля server
+     *
+     * <p>Сервер запускается без {@code -ifNotExists} и не создаёт базы по запросу
+     * клиентов: файл базы создаётся локальным подключением этого же процесса.
+     * Если порт уже занят (сервер запущен другим экземпляром приложения),
+     * приложение подключается к работающему серверу.</p>
+     */
+    private static void startTcpServer(DatabaseSettings settings, String user, String password) throws SQLException {
+        List<String> args = new ArrayList<>(List.of(
+                "-tcpPort", String.valueOf(settings.getPort()),
+                "-baseDir", settings.getDirectory()));
+        if (settings.isAllowOthers()) {
+            args.add("-tcpAllowOthers");
+        }
+        try {
+            tcpServer = Server.createTcpServer(args.toArray(String[]::new)).start();
+        } catch (SQLException e) {
+            logger.warn("Не удалось запустить TCP-сервер H2 на порту {}, подключение к работающему серверу: {}",
+                    settings.getPort(), e.getMessage());
+            return;
+        }
+        DriverManager.getConnection("jdbc:h2:" + settings.getDatabasePath(), user, password).close();
+        logger.info("Запущен TCP-сервер H2: {}", tcpServer.getURL());
+    }
+
+    /**
+     * Выводит в журнал профиль базы данных и действующие параметры H2
+     */
+    private static void logDatabaseReport(Configuration configuration) {
+        logger.info("База данных: {}", databaseSettings);
+        logger.info("URL подключения: {}", databaseSettings.getUrl());
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> logger.info("Действующие параметры H2: {}", readH2Settings(connection)));
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось прочитать параметры H2: {}", e.getMessage());
+        }
+        logger.info("Пул соединений: максимум {}, минимум простаивающих {}, ожидание соединения {} мс",
+                configuration.getProperty("hibernate.hikari.maximumPoolSize"),
+                configuration.getProperty("hibernate.hikari.minimumIdle"),
+                configuration.getProperty("hibernate.hikari.connectionTimeout"));
+        logger.info("Журнал медленных запросов: порог {} мс",
+                configuration.getProperty(AvailableSettings.LOG_SLOW_QUERY));
+    }
+
+    private static String readH2Settings(Connection connection) throws SQLException {
+        String sql = "SELECT H2VERSION(), LOCK_TIMEOUT(), "
+                + "(SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'CACHE_SIZE' LIMIT 1), "
+                + "(SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'WRITE_DELAY' LIMIT 1)";
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            String cacheSize = rs.getString(3);
+            String writeDelay = rs.getString(4);
+            return "версия " + rs.getString(1)
+                    + ", CACHE_SIZE=" + (cacheSize != null ? cacheSize + " КБ" : "по умолчанию")
+                    + ", WRITE_DELAY=" + (writeDelay != null ? writeDelay + " мс" : "по умолчанию")
+                    + ", LOCK_TIMEOUT=" + rs.getInt(2) + " мс";
+        }
+    }
+
+    /**
+     * Получить текущую статистику пула соединений
+     *
+     * <p>Возвращает пустой Optional, если пул ещё не создан
+     * или трекер метрик не подключён в hibernate.cfg.xml.</p>
+     */
+    public static Optional<PoolStatistics> getPoolStatistics() {
+        return PoolMetricsTrackerFactory.getCurrentTracker().map(PoolMetricsTracker::snapshot);
+    }
+
+    /**
+     * Получить статистику регионов кэша второго уровня
+     *
+     * <p>Возвращает пустой список, если SessionFactory ещё не создана или сбор
+     * статистики ({@code hibernate.generate_statistics}) выключен.</p>
+     */
+    public static List<CacheStatistics> getCacheStatistics() {
+        if (!isOpen()) {
+            return List.of();
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> {
+                    CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+                    return new CacheStatistics(
+                            region,
+                            regionStats.getHitCount(),
+                            regionStats.getMissCount(),
+                            regionStats.getPutCount(),
+                            Math.max(regionStats.getElementCountInMemory(), -1));
+                })
+                .toList();
+    }
+
+    /**
+     * Получить статистику запросов по методам DAO
+     *
+     * <p>Возвращает пустой список, если SessionFactory ещё не создана, сбор
+     * статистики выключен или не подключена {@link InstrumentedStatisticsFactory}.</p>
+     *
+     * @return снимки статистики в порядке убывания суммарного времени запросов
+     */
+    public static List<QueryMethodStatistics> getQueryStatistics() {
+        if (!isOpen()) {
+            return List.of();
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled() || !(statistics instanceof InstrumentedStatistics instrumented)) {
+            return List.of();
+        }
+        return instrumented.getQueryMethodStatistics();
     }
 
     /**
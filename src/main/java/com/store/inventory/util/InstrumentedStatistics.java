@@ -0,0 +1,272 @@
+package com.store.inventory.util;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика Hibernate с группировкой запросов по методам DAO и журналом медленных запросов
+ *
+ * <p>Стандартная статистика Hibernate группирует запросы по тексту HQL. Этот класс
+ * дополнительно относит каждый выполненный запрос к методу приложения, который его
+ * вызвал (первый кадр стека из пакетов приложения, например
+ * {@code ItemDao.findByStatus}), и накапливает по методу количество выполнений,
+ * время (среднее, 95-й процентиль, максимум) и количество строк.</p>
+ *
+ * <p>Запросы дольше порога {@code hibernate.log_slow_query} записываются в журнал
+ * {@code com.store.inventory.SLOW_QUERY} вместе с методом, параметрами запроса и планом
+ * выполнения H2 ({@code EXPLAIN}). План получается в фоновом потоке на отдельном
+ * соединении, чтобы не задерживать поток, выполнивший медленный запрос.</p>
+ */
+public class InstrumentedStatistics extends StatisticsImpl {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedStatistics.class);
+
+    /** Журнал медленных запросов, настраивается отдельно от остальных */
+    private static final Logger slowQueryLogger = LoggerFactory.getLogger("com.store.inventory.SLOW_QUERY");
+
+    private static final String APPLICATION_PACKAGE = "com.store.inventory.";
+    private static final String UTIL_PACKAGE = "com.store.inventory.util.";
+    private static final String REPOSITORY_PACKAGE = "com.store.inventory.repository.";
+    private static final String GENERIC_DAO = "com.store.inventory.repository.GenericDao";
+    private static final String UNIT_OF_WORK = "com.store.inventory.repository.UnitOfWork";
+    private static final String OUTSIDE_APPLICATION = "(вне приложения)";
+
+    /** Размер гистограммы времени: по одному интервалу на миллисекунду */
+    private static final int HISTOGRAM_MILLIS = 1024;
+
+    /** Максимум медленных запросов, ожидающих получения плана */
+    private static final int EXPLAIN_QUEUE_SIZE = 64;
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final ExecutorService explainExecutor;
+
+    /**
+     * Создает статистику фабрики сессий
+     *
+     * @param sessionFactory фабрика сессий
+     */
+    public InstrumentedStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+        this.sessionFactory = sessionFactory;
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void queryExecuted(String query, int rows, long time) {
+        super.queryExecuted(query, rows, time);
+        methods.computeIfAbsent(callerMethod(), method -> new MethodMetrics()).record(rows, time);
+    }
+
+    @Override
+    public void slowQuery(String sql, long executionTime) {
+        super.slowQuery(sql, executionTime);
+        String method = callerMethod();
+        String statement = stripStatementPrefix(sql);
+        int parametersStart = statement.endsWith("}") ? statement.lastIndexOf(" {1: ") : -1;
+        String query = parametersStart >= 0 ? statement.substring(0, parametersStart) : statement;
+        String parameters = parametersStart >= 0 ? statement.substring(parametersStart + 1) : "нет";
+
+        explainExecutor.execute(() -> slowQueryLogger.warn(
+                "Медленный запрос: {} мс, {}\n  SQL: {}\n  Параметры: {}\n  План:\n{}",
+                executionTime, method, query, parameters, explain(query)));
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        methods.clear();
+    }
+
+    /**
+     * Возвращает статистику запросов по методам
+     *
+     * @return снимки статистики в порядке убывания суммарного времени
+     */
+    public List<QueryMethodStatistics> getQueryMethodStatistics() {
+        return methods.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparingLong(QueryMethodStatistics::getTotalMillis).reversed()
+                        .thenComparing(QueryMethodStatistics::getMethod))
+                .toList();
+    }
+
+    /**
+     * Определяет метод приложения, выполняющий запрос
+     *
+     * <p>Общие методы {@code GenericDao} (например, {@code listWithFetchGraph})
+     * относятся к вызвавшему их методу конкретного DAO, если он есть в стеке.</p>
+     *
+     * @return имя вида {@code Класс.метод}
+     */
+    private static String callerMethod() {
+        return STACK_WALKER.walk(frames -> {
+            StackWalker.StackFrame genericDaoFrame = null;
+            for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+                StackWalker.StackFrame frame = it.next();
+                String className = frame.getClassName();
+                if (!className.startsWith(APPLICATION_PACKAGE) || className.startsWith(UTIL_PACKAGE)
+                        || className.equals(UNIT_OF_WORK)) {
+                    continue;
+                }
+                if (className.equals(GENERIC_DAO)) {
+                    if (genericDaoFrame == null) {
+                        genericDaoFrame = frame;
+                    }
+                    continue;
+                }
+                return describe(genericDaoFrame == null || className.startsWith(REPOSITORY_PACKAGE)
+                        ? frame : genericDaoFrame);
+            }
+            return genericDaoFrame != null ? describe(genericDaoFrame) : OUTSIDE_APPLICATION;
+        });
+    }
+
+    private static String describe(StackWalker.StackFrame frame) {
+        return simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName());
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Возвращает имя метода; для лямбды — имя метода, в котором она объявлена
+     */
+    private static String methodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', "lambda$".length());
+            return methodName.substring("lambda$".length(), end > 0 ? end : methodName.length());
+        }
+        return methodName;
+    }
+
+    /**
+     * Убирает из текста выражения JDBC обёртки пула и имя объекта драйвера
+     *
+     * <p>HikariCP и H2 возвращают текст вида
+     * {@code HikariProxyPreparedStatement@1 wrapping prep7: SELECT ... {1: 42}}.</p>
+     */
+    private static String stripStatementPrefix(String statement) {
+        int wrapping = statement.lastIndexOf(" wrapping ");
+        String result = wrapping >= 0 ? statement.substring(wrapping + " wrapping ".length()) : statement;
+        int colon = result.indexOf(": ");
+        if (colon > 0 && result.substring(0, colon).matches("[a-z]+\\d+")) {
+            result = result.substring(colon + 2);
+        }
+        return result.trim();
+    }
+
+    /**
+     * Получает план выполнения запроса H2
+     *
+     * @param query текст SQL с параметрами {@code ?}
+     * @return план или причина, по которой он не получен
+     */
+    private String explain(String query) {
+        String statement = query.toLowerCase(Locale.ROOT);
+        if (!(statement.startsWith("select") || statement.startsWith("with")
+                || statement.startsWith("insert") || statement.startsWith("update")
+                || statement.startsWith("delete") || statement.startsWith("merge"))) {
+            return "    (не поддерживается для этого выражения)";
+        }
+        try {
+            ConnectionProvider provider = sessionFactory.getServiceRegistry().requireService(ConnectionProvider.class);
+            Connection connection = provider.getConnection();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + query);
+                 ResultSet rs = explain.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append("    ").append(rs.getString(1).replace("\n", "\n    "));
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+                provider.closeConnection(connection);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("Не удалось получить план запроса", e);
+            return "    (не получен: " + e.getMessage() + ")";
+        }
+    }
+
+    /**
+     * Накопленные показатели запросов одного метода
+     */
+    private static final class MethodMetrics {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0);
+        /** Количество запросов по миллисекундам; последний интервал — 1024 мс и дольше */
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_MILLIS + 1);
+
+        private void record(int resultRows, long millis) {
+            executions.increment();
+            totalMillis.add(millis);
+            rows.add(resultRows);
+            maxMillis.accumulate(millis);
+            histogram.incrementAndGet((int) Math.min(Math.max(millis, 0), HISTOGRAM_MILLIS));
+        }
+
+        private QueryMethodStatistics snapshot(String method) {
+            long max = maxMillis.get();
+            return new QueryMethodStatistics(method, executions.sum(), totalMillis.sum(),
+                    percentile(0.95, max), max, rows.sum());
+        }
+
+        /**
+         * Вычисляет процентиль по гистограмме
+         *
+         * <p>Время Hibernate целое в миллисекундах, поэтому до 1024 мс значение точное;
+         * для более долгих запросов возвращается максимум.</p>
+         */
+        private long percentile(double fraction, long max) {
+            long[] counts = new long[histogram.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long cumulative = 0;
+            for (int i = 0; i < HISTOGRAM_MILLIS; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank && cumulative > 0) {
+                    return i;
+                }
+            }
+            return max;
+        }
+    }
+}
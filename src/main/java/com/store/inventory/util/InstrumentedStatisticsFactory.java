@@ -0,0 +1,19 @@
+package com.store.inventory.util;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Фабрика статистики Hibernate со статистикой по методам DAO
+ *
+ * <p>Подключается в hibernate.cfg.xml свойством {@code hibernate.stats.factory};
+ * созданная статистика доступна через {@link HibernateUtil#getQueryStatistics()}.</p>
+ */
+public class InstrumentedStatisticsFactory implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new InstrumentedStatistics(sessionFactory);
+    }
+}
@@ -0,0 +1,47 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Снимок статистики одной полосы блокировок {@link StripedLockManager}
+ *
+ * <p>Содержит накопленные с момента запуска захваты полосы, количество
+ * захватов, которым пришлось ждать другой поток, и время ожидания.
+ * Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class LockStripeStatistics {
+
+    /** Номер полосы */
+    private final int stripe;
+
+    /** Количество захватов полосы */
+    private final long acquisitions;
+
+    /** Количество захватов, ожидавших освобождения полосы другим потоком */
+    private final long contended;
+
+    /** Суммарное время ожидания, мс */
+    private final double totalWaitMillis;
+
+    /** Максимальное время ожидания, мс */
+    private final double maxWaitMillis;
+
+    /**
+     * Доля захватов с ожиданием
+     *
+     * @return доля от 0 до 1 или 0, если захватов не было
+     */
+    public double getContentionRatio() {
+        return acquisitions == 0 ? 0 : (double) contended / acquisitions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "полоса %d: захватов=%d, с ожиданием=%d (%.1f%%), ожидание всего=%.3f мс, макс.=%.3f мс",
+                stripe, acquisitions, contended, getContentionRatio() * 100, totalWaitMillis, maxWaitMillis);
+    }
+}
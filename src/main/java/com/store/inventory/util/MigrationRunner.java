@@ -0,0 +1,317 @@
+package com.store.inventory.util;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Применение версионных миграций схемы базы данных
+ *
+ * <p>Скрипты {@code db/migration/V<версия>__<описание>.sql} перечислены в {@link #SCRIPTS}
+ * и применяются по возрастанию версии. Применённые версии с контрольными суммами
+ * записываются в таблицу {@code schema_version}; при следующем запуске выполняются
+ * только новые скрипты, а изменение уже применённого скрипта останавливает запуск.</p>
+ *
+ * <p>Каждый скрипт выполняется в отдельной транзакции вместе с записью в {@code schema_version}.
+ * H2 фиксирует транзакцию перед каждой командой DDL, поэтому скрипты со схемой пишутся
+ * идемпотентными ({@code IF NOT EXISTS}): после исправления ошибки скрипт выполняется
+ * повторно с начала.</p>
+ *
+ * <p>Базы, созданные до появления миграций (схему строил hbm2ddl), не содержат
+ * {@code schema_version}, но уже содержат таблицы. Для них версия 1 записывается
+ * как базовая без выполнения, остальные скрипты применяются как обычно.</p>
+ */
+public class MigrationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private static final String LOCATION = "/db/migration/";
+
+    /** Скрипты миграций в порядке применения */
+    private static final List<String> SCRIPTS = List.of(
+            "V1__initial_schema.sql",
+            "V3__sequences.sql",
+            "V4__row_versions.sql",
+            "V5__keyset_indexes.sql",
+            "V6__stock_balance.sql",
+            "V7__allocation_index.sql");
+
+    /** Скрипт последовательностей, повторяемый после загрузки строк с явными идентификаторами */
+    private static final String SEQUENCES_SCRIPT = "V3__sequences.sql";
+
+    /** Версия, отмечаемая базовой для схем, созданных hbm2ddl */
+    private static final int BASELINE_VERSION = 1;
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INT PRIMARY KEY, "
+            + "description VARCHAR(200) NOT NULL, "
+            + "script VARCHAR(200) NOT NULL, "
+            + "checksum INT, "
+            + "type VARCHAR(20) NOT NULL, "
+            + "installed_on TIMESTAMP NOT NULL, "
+            + "execution_time INT NOT NULL)";
+
+    private final Connection connection;
+
+    /**
+     * @param connection соединение с базой; режим autocommit восстанавливается после миграции
+     */
+    public MigrationRunner(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Применяет неприменённые миграции
+     *
+     * @return количество выполненных скриптов
+     * @throws RuntimeException если скрипт не найден, завершился ошибкой или
+     *                          применённый скрипт изменён
+     */
+    public int migrate() {
+        long started = System.nanoTime();
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                boolean legacySchema = !tableExists("SCHEMA_VERSION") && tableExists("ITEMS");
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_TABLE);
+                }
+                connection.commit();
+
+                Map<Integer, Integer> applied = readAppliedVersions();
+                int executed = 0;
+                for (String name : SCRIPTS) {
+                    Migration migration = load(name);
+                    if (applied.containsKey(migration.version)) {
+                        verifyChecksum(migration, applied.get(migration.version));
+                    } else if (legacySchema && migration.version == BASELINE_VERSION) {
+                        record(migration, "BASELINE", 0);
+                        connection.commit();
+                        logger.info("Схема создана до перехода на миграции, версия {} отмечена базовой",
+                                migration.version);
+                    } else {
+                        apply(migration);
+                        executed++;
+                    }
+                }
+
+                logger.info("Схема базы данных: версия {}, применено миграций {} за {} мс",
+                        load(SCRIPTS.get(SCRIPTS.size() - 1)).version, executed,
+                        (System.nanoTime() - started) / 1_000_000);
+                return executed;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка при миграции схемы базы данных: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Синхронизирует последовательности идентификаторов с данными таблиц
+     *
+     * <p>Повторно выполняет скрипт последовательностей без записи в {@code schema_version}:
+     * после вставки строк с явными идентификаторами последовательности сдвигаются
+     * за текущий MAX(id), чтобы блоки оптимизатора pooled не пересекались с этими строками.</p>
+     */
+    public static void synchronizeSequences() {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            Migration migration = load(SEQUENCES_SCRIPT);
+            session.doWork(connection -> execute(connection, migration));
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Ошибка при синхронизации последовательностей: " + e.getMessage(), e);
+        }
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            execute(connection, migration);
+            int millis = (int) ((System.nanoTime() - started) / 1_000_000);
+            record(migration, "SQL", millis);
+            connection.commit();
+            logger.info("Применена миграция {}: {} ({} мс)", migration.version, migration.description, millis);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("скрипт " + migration.script + ": " + e.getMessage(), e.getSQLState(), e);
+        }
+    }
+
+    private static void execute(Connection connection, Migration migration) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private void verifyChecksum(Migration migration, Integer recorded) {
+        if (recorded != null && recorded != migration.checksum) {
+            throw new IllegalStateException(String.format(
+                    "Применённая миграция %s изменена: контрольная сумма в базе %d, в скрипте %d",
+                    migration.script, recorded, migration.checksum));
+        }
+    }
+
+    private void record(Migration migration, String type, int millis) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO schema_version (version, description, script, checksum, type, installed_on, "
+                        + "execution_time) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            insert.setInt(1, migration.version);
+            insert.setString(2, migration.description);
+            insert.setString(3, migration.script);
+            insert.setInt(4, migration.checksum);
+            insert.setString(5, type);
+            insert.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            insert.setInt(7, millis);
+            insert.executeUpdate();
+        }
+    }
+
+    private Map<Integer, Integer> readAppliedVersions() throws SQLException {
+        Map<Integer, Integer> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                int checksum = rs.getInt(2);
+                applied.put(rs.getInt(1), rs.wasNull() ? null : checksum);
+            }
+        }
+        return applied;
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Читает скрипт миграции из ресурсов
+     */
+    private static Migration load(String name) {
+        Matcher matcher = SCRIPT_NAME.matcher(name);
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Некорректное имя скрипта миграции: " + name);
+        }
+        String text;
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(LOCATION + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Скрипт миграции не найден: " + LOCATION + name);
+            }
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при чтении скрипта миграции " + name + ": " + e.getMessage(), e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                name, (int) crc.getValue(), splitStatements(text));
+    }
+
+    /**
+     * Разбивает скрипт на команды по точке с запятой
+     *
+     * <p>Точка с запятой внутри строковых литералов, идентификаторов в кавычках,
+     * блоков {@code $$ ... $$} и комментариев не разделяет команды. Комментарии
+     * в команды не попадают.</p>
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = script.length();
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            char next = i + 1 < length ? script.charAt(i + 1) : '\0';
+            if (c == '-' && next == '-') {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            } else if (c == '/' && next == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                current.append(' ');
+            } else if (c == '\'' || c == '"') {
+                int end = closingQuote(script, i, c);
+                current.append(script, i, end);
+                i = end;
+            } else if (c == '$' && next == '$') {
+                int end = script.indexOf("$$", i + 2);
+                end = end < 0 ? length : end + 2;
+                current.append(script, i, end);
+                i = end;
+            } else if (c == ';') {
+                addStatement(statements, current);
+                i++;
+            } else {
+                current.append(c);
+                i++;
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    /**
+     * Возвращает позицию за закрывающей кавычкой; удвоенная кавычка экранирует саму себя
+     */
+    private static int closingQuote(String script, int start, char quote) {
+        int i = start + 1;
+        while (i < script.length()) {
+            if (script.charAt(i) == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return script.length();
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        current.setLength(0);
+    }
+
+    /**
+     * Скрипт миграции
+     */
+    private record Migration(int version, String description, String script, int checksum,
+                             List<String> statements) {
+    }
+}
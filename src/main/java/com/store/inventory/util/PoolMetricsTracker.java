@@ -0,0 +1,94 @@
+package com.store.inventory.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сборщик метрик пула соединений HikariCP
+ *
+ * <p>HikariCP вызывает методы трекера при каждой выдаче и возврате соединения,
+ * поэтому счётчики построены на {@link LongAdder} и не создают конкуренции
+ * между потоками. Текущее состояние пула берётся из {@link PoolStats}.</p>
+ */
+public class PoolMetricsTracker implements IMetricsTracker {
+
+    private final String poolName;
+    private final PoolStats poolStats;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    /**
+     * Создает трекер для указанного пула
+     *
+     * @param poolName имя пула
+     * @param poolStats источник текущего состояния пула
+     */
+    public PoolMetricsTracker(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        connectionsCreated.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquisitions.increment();
+        waitNanos.add(elapsedAcquiredNanos);
+        maxWaitNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usages.increment();
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Возвращает снимок текущей статистики пула
+     *
+     * @return статистика пула
+     */
+    public PoolStatistics snapshot() {
+        long acquired = acquisitions.sum();
+        long used = usages.sum();
+        double meanWait = acquired == 0 ? 0 : toMillis(waitNanos.sum()) / acquired;
+        double meanUsage = used == 0 ? 0 : (double) usageMillis.sum() / used;
+
+        return new PoolStatistics(
+                poolName,
+                poolStats.getActiveConnections(),
+                poolStats.getIdleConnections(),
+                poolStats.getTotalConnections(),
+                poolStats.getPendingThreads(),
+                poolStats.getMaxConnections(),
+                acquired,
+                meanWait,
+                toMillis(maxWaitNanos.get()),
+                meanUsage,
+                timeouts.sum(),
+                connectionsCreated.sum()
+        );
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,36 @@
+package com.store.inventory.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.Optional;
+
+/**
+ * Фабрика трекеров метрик для HikariCP
+ *
+ * <p>Подключается в hibernate.cfg.xml свойством
+ * {@code hibernate.hikari.metricsTrackerFactory}: HikariCP создаёт экземпляр
+ * фабрики по имени класса, поэтому созданный трекер публикуется в статическом
+ * поле и доступен через {@link HibernateUtil#getPoolStatistics()}.</p>
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private static volatile PoolMetricsTracker currentTracker;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetricsTracker tracker = new PoolMetricsTracker(poolName, poolStats);
+        currentTracker = tracker;
+        return tracker;
+    }
+
+    /**
+     * Возвращает трекер текущего пула
+     *
+     * @return Optional с трекером или пустой Optional, если пул ещё не создан
+     */
+    public static Optional<PoolMetricsTracker> getCurrentTracker() {
+        return Optional.ofNullable(currentTracker);
+    }
+}
@@ -0,0 +1,62 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Снимок статистики пула соединений
+ *
+ * <p>Содержит текущее состояние пула (активные, простаивающие, ожидающие потоки)
+ * и накопленные показатели: время ожидания соединения, время удержания,
+ * количество таймаутов. Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class PoolStatistics {
+
+    /** Имя пула */
+    private final String poolName;
+
+    /** Количество соединений, выданных потокам */
+    private final int activeConnections;
+
+    /** Количество простаивающих соединений */
+    private final int idleConnections;
+
+    /** Общее количество соединений в пуле */
+    private final int totalConnections;
+
+    /** Количество потоков, ожидающих соединение */
+    private final int pendingThreads;
+
+    /** Максимальный размер пула */
+    private final int maxConnections;
+
+    /** Количество выданных соединений с момента запуска */
+    private final long acquisitions;
+
+    /** Среднее время ожидания соединения, мс */
+    private final double meanWaitMillis;
+
+    /** Максимальное время ожидания соединения, мс */
+    private final double maxWaitMillis;
+
+    /** Среднее время удержания соединения, мс */
+    private final double meanUsageMillis;
+
+    /** Количество отказов по таймауту ожидания */
+    private final long timeouts;
+
+    /** Количество созданных физических соединений */
+    private final long connectionsCreated;
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: активных=%d, свободных=%d, всего=%d/%d, ожидают=%d, выдано=%d, " +
+                "ожидание ср.=%.3f мс, макс.=%.3f мс, удержание ср.=%.3f мс, таймаутов=%d, создано=%d",
+                poolName, activeConnections, idleConnections, totalConnections, maxConnections,
+                pendingThreads, acquisitions, meanWaitMillis, maxWaitMillis, meanUsageMillis,
+                timeouts, connectionsCreated);
+    }
+}
@@ -0,0 +1,60 @@
+package com.store.inventory.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Снимок статистики запросов одного метода DAO
+ *
+ * <p>Содержит накопленные с момента запуска (или последнего сброса статистики)
+ * количество выполнений запросов метода, время выполнения и количество
+ * возвращённых строк. Время измеряется Hibernate с точностью до миллисекунды
+ * и включает чтение результата. Объект неизменяемый.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class QueryMethodStatistics {
+
+    /** Метод, выполнивший запрос, например {@code ItemDao.findByStatus} */
+    private final String method;
+
+    /** Количество выполненных запросов */
+    private final long executions;
+
+    /** Суммарное время выполнения, мс */
+    private final long totalMillis;
+
+    /** 95-й процентиль времени выполнения, мс */
+    private final long p95Millis;
+
+    /** Максимальное время выполнения, мс */
+    private final long maxMillis;
+
+    /** Суммарное количество возвращённых строк */
+    private final long rows;
+
+    /**
+     * Среднее время выполнения запроса
+     *
+     * @return среднее время, мс, или 0, если запросов не было
+     */
+    public double getMeanMillis() {
+        return executions == 0 ? 0 : (double) totalMillis / executions;
+    }
+
+    /**
+     * Среднее количество строк на запрос
+     *
+     * @return среднее количество строк или 0, если запросов не было
+     */
+    public double getMeanRows() {
+        return executions == 0 ? 0 : (double) rows / executions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: выполнений=%d, среднее=%.2f мс, p95=%d мс, макс.=%d мс, всего=%d мс, строк=%d (%.1f на запрос)",
+                method, executions, getMeanMillis(), p95Millis, maxMillis, totalMillis, rows, getMeanRows());
+    }
+}
@@ -0,0 +1,247 @@
+package com.store.inventory.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Менеджер блокировок с разбиением на полосы (striped locks)
+ *
+ * <p>Координирует проведения документов внутри процесса. Каждый ключ
+ * (товарная позиция, документ, номенклатура на складе) отображается на одну
+ * из фиксированного числа полос; проведения, затрагивающие разные партии,
+ * почти всегда попадают в разные полосы и выполняются параллельно, а
+ * проведения по одной партии выполняются по очереди и не конфликтуют по версии.</p>
+ *
+ * <p>Все ключи операции захватываются сразу, в порядке возрастания номера
+ * полосы, и освобождаются в обратном порядке: два проведения с пересекающимися
+ * наборами ключей не могут захватить полосы крест-накрест, поэтому взаимная
+ * блокировка исключена. Вложенный захват в том же потоке допускается
+ * (блокировки реентерабельны), но только для полос, уже захваченных внешним вызовом.</p>
+ *
+ * <p>Блокировки действуют в пределах одного процесса; конфликты между
+ * процессами по-прежнему разрешаются версиями записей и {@link TransactionRetry}.</p>
+ *
+ * <pre>{@code
+ * locks.runLocked(List.of(StripedLockManager.itemKey(item.getId())),
+ *         () -> TransactionRetry.run("продажа", () -> ...));
+ * }</pre>
+ */
+public class StripedLockManager {
+
+    /** Количество полос менеджера проведений */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /** Общий менеджер для проведения документов */
+    private static final StripedLockManager POSTINGS = new StripedLockManager(DEFAULT_STRIPES);
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * Создает менеджер с указанным количеством полос
+     *
+     * @param stripeCount количество полос (округляется вверх до степени двойки)
+     * @throws IllegalArgumentException если количество полос не положительно
+     */
+    public StripedLockManager(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Количество полос должно быть положительным: " + stripeCount);
+        }
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Возвращает общий менеджер блокировок проведения документов
+     *
+     * @return менеджер блокировок проведений
+     */
+    public static StripedLockManager forPostings() {
+        return POSTINGS;
+    }
+
+    /**
+     * Ключ товарной позиции (партии)
+     *
+     * @param itemId идентификатор товарной позиции
+     * @return ключ блокировки
+     */
+    public static Key itemKey(Long itemId) {
+        return new Key(KeyKind.ITEM, itemId, null);
+    }
+
+    /**
+     * Ключ документа
+     *
+     * @param documentId идентификатор документа
+     * @return ключ блокировки
+     */
+    public static Key documentKey(Long documentId) {
+        return new Key(KeyKind.DOCUMENT, documentId, null);
+    }
+
+    /**
+     * Ключ остатка номенклатуры на складе (для распределения по партиям)
+     *
+     * @param nomenclatureId идентификатор номенклатуры
+     * @param warehouseId идентификатор склада
+     * @return ключ блокировки
+     */
+    public static Key stockKey(Long nomenclatureId, Long warehouseId) {
+        return new Key(KeyKind.STOCK, nomenclatureId, warehouseId);
+    }
+
+    /**
+     * Выполняет работу, удерживая блокировки всех указанных ключей
+     *
+     * @param keys ключи операции (null-элементы пропускаются)
+     * @param work работа
+     * @param <T> тип результата
+     * @return результат работы
+     */
+    public <T> T executeLocked(Collection<Key> keys, Supplier<T> work) {
+        int[] order = stripesOf(keys);
+        int locked = 0;
+        try {
+            for (int index : order) {
+                stripes[index].lock();
+                locked++;
+            }
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Выполняет работу без результата, удерживая блокировки всех указанных ключей
+     *
+     * @param keys ключи операции (null-элементы пропускаются)
+     * @param work работа
+     */
+    public void runLocked(Collection<Key> keys, Runnable work) {
+        executeLocked(keys, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает статистику полос, которые захватывались хотя бы раз
+     *
+     * @return снимки статистики в порядке номеров полос
+     */
+    public List<LockStripeStatistics> getStatistics() {
+        List<LockStripeStatistics> result = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            long acquisitions = stripe.acquisitions.sum();
+            if (acquisitions > 0) {
+                result.add(new LockStripeStatistics(
+                        i,
+                        acquisitions,
+                        stripe.contended.sum(),
+                        toMillis(stripe.waitNanos.sum()),
+                        toMillis(stripe.maxWaitNanos.get())));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает номер полосы ключа
+     *
+     * @param key ключ
+     * @return номер полосы
+     */
+    int stripeOf(Key key) {
+        // Хеш по порядковому номеру вида, а не по Enum.hashCode: номер полосы
+        // ключа одинаков при каждом запуске
+        int h = Objects.hash(key.kind().ordinal(), key.first(), key.second());
+        // Перемешивание битов: соседние идентификаторы попадают в разные полосы
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & mask;
+    }
+
+    /**
+     * Возвращает отсортированные без повторов номера полос ключей
+     *
+     * @param keys ключи
+     * @return номера полос в порядке захвата
+     */
+    private int[] stripesOf(Collection<Key> keys) {
+        return keys.stream()
+                .filter(key -> key != null && key.first() != null)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Вид ключа блокировки
+     *
+     * <p>Порядковый номер вида входит в хеш ключа, поэтому новые виды добавляются в конец.</p>
+     */
+    public enum KeyKind {
+        /** Товарная позиция (партия) */
+        ITEM,
+        /** Документ */
+        DOCUMENT,
+        /** Остаток номенклатуры на складе */
+        STOCK
+    }
+
+    /**
+     * Ключ блокировки
+     *
+     * @param kind вид ключа
+     * @param first основной идентификатор (null — ключ пропускается)
+     * @param second дополнительный идентификатор (склад для остатка) или null
+     */
+    public record Key(KeyKind kind, Long first, Long second) {
+    }
+
+    /**
+     * Полоса: блокировка и её счётчики
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+        private void lock() {
+            acquisitions.increment();
+            if (lock.tryLock()) {
+                return;
+            }
+            long start = System.nanoTime();
+            lock.lock();
+            long waited = System.nanoTime() - start;
+            contended.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+        }
+    }
+}
@@ -0,0 +1,796 @@
+package com.store.inventory.util;
+
+import com.store.inventory.domain.DocumentStatus;
+import com.store.inventory.domain.DocumentType;
+import com.store.inventory.domain.ItemStatus;
+import com.store.inventory.domain.OperationType;
+import com.store.inventory.repository.StockBalanceDao;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Генератор синтетического набора данных объёма работающего магазина
+ *
+ * <p>Создаёт склады, полки, производителей и номенклатуру, затем моделирует
+ * {@link DatasetSpec#getHistoryYears()} лет работы: реализацию, перемещения
+ * и поступления, пополняющие израсходованные остатки. Для каждой операции
+ * записываются документ, строки, товарные позиции и история, как при проведении
+ * через сервисы, поэтому остатки позиций согласованы с историей.</p>
+ *
+ * <p>Набор неравномерный, как в реальном магазине: популярность позиций
+ * распределена по закону Ципфа (первые позиции продаются в сотни раз чаще
+ * последних), спрос выше в декабре и в выходные, а сезонные позиции продаются
+ * в основном летом. Размер партии пропорционален спросу на позицию.</p>
+ *
+ * <p>Строки вставляются напрямую через JDBC пакетами, минуя сессию Hibernate.
+ * Моделирование разбито на независимые части (склад × группа позиций), которые
+ * загружаются параллельно; идентификаторы частей чередуются и не пересекаются.
+ * Содержимое определяется только параметрами и начальным значением генератора
+ * и не зависит от количества потоков; даты отсчитываются от дня запуска.
+ * Генератор рассчитан на пустую базу: во время загрузки другие терминалы
+ * не должны работать с ней.</p>
+ */
+public class SyntheticDataGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    /** Частей моделирования на склад; не зависит от числа потоков, чтобы набор был воспроизводимым */
+    private static final int PARTITIONS_PER_WAREHOUSE = 8;
+
+    /** Документов в одной транзакции загрузки */
+    private static final int DOCUMENTS_PER_COMMIT = 500;
+
+    /** Обновлений партий в одной транзакции загрузки */
+    private static final int UPDATES_PER_COMMIT = 5000;
+
+    /** Показатель закона Ципфа для популярности позиций */
+    private static final double POPULARITY_EXPONENT = 1.0;
+
+    /** Доля сезонных позиций и множители их спроса летом и в остальное время */
+    private static final double SEASONAL_SHARE = 0.1;
+    private static final double SEASONAL_PEAK = 3.0;
+    private static final double SEASONAL_OFF_PEAK = 0.5;
+
+    /** Доля позиций со сроком годности */
+    private static final double PERISHABLE_SHARE = 0.2;
+
+    /** Доля перемещений среди документов расхода */
+    private static final double MOVEMENT_SHARE = 0.1;
+
+    private static final int MAX_SALE_LINES = 5;
+    private static final int MAX_SALE_QUANTITY = 3;
+    private static final int MAX_MOVEMENT_LINES = 3;
+    private static final int MAX_RECEIPT_LINES = 20;
+
+    /** Средние значения равномерных распределений выше, для расчёта спроса */
+    private static final double MEAN_SALE_LINES = (1 + MAX_SALE_LINES) / 2.0;
+    private static final double MEAN_SALE_QUANTITY = (1 + MAX_SALE_QUANTITY) / 2.0;
+
+    /** Пределы, при которых суммы строк и документов укладываются в NUMERIC(12, 2) */
+    private static final long MAX_LOT_SIZE = 100_000;
+    private static final double MAX_PURCHASE_PRICE = 50_000;
+    private static final BigDecimal MAX_DOCUMENT_AMOUNT = new BigDecimal("9000000000");
+
+    private static final String[] CATEGORIES = {
+            "Смартфон", "Планшет", "Ноутбук", "Монитор", "Клавиатура", "Мышь", "Наушники",
+            "Колонка", "Чехол", "Защитное стекло", "Кабель", "Зарядное устройство",
+            "Аккумулятор", "Карта памяти", "Накопитель", "Роутер", "Камера", "Часы"
+    };
+    private static final String[] COUNTRIES = {"Китай", "Россия", "Южная Корея", "США", "Япония", "Тайвань"};
+    private static final String[] EMPLOYEES = {"Иванов И.И.", "Петрова А.С.", "Сидоров П.В.", "Кузнецова Е.Н."};
+    private static final String RETAIL_CUSTOMER = "Розничный покупатель";
+
+    private static final String INSERT_DOCUMENT = "INSERT INTO document (id, document_type, document_number, "
+            + "document_date, warehouse_id, counterparty, total_amount, status, created_by, created_at, "
+            + "updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ITEM = "INSERT INTO items (id, nomenclature_id, batch_number, quantity, "
+            + "purchase_price, selling_price, current_shelf_id, status, manufacture_date, expiry_date, "
+            + "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_DOCUMENT_ITEM = "INSERT INTO document_items (id, document_id, "
+            + "nomenclature_id, item_id, quantity, price, total, shelf_id, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_HISTORY = "INSERT INTO history (id, item_id, document_id, operation_type, "
+            + "quantity_change, price, from_shelf_id, to_shelf_id, from_status, to_status, operation_date, "
+            + "notes, created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ITEM = "UPDATE items SET quantity = ?, status = ?, current_shelf_id = ?, "
+            + "updated_at = ?, version = version + 1 WHERE id = ?";
+
+    private final DatasetSpec spec;
+    private final ConnectionProvider connections;
+    private final LocalDate endDate = LocalDate.now();
+    private final LocalDate startDate;
+    private final int days;
+    private final int partitions;
+
+    private final LongAdder documentCount = new LongAdder();
+    private final LongAdder itemCount = new LongAdder();
+    private final LongAdder documentItemCount = new LongAdder();
+    private final LongAdder historyCount = new LongAdder();
+
+    /** Максимальные идентификаторы до загрузки: items, document, document_items, history */
+    private long itemIdBase;
+    private long documentIdBase;
+    private long documentItemIdBase;
+    private long historyIdBase;
+
+    /** Модель позиций номенклатуры, общая для всех частей; после заполнения только читается */
+    private long[] nomenclatureIds;
+    private long[][] shelfIds;
+    private String[][] shelfAddresses;
+    private long[] warehouseIds;
+    private double[] popularity;
+    private boolean[] seasonal;
+    private int[] shelfLifeDays;
+    private BigDecimal[] purchasePrices;
+    private BigDecimal[] sellingPrices;
+    private long[] lotSizes;
+    private long[] reorderPoints;
+    private int[] manufacturerOfSku;
+
+    /**
+     * Создаёт генератор
+     *
+     * @param spec параметры набора данных
+     */
+    public SyntheticDataGenerator(DatasetSpec spec) {
+        this.spec = spec;
+        this.connections = HibernateUtil.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().requireService(ConnectionProvider.class);
+        this.days = spec.getHistoryYears() * 365;
+        this.startDate = endDate.minusDays(days);
+        this.partitions = spec.getWarehouses() * PARTITIONS_PER_WAREHOUSE;
+    }
+
+    /**
+     * Генерирует набор данных
+     *
+     * <p>После загрузки последовательности идентификаторов сдвигаются за вставленные
+     * строки, а кэш второго уровня очищается.</p>
+     *
+     * @throws RuntimeException если загрузка не удалась
+     */
+    public void generate() {
+        logger.info("Генерация синтетического набора данных: {}", spec);
+        long started = System.nanoTime();
+
+        try {
+            readIdBases();
+            buildSkuModel();
+            insertReferenceData();
+            simulatePartitions();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка при генерации данных: " + e.getMessage(), e);
+        }
+
+        MigrationRunner.synchronizeSequences();
+        new StockBalanceDao().rebuild();
+        HibernateUtil.getSessionFactory().getCache().evictAllRegions();
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long rows = documentCount.sum() + itemCount.sum() + documentItemCount.sum() + historyCount.sum();
+        logger.info("Набор данных создан за {} с: документов {}, товарных позиций {}, строк документов {}, "
+                        + "записей истории {} ({} строк/с)",
+                String.format("%.1f", seconds), documentCount.sum(), itemCount.sum(),
+                documentItemCount.sum(), historyCount.sum(), Math.round(rows / seconds));
+    }
+
+    /**
+     * Читает максимальные идентификаторы таблиц, которые заполняются частями
+     */
+    private void readIdBases() throws SQLException {
+        Connection connection = connections.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            itemIdBase = maxId(statement, "items");
+            documentIdBase = maxId(statement, "document");
+            documentItemIdBase = maxId(statement, "document_items");
+            historyIdBase = maxId(statement, "history");
+            connection.commit();
+        } finally {
+            connections.closeConnection(connection);
+        }
+    }
+
+    private static long maxId(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Вычисляет популярность, цены, сезонность и размер партии каждой позиции
+     */
+    private void buildSkuModel() {
+        int skus = spec.getSkus();
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+
+        // Ранг популярности — случайная перестановка, чтобы популярные позиции
+        // не шли подряд по артикулу и распределялись по всем частям
+        int[] ranks = new int[skus];
+        for (int i = 0; i < skus; i++) {
+            ranks[i] = i;
+        }
+        for (int i = skus - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = swap;
+        }
+
+        popularity = new double[skus];
+        double total = 0;
+        for (int i = 0; i < skus; i++) {
+            popularity[i] = 1 / Math.pow(ranks[i] + 1, POPULARITY_EXPONENT);
+            total += popularity[i];
+        }
+
+        // Ожидаемый расход позиции на одном складе за всю историю определяет размер партии
+        double saleUnitsPerWarehouse = (double) spec.getDocumentsPerDay() / spec.getWarehouses() * days
+                * (1 - MOVEMENT_SHARE) * MEAN_SALE_LINES * MEAN_SALE_QUANTITY;
+
+        seasonal = new boolean[skus];
+        shelfLifeDays = new int[skus];
+        purchasePrices = new BigDecimal[skus];
+        sellingPrices = new BigDecimal[skus];
+        lotSizes = new long[skus];
+        reorderPoints = new long[skus];
+        manufacturerOfSku = new int[skus];
+        int manufacturers = manufacturerCount();
+        for (int i = 0; i < skus; i++) {
+            popularity[i] /= total;
+            seasonal[i] = random.nextDouble() < SEASONAL_SHARE;
+            shelfLifeDays[i] = random.nextDouble() < PERISHABLE_SHARE ? 90 + random.nextInt(630) : 0;
+            double price = Math.min(Math.max(Math.exp(Math.log(800) + 1.2 * random.nextGaussian()), 10),
+                    MAX_PURCHASE_PRICE);
+            purchasePrices[i] = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+            sellingPrices[i] = BigDecimal.valueOf(price * (1.25 + 0.35 * random.nextDouble()))
+                    .setScale(2, RoundingMode.HALF_UP);
+            lotSizes[i] = Math.min(Math.max((long) Math.ceil(popularity[i] * saleUnitsPerWarehouse
+                    / spec.getLotsPerSku()), 1), MAX_LOT_SIZE);
+            reorderPoints[i] = Math.max(lotSizes[i] / 2, 1);
+            manufacturerOfSku[i] = random.nextInt(manufacturers);
+        }
+    }
+
+    private int manufacturerCount() {
+        return Math.max(5, spec.getSkus() / 200);
+    }
+
+    /**
+     * Вставляет производителей, склады, полки и номенклатуру
+     */
+    private void insertReferenceData() throws SQLException {
+        LocalDateTime createdAt = startDate.atTime(8, 0);
+        Connection connection = connections.getConnection();
+        try {
+            long[] manufacturerIds = new long[manufacturerCount()];
+            long manufacturerId = nextFreeId(connection, "manufacturer");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO manufacturer "
+                    + "(id, name, country, contact_info, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int m = 0; m < manufacturerIds.length; m++) {
+                    manufacturerIds[m] = manufacturerId++;
+                    setRow(insert, manufacturerIds[m], String.format("Производитель %04d", m + 1),
+                            COUNTRIES[m % COUNTRIES.length], null, createdAt, createdAt);
+                }
+                insert.executeBatch();
+            }
+
+            warehouseIds = new long[spec.getWarehouses()];
+            shelfIds = new long[spec.getWarehouses()][spec.getShelvesPerWarehouse()];
+            shelfAddresses = new String[spec.getWarehouses()][spec.getShelvesPerWarehouse()];
+            long warehouseId = nextFreeId(connection, "warehouse");
+            long shelfId = nextFreeId(connection, "shelf");
+            try (PreparedStatement insertWarehouse = connection.prepareStatement("INSERT INTO warehouse "
+                    + "(id, name, address, is_active, created_at) VALUES (?, ?, ?, TRUE, ?)");
+                 PreparedStatement insertShelf = connection.prepareStatement("INSERT INTO shelf "
+                         + "(id, warehouse_id, code, description, capacity, is_active, created_at) "
+                         + "VALUES (?, ?, ?, ?, ?, TRUE, ?)")) {
+                for (int w = 0; w < warehouseIds.length; w++) {
+                    warehouseIds[w] = warehouseId++;
+                    String name = "Склад №" + (w + 1) + " (синтетический)";
+                    setRow(insertWarehouse, warehouseIds[w], name, "Адрес склада " + (w + 1), createdAt);
+                    for (int s = 0; s < spec.getShelvesPerWarehouse(); s++) {
+                        shelfIds[w][s] = shelfId++;
+                        int row = s / 40 + 1;
+                        int rack = s / 4 % 10 + 1;
+                        int level = s % 4 + 1;
+                        String code = String.format("%02d-%02d-%d", row, rack, level);
+                        shelfAddresses[w][s] = name + " / " + code;
+                        setRow(insertShelf, shelfIds[w][s], warehouseIds[w], code,
+                                "Ряд " + row + ", Стеллаж " + rack + ", Полка " + level, 1000, createdAt);
+                    }
+                }
+                insertWarehouse.executeBatch();
+                insertShelf.executeBatch();
+            }
+
+            nomenclatureIds = new long[spec.getSkus()];
+            long nomenclatureId = nextFreeId(connection, "nomenclature");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO nomenclature "
+                    + "(id, article, name, description, unit, manufacturer_id, min_stock_level, created_at, "
+                    + "updated_at) VALUES (?, ?, ?, ?, 'шт', ?, ?, ?, ?)")) {
+                for (int i = 0; i < nomenclatureIds.length; i++) {
+                    nomenclatureIds[i] = nomenclatureId++;
+                    String category = CATEGORIES[i % CATEGORIES.length];
+                    // Минимальный остаток — точка заказа на всех складах
+                    long minStockLevel = Math.min(reorderPoints[i] * spec.getWarehouses(), Integer.MAX_VALUE);
+                    setRow(insert, nomenclatureIds[i], String.format("SKU-%07d", i + 1),
+                            String.format("%s модель %07d", category, i + 1),
+                            seasonal[i] ? "Сезонный товар" : null,
+                            manufacturerIds[manufacturerOfSku[i]], (int) minStockLevel, createdAt, createdAt);
+                    if ((i + 1) % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connections.closeConnection(connection);
+        }
+        logger.info("Справочники созданы: складов {}, полок {}, номенклатуры {}",
+                spec.getWarehouses(), spec.getWarehouses() * spec.getShelvesPerWarehouse(), spec.getSkus());
+    }
+
+    private static long nextFreeId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return maxId(statement, table) + 1;
+        }
+    }
+
+    /**
+     * Моделирует и загружает все части в пуле потоков
+     */
+    private void simulatePartitions() throws SQLException {
+        int threads = Math.min(spec.getThreads(), partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                Partition partition = new Partition(p);
+                futures.add(executor.submit(() -> {
+                    partition.simulate();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Генерация данных прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new RuntimeException("Ошибка при генерации данных: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Множитель спроса на дату: пик в декабре, выходные выше будних дней
+     */
+    private static double demandFactor(LocalDate date) {
+        double yearly = 1 + 0.3 * Math.cos(2 * Math.PI * (date.getDayOfYear() - 355) / 365.25);
+        DayOfWeek day = date.getDayOfWeek();
+        double weekly = day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY ? 1.3 : 0.88;
+        return yearly * weekly;
+    }
+
+    private static boolean isSummer(LocalDate date) {
+        Month month = date.getMonth();
+        return month == Month.JUNE || month == Month.JULY || month == Month.AUGUST;
+    }
+
+    private static void setRow(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.addBatch();
+    }
+
+    /**
+     * Партия товара в модели: одна строка таблицы items
+     */
+    private static final class Lot {
+        private final long id;
+        private final int sku;
+        private final long received;
+        private long remaining;
+        private int shelf;
+        private boolean changed;
+
+        private Lot(long id, int sku, long received, int shelf) {
+            this.id = id;
+            this.sku = sku;
+            this.received = received;
+            this.remaining = received;
+            this.shelf = shelf;
+        }
+    }
+
+    /**
+     * Часть моделирования: позиции с номером {@code sku % PARTITIONS_PER_WAREHOUSE == shard}
+     * на одном складе
+     *
+     * <p>Часть моделирует историю день за днём со своим генератором случайных чисел
+     * и накапливает строки, которые записываются пакетами каждые
+     * {@value #DOCUMENTS_PER_COMMIT} документов в отдельной транзакции.</p>
+     */
+    private final class Partition {
+        private final int index;
+        private final int warehouse;
+        private final SplittableRandom random;
+        private final int[] skus;
+        private final double[] summerDemand;
+        private final double[] offPeakDemand;
+        private final List<ArrayDeque<Lot>> stock = new ArrayList<>();
+        private final long[] stockUnits;
+        private final BitSet reorder = new BitSet();
+        private final List<Lot> lots = new ArrayList<>();
+
+        private final List<Object[]> documents = new ArrayList<>();
+        private final List<Object[]> items = new ArrayList<>();
+        private final List<Object[]> documentItems = new ArrayList<>();
+        private final List<Object[]> history = new ArrayList<>();
+
+        private long itemSequence;
+        private long documentSequence;
+        private long documentItemSequence;
+        private long historySequence;
+        private int documentNumber;
+
+        private Partition(int index) {
+            this.index = index;
+            this.warehouse = index / PARTITIONS_PER_WAREHOUSE;
+            this.random = new SplittableRandom(spec.getSeed() + 0x9E3779B97F4A7C15L * (index + 1));
+
+            int shard = index % PARTITIONS_PER_WAREHOUSE;
+            this.skus = IntStream.range(0, spec.getSkus())
+                    .filter(sku -> sku % PARTITIONS_PER_WAREHOUSE == shard)
+                    .toArray();
+            this.summerDemand = new double[skus.length];
+            this.offPeakDemand = new double[skus.length];
+            this.stockUnits = new long[skus.length];
+            double summer = 0;
+            double offPeak = 0;
+            for (int i = 0; i < skus.length; i++) {
+                double weight = popularity[skus[i]];
+                summer += seasonal[skus[i]] ? weight * SEASONAL_PEAK : weight;
+                offPeak += seasonal[skus[i]] ? weight * SEASONAL_OFF_PEAK : weight;
+                summerDemand[i] = summer;
+                offPeakDemand[i] = offPeak;
+                stock.add(new ArrayDeque<>());
+            }
+            // В первый день поступает по партии каждой позиции
+            reorder.set(0, skus.length);
+        }
+
+        private void simulate() throws SQLException {
+            double documentsPerDay = (double) spec.getDocumentsPerDay() / partitions;
+            int pending = 0;
+            for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
+                pending += receive(date);
+                double[] demand = isSummer(date) ? summerDemand : offPeakDemand;
+                int count = (int) (documentsPerDay * demandFactor(date) + random.nextDouble());
+                for (int d = 0; d < count; d++) {
+                    boolean posted = random.nextDouble() < MOVEMENT_SHARE ? move(date, demand) : sell(date, demand);
+                    if (posted) {
+                        pending++;
+                    }
+                }
+                if (pending >= DOCUMENTS_PER_COMMIT) {
+                    flush();
+                    pending = 0;
+                }
+            }
+            flush();
+            updateLots();
+            logger.debug("Склад {}, часть {}: документов {}, партий {}",
+                    warehouse + 1, index % PARTITIONS_PER_WAREHOUSE + 1, documentSequence, lots.size());
+        }
+
+        /**
+         * Поступление партий позиций, остаток которых опустился ниже точки заказа
+         *
+         * @return количество созданных документов
+         */
+        private int receive(LocalDate date) {
+            int created = 0;
+            int line = reorder.nextSetBit(0);
+            while (line >= 0) {
+                long documentId = nextDocumentId();
+                String number = nextNumber("ПОСТ", date);
+                LocalDateTime time = timeOfDay(date);
+                String employee = employee();
+                BigDecimal total = BigDecimal.ZERO;
+                int lines = 0;
+                while (line >= 0 && lines < MAX_RECEIPT_LINES) {
+                    int sku = skus[line];
+                    BigDecimal quantity = BigDecimal.valueOf(lotSizes[sku]);
+                    BigDecimal amount = quantity.multiply(purchasePrices[sku]);
+                    if (lines > 0 && total.add(amount).compareTo(MAX_DOCUMENT_AMOUNT) > 0) {
+                        break;
+                    }
+                    Lot lot = new Lot(nextItemId(), sku, lotSizes[sku], sku % spec.getShelvesPerWarehouse());
+                    lots.add(lot);
+                    stock.get(line).addLast(lot);
+                    stockUnits[line] += lot.received;
+                    reorder.clear(line);
+
+                    LocalDate manufactured = date.minusDays(random.nextInt(60));
+                    LocalDate expiry = shelfLifeDays[sku] > 0 ? manufactured.plusDays(shelfLifeDays[sku]) : null;
+                    long shelfId = shelfIds[warehouse][lot.shelf];
+                    items.add(new Object[]{lot.id, nomenclatureIds[sku], "П-" + number, quantity,
+                            purchasePrices[sku], sellingPrices[sku], shelfId, ItemStatus.IN_STOCK.name(),
+                            manufactured, expiry, time, time});
+                    documentItems.add(new Object[]{nextDocumentItemId(), documentId, nomenclatureIds[sku], lot.id,
+                            quantity, purchasePrices[sku], amount, shelfId, time});
+                    history.add(new Object[]{nextHistoryId(), lot.id, documentId, OperationType.RECEIPT.name(),
+                            quantity, purchasePrices[sku], null, shelfId, null, ItemStatus.IN_STOCK.name(), time,
+                            "Поступление по документу " + number, employee, time});
+                    total = total.add(amount);
+                    lines++;
+                    line = reorder.nextSetBit(line + 1);
+                }
+                documents.add(new Object[]{documentId, DocumentType.RECEIPT.name(), number, date,
+                        warehouseIds[warehouse], String.format("Поставщик %04d", random.nextInt(manufacturerCount()) + 1),
+                        total, DocumentStatus.CONFIRMED.name(), employee, time, time});
+                created++;
+            }
+            return created;
+        }
+
+        /**
+         * Реализация нескольких позиций; строки без остатка пропускаются
+         *
+         * @return true, если документ создан
+         */
+        private boolean sell(LocalDate date, double[] demand) {
+            int lineCount = 1 + random.nextInt(MAX_SALE_LINES);
+            long documentId = -1;
+            String number = null;
+            LocalDateTime time = timeOfDay(date);
+            String employee = employee();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < lineCount; i++) {
+                int line = pick(demand);
+                Lot lot = stock.get(line).peekFirst();
+                if (lot == null) {
+                    continue;
+                }
+                if (documentId < 0) {
+                    documentId = nextDocumentId();
+                    number = nextNumber("РЕАЛ", date);
+                }
+                int sku = skus[line];
+                long sold = Math.min(1 + random.nextInt(MAX_SALE_QUANTITY), lot.remaining);
+                lot.remaining -= sold;
+                lot.changed = true;
+                stockUnits[line] -= sold;
+                if (lot.remaining == 0) {
+                    stock.get(line).pollFirst();
+                }
+                if (stockUnits[line] < reorderPoints[sku]) {
+                    reorder.set(line);
+                }
+
+                BigDecimal quantity = BigDecimal.valueOf(sold);
+                BigDecimal amount = quantity.multiply(sellingPrices[sku]);
+                long shelfId = shelfIds[warehouse][lot.shelf];
+                String status = lot.remaining == 0 ? ItemStatus.SOLD.name() : ItemStatus.IN_STOCK.name();
+                documentItems.add(new Object[]{nextDocumentItemId(), documentId, nomenclatureIds[sku], lot.id,
+                        quantity, sellingPrices[sku], amount, shelfId, time});
+                history.add(new Object[]{nextHistoryId(), lot.id, documentId, OperationType.SALE.name(),
+                        quantity.negate(), sellingPrices[sku], shelfId, null, ItemStatus.IN_STOCK.name(), status,
+                        time, "Продажа по документу " + number, employee, time});
+                total = total.add(amount);
+            }
+            if (documentId < 0) {
+                return false;
+            }
+            documents.add(new Object[]{documentId, DocumentType.SALE.name(), number, date, warehouseIds[warehouse],
+                    RETAIL_CUSTOMER, total, DocumentStatus.CONFIRMED.name(), employee, time, time});
+            return true;
+        }
+
+        /**
+         * Перемещение последних поступивших партий на другие полки склада
+         *
+         * @return true, если документ создан
+         */
+        private boolean move(LocalDate date, double[] demand) {
+            int shelves = spec.getShelvesPerWarehouse();
+            if (shelves < 2) {
+                return false;
+            }
+            int lineCount = 1 + random.nextInt(MAX_MOVEMENT_LINES);
+            long documentId = -1;
+            String number = null;
+            LocalDateTime time = timeOfDay(date);
+            String employee = employee();
+            for (int i = 0; i < lineCount; i++) {
+                int line = pick(demand);
+                Lot lot = stock.get(line).peekLast();
+                if (lot == null) {
+                    continue;
+                }
+                if (documentId < 0) {
+                    documentId = nextDocumentId();
+                    number = nextNumber("ПЕР", date);
+                }
+                int from = lot.shelf;
+                lot.shelf = (from + 1 + random.nextInt(shelves - 1)) % shelves;
+                lot.changed = true;
+                long fromShelfId = shelfIds[warehouse][from];
+                long toShelfId = shelfIds[warehouse][lot.shelf];
+                documentItems.add(new Object[]{nextDocumentItemId(), documentId, nomenclatureIds[skus[line]], lot.id,
+                        BigDecimal.valueOf(lot.remaining), BigDecimal.ZERO, BigDecimal.ZERO, toShelfId, time});
+                history.add(new Object[]{nextHistoryId(), lot.id, documentId, OperationType.MOVEMENT.name(),
+                        null, null, fromShelfId, toShelfId, ItemStatus.IN_STOCK.name(), ItemStatus.IN_STOCK.name(),
+                        time, "Перемещение: " + shelfAddresses[warehouse][from] + " → "
+                        + shelfAddresses[warehouse][lot.shelf], employee, time});
+            }
+            if (documentId < 0) {
+                return false;
+            }
+            documents.add(new Object[]{documentId, DocumentType.MOVEMENT.name(), number, date,
+                    warehouseIds[warehouse], null, BigDecimal.ZERO, DocumentStatus.CONFIRMED.name(),
+                    employee, time, time});
+            return true;
+        }
+
+        /**
+         * Выбирает позицию части с вероятностью, пропорциональной спросу
+         *
+         * @return номер позиции в части
+         */
+        private int pick(double[] demand) {
+            int found = Arrays.binarySearch(demand, random.nextDouble() * demand[demand.length - 1]);
+            return Math.min(found >= 0 ? found : -found - 1, demand.length - 1);
+        }
+
+        /**
+         * Записывает накопленные строки в одной транзакции
+         */
+        private void flush() throws SQLException {
+            if (documents.isEmpty()) {
+                return;
+            }
+            Connection connection = connections.getConnection();
+            try {
+                // Порядок таблиц соответствует внешним ключам
+                write(connection, INSERT_DOCUMENT, documents);
+                write(connection, INSERT_ITEM, items);
+                write(connection, INSERT_DOCUMENT_ITEM, documentItems);
+                write(connection, INSERT_HISTORY, history);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connections.closeConnection(connection);
+            }
+            documentCount.add(documents.size());
+            itemCount.add(items.size());
+            documentItemCount.add(documentItems.size());
+            historyCount.add(history.size());
+            documents.clear();
+            items.clear();
+            documentItems.clear();
+            history.clear();
+        }
+
+        /**
+         * Записывает итоговые количество, статус и полку изменённых партий
+         */
+        private void updateLots() throws SQLException {
+            LocalDateTime updatedAt = endDate.atStartOfDay();
+            List<Object[]> updates = new ArrayList<>();
+            for (Lot lot : lots) {
+                if (lot.changed) {
+                    updates.add(new Object[]{BigDecimal.valueOf(lot.remaining),
+                            lot.remaining == 0 ? ItemStatus.SOLD.name() : ItemStatus.IN_STOCK.name(),
+                            shelfIds[warehouse][lot.shelf], updatedAt, lot.id});
+                }
+                if (updates.size() == UPDATES_PER_COMMIT) {
+                    writeUpdates(updates);
+                }
+            }
+            writeUpdates(updates);
+        }
+
+        private void writeUpdates(List<Object[]> updates) throws SQLException {
+            if (updates.isEmpty()) {
+                return;
+            }
+            Connection connection = connections.getConnection();
+            try {
+                write(connection, UPDATE_ITEM, updates);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connections.closeConnection(connection);
+            }
+            updates.clear();
+        }
+
+        private void write(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Object[] row : rows) {
+                    setRow(statement, row);
+                }
+                statement.executeBatch();
+            }
+        }
+
+        private String nextNumber(String prefix, LocalDate date) {
+            return String.format("%s-%d%02d-%04d%02d%02d-%d", prefix, warehouse + 1,
+                    index % PARTITIONS_PER_WAREHOUSE + 1, date.getYear(), date.getMonthValue(),
+                    date.getDayOfMonth(), ++documentNumber);
+        }
+
+        private LocalDateTime timeOfDay(LocalDate date) {
+            return date.atTime(9, 0).plusMinutes(random.nextInt(11 * 60));
+        }
+
+        private String employee() {
+            return EMPLOYEES[random.nextInt(EMPLOYEES.length)];
+        }
+
+        // Идентификаторы частей чередуются: id = база + 1 + номер × частей + номер части
+
+        private long nextItemId() {
+            return itemIdBase + 1 + itemSequence++ * partitions + index;
+        }
+
+        private long nextDocumentId() {
+            return documentIdBase + 1 + documentSequence++ * partitions + index;
+        }
+
+        private long nextDocumentItemId() {
+            return documentItemIdBase + 1 + documentItemSequence++ * partitions + index;
+        }
+
+        private long nextHistoryId() {
+            return historyIdBase + 1 + historySequence++ * partitions + index;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.store.inventory.util;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Повтор транзакции при конфликте параллельного изменения
+ *
+ * <p>Товарные позиции и документы версионируются ({@code @Version}): если две
+ * транзакции изменяют одну запись, вторая при фиксации получает
+ * {@link OptimisticLockException} и откатывается. Проведение документа
+ * перечитывает данные внутри транзакции, поэтому его можно безопасно повторить:
+ * повторная попытка увидит результат конкурента (например, уменьшенный остаток)
+ * и либо пройдёт, либо завершится обычной ошибкой проверки.</p>
+ *
+ * <p>Число попыток ограничено {@link #MAX_ATTEMPTS}; перед повтором поток ждёт
+ * экспоненциально растущую паузу со случайной составляющей, чтобы терминалы,
+ * столкнувшиеся на одной партии, не конфликтовали снова в тот же момент.
+ * Прочие исключения пробрасываются сразу.</p>
+ *
+ * <pre>{@code
+ * return TransactionRetry.execute("проведение документа " + number,
+ *         () -> postDocument(...));
+ * }</pre>
+ */
+public final class TransactionRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRetry.class);
+
+    /** Максимальное количество попыток, включая первую */
+    public static final int MAX_ATTEMPTS = 5;
+
+    /** Пауза перед первым повтором, мс; далее удваивается */
+    private static final long INITIAL_BACKOFF_MILLIS = 25;
+
+    private TransactionRetry() {
+        // Утилитный класс
+    }
+
+    /**
+     * Выполняет транзакцию, повторяя её при конфликте версий
+     *
+     * <p>Работа должна открывать собственную сессию и транзакцию и не должна
+     * полагаться на состояние отсоединённых сущностей, прочитанных до вызова.</p>
+     *
+     * @param operation описание операции для журнала
+     * @param work транзакция
+     * @param <T> тип результата
+     * @return результат успешной попытки
+     * @throws RuntimeException исключение последней попытки, если конфликт
+     *         не разрешился за {@link #MAX_ATTEMPTS} попыток, или любое другое исключение работы
+     */
+    public static <T> T execute(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isConcurrentModification(e)) {
+                    throw e;
+                }
+                long backoff = INITIAL_BACKOFF_MILLIS << (attempt - 1);
+                long delay = backoff + ThreadLocalRandom.current().nextLong(backoff);
+                logger.warn("Конфликт параллельного изменения: {}, попытка {} из {}, повтор через {} мс",
+                        operation, attempt, MAX_ATTEMPTS, delay);
+                sleep(delay, e);
+            }
+        }
+    }
+
+    /**
+     * Выполняет транзакцию без результата, повторяя её при конфликте версий
+     *
+     * @param operation описание операции для журнала
+     * @param work транзакция
+     */
+    public static void run(String operation, Runnable work) {
+        execute(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Проверяет, вызвано ли исключение конфликтом версий
+     *
+     * <p>Сервисы оборачивают исключения Hibernate в RuntimeException,
+     * поэтому проверяется вся цепочка причин.</p>
+     *
+     * @param e исключение
+     * @return true, если в цепочке причин есть конфликт оптимистической блокировки
+     */
+    public static boolean isConcurrentModification(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ожидает перед повтором
+     *
+     * @param millis пауза, мс
+     * @param conflict исключение, вызвавшее повтор (пробрасывается при прерывании)
+     */
+    private static void sleep(long millis, RuntimeException conflict) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            conflict.addSuppressed(interrupted);
+            throw conflict;
+        }
+    }
+}
@@ -8,6 +8,7 @@ module com.store.inventory {
     requires java.naming;
     requires java.sql;
     requires com.h2database;
+    requires com.zaxxer.hikari;
     
     requires org.slf4j;
     requires static lombok;
@@ -19,6 +20,7 @@ module com.store.inventory {
     exports com.store.inventory;
     exports com.store.inventory.controller;
     exports com.store.inventory.domain;
+    exports com.store.inventory.dto;
     exports com.store.inventory.repository;
     exports com.store.inventory.service;
     exports com.store.inventory.util;
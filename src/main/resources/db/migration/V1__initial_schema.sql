@@ -61,6 +61,7 @@ CREATE TABLE items (
     expiry_date DATE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL,
     FOREIGN KEY (nomenclature_id) REFERENCES nomenclature(id),
     FOREIGN KEY (current_shelf_id) REFERENCES shelf(id)
 );
@@ -79,6 +80,7 @@ CREATE TABLE document (
     created_by VARCHAR(100),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL,
     FOREIGN KEY (warehouse_id) REFERENCES warehouse(id)
 );
 
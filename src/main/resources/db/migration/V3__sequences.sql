@@ -0,0 +1,42 @@
+-- V3: Переход с IDENTITY на последовательности с оптимизатором pooled
+--
+-- Hibernate резервирует идентификаторы блоками по 50 (allocationSize = 50):
+-- значение последовательности является верхней границей блока, поэтому
+-- последовательность должна опережать MAX(id) таблицы как минимум на 50.
+-- Значение никогда не уменьшается: если другой терминал уже зарезервировал
+-- блок дальше, последовательность остаётся без изменений.
+-- Столбцы id таблиц V1 сохраняют AUTO_INCREMENT для ручных вставок SQL.
+
+CREATE SEQUENCE IF NOT EXISTS manufacturer_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS nomenclature_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS warehouse_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS shelf_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS document_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS document_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS history_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE manufacturer_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM manufacturer),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'MANUFACTURER_SEQ')));
+ALTER SEQUENCE nomenclature_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM nomenclature),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'NOMENCLATURE_SEQ')));
+ALTER SEQUENCE warehouse_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM warehouse),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'WAREHOUSE_SEQ')));
+ALTER SEQUENCE shelf_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM shelf),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'SHELF_SEQ')));
+ALTER SEQUENCE items_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM items),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'ITEMS_SEQ')));
+ALTER SEQUENCE document_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM document),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'DOCUMENT_SEQ')));
+ALTER SEQUENCE document_items_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM document_items),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'DOCUMENT_ITEMS_SEQ')));
+ALTER SEQUENCE history_seq RESTART WITH (SELECT GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM history),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'HISTORY_SEQ')));
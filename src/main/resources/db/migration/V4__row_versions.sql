@@ -0,0 +1,16 @@
+-- V4: Версии строк для оптимистической блокировки (items, document)
+--
+-- Hibernate проверяет версию в каждом UPDATE (WHERE id = ? AND version = ?).
+-- Строки, созданные до появления столбца, получают версию 0: при NULL
+-- Hibernate считал бы сущность несохранённой. Скрипт приводит к виду
+-- V1 (DEFAULT 0 NOT NULL) базы, где столбец отсутствует или допускает NULL.
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+UPDATE items SET version = 0 WHERE version IS NULL;
+ALTER TABLE items ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE items ALTER COLUMN version SET NOT NULL;
+
+ALTER TABLE document ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+UPDATE document SET version = 0 WHERE version IS NULL;
+ALTER TABLE document ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE document ALTER COLUMN version SET NOT NULL;
@@ -0,0 +1,15 @@
+-- V5: Индексы постраничного чтения по ключу (keyset pagination)
+--
+-- Запросы страниц сортируют документы и историю по (дата DESC, id DESC),
+-- товарные позиции — по (status, id). Составные индексы покрывают и прежние
+-- одностолбцовые индексы V1 по тем же первым столбцам, поэтому те удаляются:
+-- каждая вставка документа и записи истории обновляет на один индекс меньше.
+-- В базах, схему которых строил hbm2ddl, индексы V5 уже есть под теми же именами.
+
+CREATE INDEX IF NOT EXISTS idx_document_date_id ON document(document_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_items_status_id ON items(status, id);
+CREATE INDEX IF NOT EXISTS idx_history_operation_date_id ON history(operation_date DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_document_date;
+DROP INDEX IF EXISTS idx_items_status;
+DROP INDEX IF EXISTS idx_history_operation_date;
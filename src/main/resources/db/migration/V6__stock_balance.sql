@@ -0,0 +1,30 @@
+-- V6: Материализованные остатки (stock_balance)
+--
+-- Остаток номенклатуры на полке — сумма количества товарных позиций в статусе
+-- IN_STOCK. Строки обновляют сервисы проведения в транзакции проведения, отчёты
+-- по остаткам читают таблицу вместо суммирования items. Склад полки хранится
+-- в строке, чтобы отчёты по складам не соединялись с shelf. Позиции без полки
+-- в остатки не входят. Строки с нулевым остатком не удаляются.
+--
+-- Начальные остатки считаются по items тем же запросом, что и StockBalanceDao.rebuild().
+
+CREATE TABLE IF NOT EXISTS stock_balance (
+    nomenclature_id BIGINT NOT NULL,
+    warehouse_id BIGINT NOT NULL,
+    shelf_id BIGINT NOT NULL,
+    quantity DECIMAL(15, 3) NOT NULL,
+    PRIMARY KEY (nomenclature_id, warehouse_id, shelf_id),
+    FOREIGN KEY (nomenclature_id) REFERENCES nomenclature(id),
+    FOREIGN KEY (warehouse_id) REFERENCES warehouse(id),
+    FOREIGN KEY (shelf_id) REFERENCES shelf(id)
+);
+
+DELETE FROM stock_balance;
+
+INSERT INTO stock_balance (nomenclature_id, warehouse_id, shelf_id, quantity)
+SELECT i.nomenclature_id, s.warehouse_id, i.current_shelf_id, SUM(i.quantity)
+FROM items i
+JOIN shelf s ON s.id = i.current_shelf_id
+WHERE i.status = 'IN_STOCK'
+GROUP BY i.nomenclature_id, s.warehouse_id, i.current_shelf_id
+HAVING SUM(i.quantity) <> 0;
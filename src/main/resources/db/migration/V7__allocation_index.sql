@@ -0,0 +1,12 @@
+-- V7: Индекс распределения реализации по партиям
+--
+-- Распределение (ItemDao.lockAllocation) читает партии номенклатуры в статусе
+-- IN_STOCK. Индекс внешнего ключа по nomenclature_id приводит запрос ко всем
+-- позициям номенклатуры, включая проданные, число которых растёт с историей;
+-- составной индекс ограничивает просмотр партиями в наличии. Он покрывает и прежний
+-- одностолбцовый индекс V1 по nomenclature_id, поэтому тот удаляется.
+-- В базах, схему которых строил hbm2ddl, индекс уже есть под тем же именем.
+
+CREATE INDEX IF NOT EXISTS idx_items_nomenclature_status ON items(nomenclature_id, status);
+
+DROP INDEX IF EXISTS idx_items_nomenclature;